@@ -0,0 +1,113 @@
+-- Attribute filter benchmark: query plans and latency before and after attribute indexes(see AttributeIndexManager).
+-- Runs in a separate 'bench' schema, so the application tables are untouched:
+--   psql -h localhost -U admin -d ecommerce -f benchmark/attribute-filters.sql
+-- Results of a run are in attribute-filters.md.
+DROP SCHEMA IF EXISTS bench CASCADE;
+CREATE SCHEMA bench;
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE TABLE bench.products(
+    id          INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    category_id INTEGER NOT NULL,
+    price       INTEGER NOT NULL,
+    attributes  JSONB   NOT NULL
+);
+
+-- 3 million laptops with the same attributes as V1.03 migration but skewed like a real catalog:
+-- top configurations(64GB RAM, 17.3" screen, i9/Ryzen 9) are rare
+INSERT INTO bench.products(category_id, price, attributes)
+SELECT
+    2,
+    50000 + (random() * 250000)::integer,
+    jsonb_build_object(
+        'screen_size', CASE WHEN r1 < 0.20 THEN 13.3 WHEN r1 < 0.50 THEN 14.0 WHEN r1 < 0.85 THEN 15.6 WHEN r1 < 0.98 THEN 16.0 ELSE 17.3 END,
+        'RAM', CASE WHEN r2 < 0.35 THEN 8 WHEN r2 < 0.80 THEN 16 WHEN r2 < 0.97 THEN 32 ELSE 64 END,
+        'processor', (ARRAY[
+            'Intel i3-1115G4', 'AMD Ryzen 3 5300U', 'Intel i5-1135G7', 'AMD Ryzen 5 5500U', 'Intel i5-12500H', 'AMD Ryzen 5 5600H',
+            'Intel i7-1165G7', 'AMD Ryzen 7 5700U', 'Intel i7-12700H', 'AMD Ryzen 7 5800H', 'Intel i9-12900HK', 'AMD Ryzen 9 5900HX'
+            ])[1 + floor(power(random(), 2) * 12)::integer],
+        'storage_type', CASE WHEN random() > 0.5 THEN 'SSD' ELSE 'NVMe' END,
+        'storage_capacity', (ARRAY[256, 512, 1024, 2048])[1 + (floor(random() * 4))::integer]
+    )
+FROM (SELECT random() AS r1, random() AS r2 FROM generate_series(1, 3000000)) r;
+
+CREATE INDEX ON bench.products (category_id, price, id);
+VACUUM ANALYZE bench.products;
+SELECT COUNT(1) FROM bench.products;
+
+\echo '=== BEFORE: original filter SQL, no attribute indexes ==='
+
+-- eq: 64GB RAM and 2TB storage(~0.75%)
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(1) FROM bench.products p
+WHERE p.category_id = 2 AND (p.attributes->>'RAM') = '64' AND (p.attributes->>'storage_capacity') = '2048';
+
+-- in: i9 or Ryzen 9 with 64GB RAM(~0.3%)
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(1) FROM bench.products p
+WHERE p.category_id = 2 AND (p.attributes->>'processor') IN ('Intel i9-12900HK', 'AMD Ryzen 9 5900HX') AND (p.attributes->>'RAM') = '64';
+
+-- selective range: screens larger than 16"(~2%)
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(1) FROM bench.products p
+WHERE p.category_id = 2 AND (p.attributes->>'screen_size')::NUMERIC > 16;
+
+-- selective between: 17.3" screens(~2%)
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(1) FROM bench.products p
+WHERE p.category_id = 2 AND (p.attributes->>'screen_size')::NUMERIC BETWEEN 16.5 AND 18;
+
+-- broad range: screens smaller than 15"(~50%)
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(1) FROM bench.products p
+WHERE p.category_id = 2 AND (p.attributes->>'screen_size')::NUMERIC < 15;
+
+-- contains: Ryzen 9(~4%)
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(1) FROM bench.products p
+WHERE p.category_id = 2 AND (p.attributes->>'processor') ILIKE '%5900hx%';
+
+-- first page of eq filter sorted by price
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM bench.products p
+WHERE p.category_id = 2 AND (p.attributes->>'RAM') = '64' AND (p.attributes->>'storage_capacity') = '2048'
+ORDER BY p.price, p.id
+LIMIT 20;
+
+CREATE INDEX ON bench.products USING gin (attributes jsonb_path_ops);
+CREATE INDEX ON bench.products (((attributes->>'screen_size')::NUMERIC)) WHERE category_id = 2;
+CREATE INDEX ON bench.products USING gin ((attributes->>'processor') gin_trgm_ops) WHERE category_id = 2;
+VACUUM ANALYZE bench.products;
+SELECT COUNT(1) FROM bench.products;
+
+\echo '=== AFTER: rewritten filter SQL with attribute indexes ==='
+
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(1) FROM bench.products p
+WHERE p.category_id = 2 AND p.attributes @> '{"RAM": 64}' AND p.attributes @> '{"storage_capacity": 2048}';
+
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(1) FROM bench.products p
+WHERE p.category_id = 2 AND p.attributes @@ '$."processor" == "Intel i9-12900HK" || $."processor" == "AMD Ryzen 9 5900HX"' AND p.attributes @> '{"RAM": 64}';
+
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(1) FROM bench.products p
+WHERE p.category_id = 2 AND (p.attributes->>'screen_size')::NUMERIC > 16;
+
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(1) FROM bench.products p
+WHERE p.category_id = 2 AND (p.attributes->>'screen_size')::NUMERIC BETWEEN 16.5 AND 18;
+
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(1) FROM bench.products p
+WHERE p.category_id = 2 AND (p.attributes->>'screen_size')::NUMERIC < 15;
+
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(1) FROM bench.products p
+WHERE p.category_id = 2 AND (p.attributes->>'processor') ILIKE '%5900hx%';
+
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM bench.products p
+WHERE p.category_id = 2 AND p.attributes @> '{"RAM": 64}' AND p.attributes @> '{"storage_capacity": 2048}'
+ORDER BY p.price, p.id
+LIMIT 20;
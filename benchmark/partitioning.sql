@@ -0,0 +1,107 @@
+-- Partitioning benchmark: laptop searches on a single products heap(the layout before V1.14 migration)
+-- versus a products table list-partitioned by category, while an unrelated category grows.
+-- Runs in a separate 'bench' schema, so the application tables are untouched:
+--   psql -h localhost -U admin -d ecommerce -v others=200000 -f benchmark/partitioning.sql
+--   psql -h localhost -U admin -d ecommerce -v others=2000000 -f benchmark/partitioning.sql
+-- Results of the runs are in partitioning.md.
+\set laptops 200000
+\timing on
+DROP SCHEMA IF EXISTS bench CASCADE;
+CREATE SCHEMA bench;
+
+CREATE TABLE bench.products_heap(
+    id          INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    category_id INTEGER NOT NULL,
+    price       INTEGER NOT NULL,
+    attributes  JSONB   NOT NULL,
+    description TEXT    NOT NULL
+);
+
+-- Laptops(category 2) and phones(category 3) are inserted interleaved, as products of a catalog are,
+-- phones share 'storage_type' attribute with laptops
+INSERT INTO bench.products_heap(category_id, price, attributes, description)
+SELECT
+    category_id,
+    50000 + (random() * 250000)::integer,
+    CASE WHEN category_id = 2 THEN jsonb_build_object(
+        'RAM', (ARRAY[8, 16, 32, 64])[1 + (floor(random() * 4))::integer],
+        'processor', (ARRAY['Intel i5-1135G7', 'Intel i7-12700H', 'AMD Ryzen 5 5600H', 'AMD Ryzen 7 5800H'])[1 + (floor(random() * 4))::integer],
+        'storage_type', CASE WHEN random() > 0.5 THEN 'SSD' ELSE 'NVMe' END
+    ) ELSE jsonb_build_object(
+        'color', (ARRAY['black', 'white', 'blue'])[1 + (floor(random() * 3))::integer],
+        'storage_type', CASE WHEN random() > 0.5 THEN 'SSD' ELSE 'eMMC' END
+    ) END,
+    repeat('Product description ', 10)
+FROM (
+    SELECT CASE WHEN n <= :laptops THEN 2 ELSE 3 END AS category_id
+    FROM generate_series(1, :laptops + :others) n
+    ORDER BY random()
+) s;
+
+CREATE INDEX ON bench.products_heap (category_id, price, id);
+CREATE INDEX ON bench.products_heap USING gin (attributes jsonb_path_ops);
+CREATE INDEX ON bench.products_heap (((attributes->>'RAM')::NUMERIC)) WHERE category_id = 2;
+
+CREATE TABLE bench.products_part(
+    id          INTEGER NOT NULL,
+    category_id INTEGER NOT NULL,
+    price       INTEGER NOT NULL,
+    attributes  JSONB   NOT NULL,
+    description TEXT    NOT NULL,
+    PRIMARY KEY (id, category_id)
+) PARTITION BY LIST (category_id);
+
+CREATE TABLE bench.products_part_2 PARTITION OF bench.products_part FOR VALUES IN (2);
+CREATE TABLE bench.products_part_3 PARTITION OF bench.products_part FOR VALUES IN (3);
+
+INSERT INTO bench.products_part SELECT * FROM bench.products_heap ORDER BY id;
+
+CREATE INDEX ON bench.products_part (price, id);
+CREATE INDEX ON bench.products_part USING gin (attributes jsonb_path_ops);
+CREATE INDEX ON bench.products_part_2 (((attributes->>'RAM')::NUMERIC));
+
+VACUUM ANALYZE bench.products_heap;
+VACUUM ANALYZE bench.products_part;
+
+\echo '=== Heap ==='
+
+-- 'eq' filter by GIN index: the index has matching phones as well
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(1) FROM bench.products_heap p
+WHERE p.category_id = 2 AND p.attributes @> '{"storage_type": "SSD"}';
+
+-- 'contains' filter without index: laptops are read by the category index from pages shared with phones
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(1) FROM bench.products_heap p
+WHERE p.category_id = 2 AND (p.attributes->>'processor') ILIKE '%ryzen%';
+
+-- the first page of a range filter sorted by price
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM bench.products_heap p
+WHERE p.category_id = 2 AND (p.attributes->>'RAM')::NUMERIC >= 32
+ORDER BY p.price, p.id
+LIMIT 20;
+
+\echo '=== Partitioned ==='
+
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(1) FROM bench.products_part p
+WHERE p.category_id = 2 AND p.attributes @> '{"storage_type": "SSD"}';
+
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(1) FROM bench.products_part p
+WHERE p.category_id = 2 AND (p.attributes->>'processor') ILIKE '%ryzen%';
+
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM bench.products_part p
+WHERE p.category_id = 2 AND (p.attributes->>'RAM')::NUMERIC >= 32
+ORDER BY p.price, p.id
+LIMIT 20;
+
+\echo '=== Vacuum after repricing 10% of laptops ==='
+
+UPDATE bench.products_heap SET price = price + 100 WHERE category_id = 2 AND id % 10 = 0;
+VACUUM bench.products_heap;
+
+UPDATE bench.products_part SET price = price + 100 WHERE category_id = 2 AND id % 10 = 0;
+VACUUM bench.products_part_2;
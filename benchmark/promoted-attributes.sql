@@ -0,0 +1,104 @@
+-- Promoted attributes benchmark: attribute filters on JSONB(with attribute indexes, see AttributeIndexManager)
+-- versus the same filters on typed generated columns(see PromotedAttributeManager).
+-- Runs in a separate 'bench' schema, so the application tables are untouched:
+--   psql -h localhost -U admin -d ecommerce -f benchmark/promoted-attributes.sql
+-- Results of a run are in promoted-attributes.md.
+DROP SCHEMA IF EXISTS bench CASCADE;
+CREATE SCHEMA bench;
+
+CREATE TABLE bench.products(
+    id          INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    category_id INTEGER NOT NULL,
+    price       INTEGER NOT NULL,
+    attributes  JSONB   NOT NULL
+);
+
+-- The same skewed laptops as attribute-filters.sql
+INSERT INTO bench.products(category_id, price, attributes)
+SELECT
+    2,
+    50000 + (random() * 250000)::integer,
+    jsonb_build_object(
+        'screen_size', CASE WHEN r1 < 0.20 THEN 13.3 WHEN r1 < 0.50 THEN 14.0 WHEN r1 < 0.85 THEN 15.6 WHEN r1 < 0.98 THEN 16.0 ELSE 17.3 END,
+        'RAM', CASE WHEN r2 < 0.35 THEN 8 WHEN r2 < 0.80 THEN 16 WHEN r2 < 0.97 THEN 32 ELSE 64 END,
+        'storage_type', CASE WHEN random() > 0.5 THEN 'SSD' ELSE 'NVMe' END,
+        'storage_capacity', (ARRAY[256, 512, 1024, 2048])[1 + (floor(random() * 4))::integer]
+    )
+FROM (SELECT random() AS r1, random() AS r2 FROM generate_series(1, 3000000)) r;
+
+CREATE INDEX ON bench.products (category_id, price, id);
+CREATE INDEX ON bench.products USING gin (attributes jsonb_path_ops);
+CREATE INDEX ON bench.products (((attributes->>'screen_size')::NUMERIC)) WHERE category_id = 2;
+CREATE INDEX ON bench.products (((attributes->>'RAM')::NUMERIC)) WHERE category_id = 2;
+CREATE INDEX ON bench.products (((attributes->>'storage_capacity')::NUMERIC)) WHERE category_id = 2;
+
+VACUUM ANALYZE bench.products;
+
+\echo '=== JSONB ==='
+
+-- selective open range: 64GB RAM(~3%)
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(1) FROM bench.products p
+WHERE p.category_id = 2 AND (p.attributes->>'RAM')::NUMERIC >= 64;
+
+-- two ranges: 32GB+ RAM and 16"+ screen(~3%)
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(1) FROM bench.products p
+WHERE p.category_id = 2 AND (p.attributes->>'RAM')::NUMERIC >= 32 AND (p.attributes->>'screen_size')::NUMERIC >= 16;
+
+-- three attributes: 64GB RAM, 17.3" screen, 1TB+ storage(~0.03%)
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(1) FROM bench.products p
+WHERE p.category_id = 2
+  AND (p.attributes->>'RAM')::NUMERIC >= 64
+  AND (p.attributes->>'screen_size')::NUMERIC BETWEEN 17 AND 18
+  AND (p.attributes->>'storage_capacity')::NUMERIC >= 1024;
+
+-- broad range: 16GB+ RAM(~65%)
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(1) FROM bench.products p
+WHERE p.category_id = 2 AND (p.attributes->>'RAM')::NUMERIC >= 16;
+
+-- first page of two ranges sorted by price
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM bench.products p
+WHERE p.category_id = 2 AND (p.attributes->>'RAM')::NUMERIC >= 32 AND (p.attributes->>'screen_size')::NUMERIC >= 16
+ORDER BY p.price, p.id
+LIMIT 20;
+
+-- The same columns and indexes as V1.17 migration creates, attribute ids: 1 - screen_size, 2 - RAM, 5 - storage_capacity
+DROP INDEX bench.products_numeric_idx;
+DROP INDEX bench.products_numeric_idx1;
+DROP INDEX bench.products_numeric_idx2;
+ALTER TABLE bench.products
+    ADD COLUMN attr_1 NUMERIC GENERATED ALWAYS AS (CASE WHEN category_id = 2 AND jsonb_typeof(attributes->'screen_size') = 'number' THEN (attributes->>'screen_size')::NUMERIC END) STORED,
+    ADD COLUMN attr_2 NUMERIC GENERATED ALWAYS AS (CASE WHEN category_id = 2 AND jsonb_typeof(attributes->'RAM') = 'number' THEN (attributes->>'RAM')::NUMERIC END) STORED,
+    ADD COLUMN attr_5 NUMERIC GENERATED ALWAYS AS (CASE WHEN category_id = 2 AND jsonb_typeof(attributes->'storage_capacity') = 'number' THEN (attributes->>'storage_capacity')::NUMERIC END) STORED;
+CREATE INDEX ON bench.products (attr_1) WHERE category_id = 2;
+CREATE INDEX ON bench.products (attr_2) WHERE category_id = 2;
+CREATE INDEX ON bench.products (attr_5) WHERE category_id = 2;
+VACUUM ANALYZE bench.products;
+
+\echo '=== Typed columns ==='
+
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(1) FROM bench.products p
+WHERE p.category_id = 2 AND p.attr_2 >= 64;
+
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(1) FROM bench.products p
+WHERE p.category_id = 2 AND p.attr_2 >= 32 AND p.attr_1 >= 16;
+
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(1) FROM bench.products p
+WHERE p.category_id = 2 AND p.attr_2 >= 64 AND p.attr_1 BETWEEN 17 AND 18 AND p.attr_5 >= 1024;
+
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(1) FROM bench.products p
+WHERE p.category_id = 2 AND p.attr_2 >= 16;
+
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM bench.products p
+WHERE p.category_id = 2 AND p.attr_2 >= 32 AND p.attr_1 >= 16
+ORDER BY p.price, p.id
+LIMIT 20;
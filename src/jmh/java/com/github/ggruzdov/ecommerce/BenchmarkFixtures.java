@@ -0,0 +1,81 @@
+package com.github.ggruzdov.ecommerce;
+
+import com.github.ggruzdov.ecommerce.config.SearchProperties;
+import com.github.ggruzdov.ecommerce.model.AttributeMetadata;
+import com.github.ggruzdov.ecommerce.model.AttributeType;
+import com.github.ggruzdov.ecommerce.model.CategoryAttributes;
+import com.github.ggruzdov.ecommerce.model.Product;
+import com.github.ggruzdov.ecommerce.request.FilterCondition;
+import com.github.ggruzdov.ecommerce.request.Pagination;
+import com.github.ggruzdov.ecommerce.request.ProductFilterSearchRequest;
+import com.github.ggruzdov.ecommerce.request.SortCriteria;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Laptops data of V1.02 and V1.03 migrations, so benchmarks do not need a database.
+ */
+public final class BenchmarkFixtures {
+
+    public static final CategoryAttributes LAPTOP_ATTRIBUTES = new CategoryAttributes(List.of(
+        new AttributeMetadata(1, "screen_size", "Screen Size", AttributeType.DECIMAL, List.of(13.3, 14.0, 15.6, 16.0, 17.3), false, true, false, 1),
+        new AttributeMetadata(2, "RAM", "RAM", AttributeType.INTEGER, List.of(8, 16, 32, 64), false, true, false, 2),
+        new AttributeMetadata(3, "processor", "Processor", AttributeType.VARCHAR, List.of(), false, true, false, 3),
+        new AttributeMetadata(4, "storage_type", "Storage Type", AttributeType.VARCHAR, List.of("SSD", "NVMe"), false, true, false, 4),
+        new AttributeMetadata(5, "storage_capacity", "Storage Capacity", AttributeType.INTEGER, List.of(256, 512, 1024, 2048), false, true, false, 5)
+    ));
+
+    private BenchmarkFixtures() {}
+
+    public static SearchProperties searchProperties() {
+        return new Binder(new MapConfigurationPropertySource(Map.of()))
+            .bindOrCreate("ecommerce.search", SearchProperties.class);
+    }
+
+    public static ProductFilterSearchRequest laptopsRequest() {
+        return new ProductFilterSearchRequest(
+            2,
+            "Dell",
+            null,
+            Map.of(
+                "RAM", new FilterCondition("gte", 16, null, null, null),
+                "processor", new FilterCondition("contains", "intel", null, null, null),
+                "screen_size", new FilterCondition("between", null, null, 14.0, 15.6),
+                "storage_type", new FilterCondition("in", null, List.of("SSD", "NVMe"), null, null)
+            ),
+            new SortCriteria("price", "asc"),
+            new Pagination(1, 20)
+        );
+    }
+
+    public static List<Product> laptops(int count) {
+        return IntStream.range(0, count)
+            .mapToObj(i -> {
+                var product = new Product();
+                product.setId(i + 1);
+                product.setSku("DELL-XPS-" + i);
+                product.setName("Dell XPS 15 " + i);
+                product.setCategoryId(2);
+                product.setBrand("Dell");
+                product.setDescription("Powerful laptop with InfinityEdge display and premium build quality");
+                product.setPrice(150000 + i * 100);
+                product.setWeight(new BigDecimal("1.86"));
+                product.setAttributes(Map.of(
+                    "screen_size", 15.6,
+                    "RAM", 16,
+                    "processor", "Intel i7-12700H",
+                    "storage_type", "SSD",
+                    "storage_capacity", 512
+                ));
+                product.setCreatedAt(Instant.parse("2024-01-01T00:00:00Z").plusSeconds(i));
+                return product;
+            })
+            .toList();
+    }
+}
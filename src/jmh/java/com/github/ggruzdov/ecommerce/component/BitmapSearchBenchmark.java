@@ -0,0 +1,96 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.ggruzdov.ecommerce.BenchmarkFixtures;
+import com.github.ggruzdov.ecommerce.request.ProductFilterSearchRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory filter search of {@link ProductBitmapIndex} over random laptops: matching the laptops request
+ * of 4 attribute filters plus brand and collecting the first page sorted by price, and applying a batch
+ * of 100 changed products to the index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BitmapSearchBenchmark {
+
+    private static final String[] BRANDS = {"Acer", "Apple", "Asus", "Dell", "HP", "LG", "Lenovo", "MSI", "Microsoft", "Samsung"};
+    private static final String[] PROCESSORS = {"Intel Core i5-1235U", "Intel Core i7-12700H", "AMD Ryzen 5 5600H", "AMD Ryzen 7 5800H", "Apple M2"};
+    private static final double[] SCREEN_SIZES = {13.3, 14.0, 15.6, 16.0, 17.3};
+    private static final int[] RAM = {8, 16, 32, 64};
+    private static final String[] STORAGE_TYPES = {"SSD", "NVMe"};
+    private static final int[] STORAGE_CAPACITIES = {256, 512, 1024, 2048};
+
+    @Param({"100000", "1000000"})
+    private int products;
+
+    private ProductBitmapIndex index;
+    private ProductFilterSearchRequest request;
+    private FilterPlan plan;
+    private RoaringBitmap changed;
+    private ProductBitmapIndex delta;
+
+    @Setup
+    public void setUp() {
+        var random = new Random(42);
+        var builder = new ProductBitmapIndex.Builder();
+        for (int id = 1; id <= products; id++) {
+            add(builder, id, random);
+        }
+        index = builder.build();
+
+        request = BenchmarkFixtures.laptopsRequest();
+        plan = FilterPlan.of(request, BenchmarkFixtures.LAPTOP_ATTRIBUTES);
+
+        changed = new RoaringBitmap();
+        var deltaBuilder = new ProductBitmapIndex.Builder();
+        for (int i = 0; i < 100; i++) {
+            int id = 1 + random.nextInt(products);
+            changed.add(id);
+            add(deltaBuilder, id, random);
+        }
+        delta = deltaBuilder.build();
+    }
+
+    @Benchmark
+    public List<Integer> searchLaptops() {
+        var matches = index.match(List.of(2), plan);
+        return index.page(matches, request.sort(), 0, request.pagination().limit());
+    }
+
+    @Benchmark
+    public ProductBitmapIndex applyChanges() {
+        return index.apply(changed, delta);
+    }
+
+    private static void add(ProductBitmapIndex.Builder builder, int id, Random random) {
+        ObjectNode attributes = JsonNodeFactory.instance.objectNode();
+        attributes.put("screen_size", BigDecimal.valueOf(SCREEN_SIZES[random.nextInt(SCREEN_SIZES.length)]));
+        attributes.put("RAM", RAM[random.nextInt(RAM.length)]);
+        attributes.put("processor", PROCESSORS[random.nextInt(PROCESSORS.length)]);
+        attributes.put("storage_type", STORAGE_TYPES[random.nextInt(STORAGE_TYPES.length)]);
+        attributes.put("storage_capacity", STORAGE_CAPACITIES[random.nextInt(STORAGE_CAPACITIES.length)]);
+        builder.add(id, 2, BRANDS[random.nextInt(BRANDS.length)], 50000 + random.nextInt(250000), 1_700_000_000_000_000L + id, attributes);
+    }
+}
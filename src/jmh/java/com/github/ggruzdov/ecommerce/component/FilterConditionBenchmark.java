@@ -0,0 +1,69 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import com.github.ggruzdov.ecommerce.BenchmarkFixtures;
+import com.github.ggruzdov.ecommerce.model.AttributeMetadata;
+import com.github.ggruzdov.ecommerce.request.FilterCondition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per filter parsing of the search path: operator lookup and typed filter parsing.
+ * Each benchmark handles one condition of every operator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterConditionBenchmark {
+
+    private final String[] operators = {"eq", "ne", "gt", "lt", "gte", "lte", "contains", "between", "in"};
+
+    private final AttributeMetadata[] attributes = {
+        attribute("RAM"),
+        attribute("storage_type"),
+        attribute("RAM"),
+        attribute("processor"),
+        attribute("screen_size"),
+        attribute("storage_type")
+    };
+
+    private final FilterCondition[] conditions = {
+        new FilterCondition("eq", 16, null, null, null),
+        new FilterCondition("ne", "SSD", null, null, null),
+        new FilterCondition("gte", 16, null, null, null),
+        new FilterCondition("contains", "intel", null, null, null),
+        new FilterCondition("between", null, null, 14.0, 15.6),
+        new FilterCondition("in", null, List.of("SSD", "NVMe"), null, null)
+    };
+
+    @Benchmark
+    public void operatorOf(Blackhole blackhole) {
+        for (var operator : operators) {
+            blackhole.consume(FilterOperator.of(operator));
+        }
+    }
+
+    @Benchmark
+    public void parseFilter(Blackhole blackhole) {
+        for (int i = 0; i < conditions.length; i++) {
+            blackhole.consume(AttributeFilter.of(attributes[i], conditions[i]));
+        }
+    }
+
+    private static AttributeMetadata attribute(String name) {
+        return BenchmarkFixtures.LAPTOP_ATTRIBUTES.get(name);
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.ggruzdov.ecommerce.response;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ggruzdov.ecommerce.BenchmarkFixtures;
+import com.github.ggruzdov.ecommerce.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response side of the search path: entities mapping and Jackson serialization of a search page.
+ * The object mapper is built the same way as Spring Boot builds the application one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseMappingBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private List<Product> products;
+    private SearchPagedModel<ProductSearchResponse> page;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        products = BenchmarkFixtures.laptops(pageSize);
+        var content = products.stream().map(ProductSearchResponse::from).toList();
+        page = new SearchPagedModel<>(
+            new PageImpl<>(content, PageRequest.of(0, pageSize, Sort.Direction.ASC, "price"), 1000),
+            true
+        );
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    @Benchmark
+    public List<ProductSearchResponse> mapProducts() {
+        return products.stream().map(ProductSearchResponse::from).toList();
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
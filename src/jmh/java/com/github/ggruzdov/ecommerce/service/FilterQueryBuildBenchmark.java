@@ -0,0 +1,74 @@
+package com.github.ggruzdov.ecommerce.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ggruzdov.ecommerce.BenchmarkFixtures;
+import com.github.ggruzdov.ecommerce.component.AttributeDefinitionRegistry;
+import com.github.ggruzdov.ecommerce.component.CategoryTree;
+import com.github.ggruzdov.ecommerce.component.PromotedAttributeManager;
+import com.github.ggruzdov.ecommerce.component.SearchMetrics;
+import com.github.ggruzdov.ecommerce.model.CategoryAttributes;
+import com.github.ggruzdov.ecommerce.request.ProductFilterSearchRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQL building of filter search, i.e. everything {@link ProductSearchService#search(ProductFilterSearchRequest)}
+ * does before hitting the DB: validation, parameters binding and the shape cache lookup.
+ * Attribute definitions are served from memory as in the application, see {@link AttributeDefinitionRegistry}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterQueryBuildBenchmark {
+
+    private ProductSearchService productSearchService;
+    private ProductFilterSearchRequest request;
+
+    @Setup
+    public void setUp() {
+        var meterRegistry = new SimpleMeterRegistry();
+        var searchProperties = BenchmarkFixtures.searchProperties();
+        var attributeDefinitionRegistry = new AttributeDefinitionRegistry(null, null, null, null, meterRegistry) {
+            @Override
+            public CategoryAttributes getCategoryAttributes(Integer categoryId) {
+                return BenchmarkFixtures.LAPTOP_ATTRIBUTES;
+            }
+        };
+        var categoryTree = new CategoryTree(null, null, meterRegistry);
+
+        productSearchService = new ProductSearchService(
+            new PromotedAttributeManager(attributeDefinitionRegistry, null, searchProperties),
+            categoryTree,
+            new AttributeDefinitionService(attributeDefinitionRegistry, categoryTree),
+            null,
+            null,
+            new FilterQueryShapeCache(searchProperties, meterRegistry),
+            null,
+            new SearchMetrics(meterRegistry, null, searchProperties),
+            null,
+            null,
+            null,
+            new ObjectMapper()
+        );
+        request = BenchmarkFixtures.laptopsRequest();
+    }
+
+    @Benchmark
+    public ProductSearchService.SearchQuery buildFilterQuery() {
+        return productSearchService.buildFilterQuery(request);
+    }
+}
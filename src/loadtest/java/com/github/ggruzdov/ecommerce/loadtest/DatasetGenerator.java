@@ -0,0 +1,416 @@
+package com.github.ggruzdov.ecommerce.loadtest;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Seeds a multi-million products dataset for load tests into the application database,
+ * which must be migrated already(e.g. by starting the application once).
+ * <p>
+ * Generated categories are placed under the '{@value Vocabulary#ROOT_CATEGORY}' root category, grouped in a few
+ * subcategories, each leaf category gets filterable 'size', 'capacity', 'color' and 'model' attributes.
+ * Products are spread over leaf categories by a Zipf distribution, 10% of them are laptops of the 'Laptops' category.
+ * Brands and attribute values are skewed within a category, prices are log-normal around a category median.
+ * <p>
+ * Rows are generated by Postgres itself in batches with 'setseed', so the same seed gives the same dataset.
+ * Generated products have 'LT-' SKU prefix. An existing dataset is reused unless 'loadtest.reseed' is set.
+ */
+public class DatasetGenerator {
+
+    private static final int BATCH_SIZE = 200_000;
+    private static final double LAPTOPS_SHARE = 0.1;
+    private static final int LAPTOPS_CATEGORY_ID = 2;
+    private static final String DEADLOCK_DETECTED = "40P01";
+
+    private final LoadTestSettings settings;
+    private final Connection connection;
+    private final Random random;
+
+    DatasetGenerator(LoadTestSettings settings, Connection connection) {
+        this.settings = settings;
+        this.connection = connection;
+        this.random = new Random(settings.seed());
+    }
+
+    public static void main(String[] args) throws SQLException {
+        var settings = LoadTestSettings.fromSystemProperties();
+        try (var connection = settings.connect()) {
+            new DatasetGenerator(settings, connection).run();
+        }
+    }
+
+    void run() throws SQLException {
+        var exists = rootCategoryId() != null;
+        if (settings.clean() || (exists && settings.reseed())) {
+            clean();
+            exists = false;
+        }
+        if (settings.clean()) {
+            return;
+        }
+        if (exists) {
+            System.out.println("Load test dataset exists, reused. Set loadtest.reseed=true to generate it again");
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        execute("SELECT setseed(" + seedFraction() + ")");
+        var leafCategoryIds = insertCategories();
+        insertLaptops((int) (settings.products() * LAPTOPS_SHARE));
+
+        var leafProducts = settings.products() - (int) (settings.products() * LAPTOPS_SHARE);
+        var shares = zipfShares(leafCategoryIds.size());
+        for (int i = 0; i < leafCategoryIds.size(); i++) {
+            insertProducts(leafCategoryIds.get(i), i, (int) Math.round(leafProducts * shares[i]));
+        }
+
+        analyze();
+        System.out.printf("Load test dataset generated in %.0f s%n", (System.nanoTime() - startedAt) / 1e9);
+    }
+
+    /**
+     * @return ids of leaf categories, the first ones get more products.
+     */
+    private List<Integer> insertCategories() throws SQLException {
+        var rootId = insertCategory(Vocabulary.ROOT_CATEGORY, null);
+        var groupIds = new ArrayList<Integer>();
+        for (var group : Vocabulary.GROUPS) {
+            groupIds.add(insertCategory(group, rootId));
+        }
+
+        var leafIds = new ArrayList<Integer>();
+        for (int i = 0; i < settings.categories(); i++) {
+            var kind = Vocabulary.PRODUCT_KINDS.get(i % Vocabulary.PRODUCT_KINDS.size());
+            // Names stay unique once kinds are exhausted
+            var name = i < Vocabulary.PRODUCT_KINDS.size() ? kind.get(0) : kind.get(0) + " " + (i / Vocabulary.PRODUCT_KINDS.size() + 1);
+            var categoryId = insertCategory(name, groupIds.get(i % groupIds.size()));
+            insertAttributeDefinitions(categoryId);
+            leafIds.add(categoryId);
+        }
+        System.out.printf("Categories generated: %d leaf categories under '%s'%n", leafIds.size(), Vocabulary.ROOT_CATEGORY);
+
+        return leafIds;
+    }
+
+    private Integer insertCategory(String name, Integer parentId) throws SQLException {
+        try (var statement = connection.prepareStatement("INSERT INTO categories(name, parent_id) VALUES (?, ?) RETURNING id")) {
+            statement.setString(1, name);
+            statement.setObject(2, parentId);
+            try (var rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private void insertAttributeDefinitions(Integer categoryId) throws SQLException {
+        var sql = """
+            INSERT INTO attribute_definitions(category_id, display_name, name, type, values, is_optional, display_order, is_filterable)
+            VALUES (?, ?, ?, ?, ?::jsonb, false, ?, true)
+            """;
+        try (var statement = connection.prepareStatement(sql)) {
+            addAttribute(statement, categoryId, "Size", "size", "decimal", sizes(), 1);
+            addAttribute(statement, categoryId, "Capacity", "capacity", "integer", capacities(), 2);
+            addAttribute(statement, categoryId, "Color", "color", "varchar", quoted(shuffled(Vocabulary.COLORS)), 3);
+            addAttribute(statement, categoryId, "Model", "model", "varchar", quoted(models()), 4);
+            statement.executeBatch();
+        }
+    }
+
+    private static void addAttribute(
+        PreparedStatement statement,
+        Integer categoryId,
+        String displayName,
+        String name,
+        String type,
+        List<String> values,
+        int displayOrder
+    ) throws SQLException {
+        statement.setInt(1, categoryId);
+        statement.setString(2, displayName);
+        statement.setString(3, name);
+        statement.setString(4, type);
+        statement.setString(5, "[" + String.join(", ", values) + "]");
+        statement.setInt(6, displayOrder);
+        statement.addBatch();
+    }
+
+    /**
+     * The same laptops as V1.03 migration, but with skewed screen sizes and RAM.
+     */
+    private void insertLaptops(int count) throws SQLException {
+        var processors = """
+            (ARRAY['Intel i3-1115G4', 'Intel i5-1135G7', 'Intel i5-12500H', 'Intel i7-1165G7', 'Intel i7-12700H', 'Intel i9-12900HK'])""";
+        var select = """
+            SELECT
+                'LT-%1$d-' || n,
+                brand || ' ' || series || ' ' || screen_size || '"',
+                %1$d,
+                brand,
+                series || ' ' || brand || ' laptop featuring ' || processor || ' processor',
+                price,
+                weight,
+                jsonb_build_object(
+                    'screen_size', screen_size,
+                    'RAM', CASE WHEN r2 < 0.35 THEN 8 WHEN r2 < 0.80 THEN 16 WHEN r2 < 0.97 THEN 32 ELSE 64 END,
+                    'processor', processor,
+                    'storage_type', CASE WHEN random() > 0.5 THEN 'SSD' ELSE 'NVMe' END,
+                    'storage_capacity', (ARRAY[256, 512, 1024, 2048])[1 + floor(random() * 4)::integer]
+                ),
+                created_at
+            FROM (
+                SELECT
+                    n,
+                    %2$s AS brand,
+                    %3$s AS series,
+                    %4$s[1 + floor(power(random(), 1.5) * 6)::integer] AS processor,
+                    CASE WHEN r1 < 0.20 THEN 13.3 WHEN r1 < 0.50 THEN 14.0 WHEN r1 < 0.85 THEN 15.6 WHEN r1 < 0.98 THEN 16.0 ELSE 17.3 END AS screen_size,
+                    r2,
+                    %5$s AS price,
+                    round((1.2 + random() * 2.3)::numeric, 2) AS weight,
+                    %6$s AS created_at
+                FROM (SELECT n, random() AS r1, random() AS r2 FROM generate_series(%%d, %%d) n) r
+            ) laptops
+            """.formatted(
+                LAPTOPS_CATEGORY_ID,
+                skewedChoice(literals(shuffled(List.of("Dell", "HP", "Lenovo", "Asus", "Acer", "MSI", "Apple", "Microsoft", "Samsung", "LG"))), 2),
+                skewedChoice(literals(Vocabulary.SERIES), 1),
+                processors,
+                logNormalPrice(120000),
+                createdAt()
+            );
+        insertInBatches("Laptops", select, count);
+    }
+
+    private void insertProducts(Integer categoryId, int categoryIndex, int count) throws SQLException {
+        var kind = Vocabulary.PRODUCT_KINDS.get(categoryIndex % Vocabulary.PRODUCT_KINDS.size());
+        var attributes = attributeValues(categoryId);
+        var select = """
+            SELECT
+                'LT-%1$d-' || n,
+                brand || ' ' || series || ' ' || %2$s,
+                %1$d,
+                brand,
+                adjective || ' ' || %2$s || ' with ' || feature1 || ' and ' || feature2,
+                price,
+                round((0.2 + random() * 10)::numeric, 2),
+                jsonb_build_object('size', %3$s, 'capacity', %4$s, 'color', %5$s, 'model', %6$s),
+                created_at
+            FROM (
+                SELECT
+                    n,
+                    %7$s AS brand,
+                    %8$s AS series,
+                    %9$s AS adjective,
+                    %10$s AS feature1,
+                    %11$s AS feature2,
+                    %12$s AS price,
+                    %13$s AS created_at
+                FROM generate_series(%%d, %%d) n
+            ) products
+            """.formatted(
+                categoryId,
+                literal(kind.get(1)),
+                skewedChoice(attributes.get(0), 2),
+                skewedChoice(attributes.get(1), 2),
+                skewedChoice(attributes.get(2), 2.5),
+                skewedChoice(attributes.get(3), 1.5),
+                skewedChoice(literals(shuffled(Vocabulary.BRANDS)), 2.5),
+                skewedChoice(literals(Vocabulary.SERIES), 1.5),
+                skewedChoice(literals(shuffled(Vocabulary.ADJECTIVES)), 1.5),
+                skewedChoice(literals(shuffled(Vocabulary.FEATURES)), 1.5),
+                skewedChoice(literals(shuffled(Vocabulary.FEATURES)), 1),
+                logNormalPrice(2000 * (int) Math.pow(10, random.nextDouble() * 2)),
+                createdAt()
+            );
+        insertInBatches(kind.get(0) + "(" + categoryId + ")", select, count);
+    }
+
+    /**
+     * @param select query of product columns with two placeholders of the generated row numbers range.
+     */
+    private void insertInBatches(String name, String select, int count) throws SQLException {
+        var insert = "INSERT INTO products(sku, name, category_id, brand, description, price, weight, attributes, created_at) ";
+        long startedAt = System.nanoTime();
+        for (int from = 1; from <= count; from += BATCH_SIZE) {
+            execute(insert + select.formatted(from, Math.min(count, from + BATCH_SIZE - 1)));
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        System.out.printf("%s: %d products in %.1f s, %.0f rows/s%n", name, count, seconds, count / seconds);
+    }
+
+    /**
+     * @return attribute values as SQL literals in the order of attribute definitions, the first values are the most popular.
+     */
+    private List<List<String>> attributeValues(Integer categoryId) throws SQLException {
+        var result = new ArrayList<List<String>>();
+        var sql = "SELECT values FROM attribute_definitions WHERE category_id = ? ORDER BY display_order";
+        try (var statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, categoryId);
+            try (var rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    var json = rs.getString(1);
+                    // Values are either numbers or quoted strings without commas, see insertAttributeDefinitions
+                    result.add(List.of(json.substring(1, json.length() - 1).split(", ")).stream()
+                        .map(value -> value.startsWith("\"") ? literal(value.substring(1, value.length() - 1)) : value)
+                        .toList());
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private void clean() throws SQLException {
+        var rootId = rootCategoryId();
+        System.out.println("Deleting load test dataset");
+        execute("DELETE FROM products WHERE sku LIKE 'LT-%'");
+        if (rootId != null) {
+            var subtree = """
+                WITH RECURSIVE subtree AS (
+                    SELECT id FROM categories WHERE id = %d
+                    UNION ALL
+                    SELECT c.id FROM categories c JOIN subtree s ON c.parent_id = s.id
+                )
+                """.formatted(rootId);
+            execute(subtree + "DELETE FROM attribute_definitions WHERE category_id IN (SELECT id FROM subtree)");
+            // Self-referencing foreign key is checked at the end of the statement, so the whole subtree goes at once
+            execute(subtree + "DELETE FROM categories WHERE id IN (SELECT id FROM subtree)");
+        }
+        analyze();
+    }
+
+    /**
+     * A running application builds attribute indexes of new categories concurrently(see AttributeIndexManager),
+     * which waits for other transactions and may deadlock with VACUUM, so it goes once builds are over.
+     */
+    private void analyze() throws SQLException {
+        System.out.println("Analyzing products");
+        for (int attempt = 1; ; attempt++) {
+            awaitIndexBuilds();
+            try {
+                execute("VACUUM ANALYZE products");
+                return;
+            } catch (SQLException e) {
+                if (!DEADLOCK_DETECTED.equals(e.getSQLState()) || attempt == 5) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void awaitIndexBuilds() throws SQLException {
+        var sql = "SELECT COUNT(1) FROM pg_stat_progress_create_index WHERE relid = 'products'::regclass";
+        while (true) {
+            try (var statement = connection.createStatement(); var rs = statement.executeQuery(sql)) {
+                rs.next();
+                if (rs.getInt(1) == 0) {
+                    return;
+                }
+            }
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private Integer rootCategoryId() throws SQLException {
+        try (var statement = connection.prepareStatement("SELECT id FROM categories WHERE name = ? AND parent_id IS NULL")) {
+            statement.setString(1, Vocabulary.ROOT_CATEGORY);
+            try (var rs = statement.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (var statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private List<String> sizes() {
+        var base = 1 + random.nextInt(40);
+        return shuffled(IntStream.of(10, 12, 15, 20, 25, 30)
+            .mapToObj(factor -> String.format(Locale.ROOT, "%.1f", base * factor / 10.0))
+            .toList());
+    }
+
+    private List<String> capacities() {
+        var base = 1 << random.nextInt(6);
+        return shuffled(IntStream.range(0, 6)
+            .mapToObj(power -> String.valueOf(base << power))
+            .toList());
+    }
+
+    private List<String> models() {
+        return IntStream.range(0, 12)
+            .mapToObj(i -> Vocabulary.SERIES.get(random.nextInt(Vocabulary.SERIES.size())) + " " + (char) ('A' + random.nextInt(26)) + (10 + random.nextInt(90)))
+            .distinct()
+            .toList();
+    }
+
+    private <T> List<T> shuffled(List<T> values) {
+        var result = new ArrayList<>(values);
+        Collections.shuffle(result, random);
+        return result;
+    }
+
+    /**
+     * @param values SQL literals.
+     * @param skew   see {@link Vocabulary#pick}.
+     */
+    private static String skewedChoice(List<String> values, double skew) {
+        return "(ARRAY[" + String.join(", ", values) + "])[1 + floor(power(random(), " + skew + ") * " + values.size() + ")::integer]";
+    }
+
+    /**
+     * @return shares of categories by Zipf distribution with exponent 1, the sum is 1.
+     */
+    private static double[] zipfShares(int categories) {
+        var shares = IntStream.rangeClosed(1, categories).mapToDouble(rank -> 1.0 / rank).toArray();
+        var sum = Arrays.stream(shares).sum();
+        return Arrays.stream(shares).map(share -> share / sum).toArray();
+    }
+
+    /**
+     * @param median in cents.
+     */
+    private static String logNormalPrice(int median) {
+        return "greatest(100, round(exp(ln(" + median + ") + random_normal(0, 0.5))))::integer";
+    }
+
+    private static String createdAt() {
+        return "TIMESTAMP '2025-01-01' - random() * INTERVAL '730 days'";
+    }
+
+    private static List<String> quoted(List<String> values) {
+        return values.stream().map(value -> "\"" + value + "\"").toList();
+    }
+
+    private static List<String> literals(List<String> values) {
+        return values.stream().map(DatasetGenerator::literal).toList();
+    }
+
+    private static String literal(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    /**
+     * Postgres seed is in [-1, 1].
+     */
+    private double seedFraction() {
+        return (settings.seed() % 1000) / 1000.0;
+    }
+}
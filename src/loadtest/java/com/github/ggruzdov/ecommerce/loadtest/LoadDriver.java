@@ -0,0 +1,153 @@
+package com.github.ggruzdov.ecommerce.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ggruzdov.ecommerce.loadtest.Workload.Scenario;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+
+/**
+ * Drives the search endpoints of a running application with {@link Workload} and writes a latency report.
+ * <p>
+ * Each of 'loadtest.concurrency' clients sends the next request once it gets a response(closed model),
+ * so the reported latency does not include queueing of requests which would have been sent
+ * by independent users during a stall. Compare reports of the same settings and dataset only.
+ * Requests of the warm-up phase are not reported, '503' responses of the search concurrency limiter
+ * are reported as rejected, any other non-2xx response or I/O failure as an error.
+ */
+public class LoadDriver {
+
+    private final LoadTestSettings settings;
+    private final Workload workload;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+
+    LoadDriver(LoadTestSettings settings, Workload workload, ObjectMapper objectMapper) {
+        this.settings = settings;
+        this.workload = workload;
+        this.objectMapper = objectMapper;
+        this.httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        var settings = LoadTestSettings.fromSystemProperties();
+        var objectMapper = new ObjectMapper();
+        Workload workload;
+        long products;
+        try (var connection = settings.connect()) {
+            workload = Workload.load(connection, objectMapper);
+            products = countProducts(connection);
+        }
+
+        var driver = new LoadDriver(settings, workload, objectMapper);
+        driver.awaitApplication();
+        var report = driver.run(products);
+        var path = report.write(settings.reportDir());
+        System.out.println(report.toMarkdown());
+        System.out.println("Report: " + path.toAbsolutePath());
+    }
+
+    LoadTestReport run(long products) {
+        var startedAt = System.nanoTime();
+        var measureFrom = startedAt + settings.warmup().toNanos();
+        var measureUntil = measureFrom + settings.duration().toNanos();
+        System.out.printf("Load test: %d clients, warm-up %s, duration %s%n", settings.concurrency(), settings.warmup(), settings.duration());
+
+        var recorders = new ArrayList<Map<Scenario, LoadTestReport.Recorder>>();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int client = 0; client < settings.concurrency(); client++) {
+                var recorder = new EnumMap<Scenario, LoadTestReport.Recorder>(Scenario.class);
+                recorders.add(recorder);
+                var random = new Random(settings.seed() + client);
+                executor.submit(() -> drive(random, recorder, measureFrom, measureUntil));
+            }
+        }
+
+        return LoadTestReport.of(settings, products, Instant.now(), merge(recorders));
+    }
+
+    /**
+     * Runs on its own virtual thread, the recorder is not shared.
+     */
+    private void drive(Random random, Map<Scenario, LoadTestReport.Recorder> recorders, long measureFrom, long measureUntil) {
+        long now;
+        while ((now = System.nanoTime()) < measureUntil) {
+            var request = workload.next(random);
+            var status = send(request);
+            if (now >= measureFrom) {
+                recorders.computeIfAbsent(request.scenario(), key -> new LoadTestReport.Recorder())
+                    .record(status, System.nanoTime() - now);
+            }
+        }
+    }
+
+    /**
+     * @return response status, 0 on I/O failure.
+     */
+    private int send(Workload.Request request) {
+        try {
+            var httpRequest = HttpRequest.newBuilder(URI.create(settings.baseUrl() + request.scenario().path))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(request.body())))
+                .build();
+            // The body is read fully, so the latency includes the response transfer
+            return httpClient.send(httpRequest, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
+    private void awaitApplication() throws InterruptedException {
+        var healthRequest = HttpRequest.newBuilder(URI.create(settings.baseUrl() + "/actuator/health")).GET().build();
+        for (int attempt = 0; attempt < 60; attempt++) {
+            try {
+                if (httpClient.send(healthRequest, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not started yet
+            }
+            Thread.sleep(1000);
+        }
+
+        throw new IllegalStateException("Application is not available at " + settings.baseUrl());
+    }
+
+    private static Map<Scenario, LoadTestReport.Recorder> merge(List<Map<Scenario, LoadTestReport.Recorder>> recorders) {
+        var result = new EnumMap<Scenario, LoadTestReport.Recorder>(Scenario.class);
+        recorders.forEach(clientRecorders ->
+            clientRecorders.forEach((scenario, recorder) ->
+                result.computeIfAbsent(scenario, key -> new LoadTestReport.Recorder()).add(recorder)
+            )
+        );
+
+        return result;
+    }
+
+    private static long countProducts(Connection connection) throws SQLException {
+        try (var statement = connection.createStatement(); var rs = statement.executeQuery("SELECT COUNT(1) FROM products")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
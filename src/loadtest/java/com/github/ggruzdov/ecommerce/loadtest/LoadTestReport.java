@@ -0,0 +1,153 @@
+package com.github.ggruzdov.ecommerce.loadtest;
+
+import com.github.ggruzdov.ecommerce.loadtest.Workload.Scenario;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Markdown report of a load test run. The layout is stable, so reports of two versions can be diffed line by line.
+ */
+record LoadTestReport(
+    LoadTestSettings settings,
+    long products,
+    Instant finishedAt,
+    String commit,
+    Map<Scenario, Recorder> recorders
+) {
+
+    static LoadTestReport of(LoadTestSettings settings, long products, Instant finishedAt, Map<Scenario, Recorder> recorders) {
+        return new LoadTestReport(settings, products, finishedAt, gitCommit(), recorders);
+    }
+
+    /**
+     * @return path of the written report, named by the application version and commit.
+     */
+    Path write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        var path = directory.resolve("load-test-" + settings.version() + "-" + commit + ".md");
+        Files.writeString(path, toMarkdown());
+
+        return path;
+    }
+
+    String toMarkdown() {
+        var seconds = settings.duration().toMillis() / 1000.0;
+        var report = new StringBuilder()
+            .append("# Load test report\n\n")
+            .append("- Version: ").append(settings.version()).append(" (").append(commit).append(")\n")
+            .append("- Finished at: ").append(finishedAt).append('\n')
+            .append("- Dataset: ").append(products).append(" products, seed ").append(settings.seed()).append('\n')
+            .append("- Clients: ").append(settings.concurrency())
+            .append(", warm-up ").append(settings.warmup().toSeconds()).append(" s")
+            .append(", duration ").append(settings.duration().toSeconds()).append(" s\n\n")
+            .append("| Scenario | Endpoint | Requests | Errors | Rejected | Throughput, req/s | p50, ms | p95, ms | p99, ms | Max, ms |\n")
+            .append("|---|---|---:|---:|---:|---:|---:|---:|---:|---:|\n");
+
+        var total = new Recorder();
+        for (var scenario : Scenario.values()) {
+            var recorder = recorders.getOrDefault(scenario, new Recorder());
+            total.add(recorder);
+            row(report, scenario.description, "`" + scenario.path + "`", recorder, seconds);
+        }
+        row(report, "**all**", "", total, seconds);
+
+        return report.toString();
+    }
+
+    private static void row(StringBuilder report, String scenario, String endpoint, Recorder recorder, double seconds) {
+        var latencies = recorder.sortedLatencies();
+        report.append(String.format(Locale.ROOT, "| %s | %s | %d | %d | %d | %.1f | %s | %s | %s | %s |%n",
+            scenario,
+            endpoint,
+            recorder.requests(),
+            recorder.errors,
+            recorder.rejected,
+            latencies.length / seconds,
+            millis(percentile(latencies, 50)),
+            millis(percentile(latencies, 95)),
+            millis(percentile(latencies, 99)),
+            millis(latencies.length == 0 ? -1 : latencies[latencies.length - 1])
+        ));
+    }
+
+    /**
+     * Nearest-rank percentile.
+     *
+     * @return -1 if there are no latencies.
+     */
+    private static long percentile(long[] sortedLatencies, int percentile) {
+        if (sortedLatencies.length == 0) {
+            return -1;
+        }
+        var rank = (int) Math.ceil(percentile / 100.0 * sortedLatencies.length);
+        return sortedLatencies[Math.max(0, rank - 1)];
+    }
+
+    private static String millis(long nanos) {
+        return nanos < 0 ? "-" : String.format(Locale.ROOT, "%.1f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private static String gitCommit() {
+        try {
+            var process = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").redirectErrorStream(true).start();
+            var output = new String(process.getInputStream().readAllBytes()).trim();
+            return process.waitFor() == 0 ? output : "unknown";
+        } catch (IOException e) {
+            return "unknown";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "unknown";
+        }
+    }
+
+    /**
+     * Latencies of successful requests in nanoseconds with counts of failed ones, not thread-safe.
+     */
+    static class Recorder {
+
+        private long[] latencies = new long[1024];
+        private int size;
+        private long errors;
+        private long rejected;
+
+        void record(int status, long latencyNanos) {
+            if (status == 503) {
+                rejected++;
+            } else if (status < 200 || status >= 300) {
+                errors++;
+            } else {
+                if (size == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, size * 2);
+                }
+                latencies[size++] = latencyNanos;
+            }
+        }
+
+        void add(Recorder other) {
+            if (size + other.size > latencies.length) {
+                latencies = Arrays.copyOf(latencies, size + other.size);
+            }
+            System.arraycopy(other.latencies, 0, latencies, size, other.size);
+            size += other.size;
+            errors += other.errors;
+            rejected += other.rejected;
+        }
+
+        long requests() {
+            return size + errors + rejected;
+        }
+
+        long[] sortedLatencies() {
+            var result = Arrays.copyOf(latencies, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
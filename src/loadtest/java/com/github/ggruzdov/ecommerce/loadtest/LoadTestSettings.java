@@ -0,0 +1,75 @@
+package com.github.ggruzdov.ecommerce.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Load test settings, passed as system properties, e.g. '-Dloadtest.products=5000000'.
+ *
+ * @param products    amount of generated products, 10% of them are laptops of the 'Laptops' category.
+ * @param categories  amount of generated leaf categories.
+ * @param seed        seed of data generation and of the workload, so both are reproducible.
+ * @param reseed      whether an existing dataset is replaced, otherwise it is reused as is.
+ * @param clean       whether the dataset is only deleted.
+ * @param concurrency amount of concurrent clients, each sends the next request once it gets a response.
+ * @param warmup      duration of the warm-up phase, its requests are not reported.
+ * @param duration    duration of the measured phase.
+ */
+record LoadTestSettings(
+    String dbUrl,
+    String dbUser,
+    String dbPassword,
+    int products,
+    int categories,
+    long seed,
+    boolean reseed,
+    boolean clean,
+    String baseUrl,
+    int concurrency,
+    Duration warmup,
+    Duration duration,
+    Path reportDir,
+    String version
+) {
+
+    static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+            property("db.url", "jdbc:postgresql://localhost:5432/ecommerce?reWriteBatchedInserts=true"),
+            property("db.user", "admin"),
+            property("db.password", "password"),
+            Integer.parseInt(property("products", "3000000")),
+            Integer.parseInt(property("categories", "40")),
+            Long.parseLong(property("seed", "42")),
+            Boolean.parseBoolean(property("reseed", "false")),
+            Boolean.parseBoolean(property("clean", "false")),
+            property("base-url", "http://localhost:8080"),
+            Integer.parseInt(property("concurrency", "32")),
+            DurationStyle.detectAndParse(property("warmup", "30s")),
+            DurationStyle.detectAndParse(property("duration", "2m")),
+            Path.of(property("report-dir", "target/loadtest")),
+            property("version", "dev")
+        );
+    }
+
+    /**
+     * The driver is loaded explicitly, as the seeding and load runs get separate class loaders within the same JVM.
+     */
+    Connection connect() throws SQLException {
+        try {
+            Class.forName("org.postgresql.Driver");
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Postgres driver is not on the classpath", e);
+        }
+
+        return DriverManager.getConnection(dbUrl, dbUser, dbPassword);
+    }
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty("loadtest." + name, defaultValue);
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.ggruzdov.ecommerce.loadtest;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Words of generated products, shared by the dataset generator and the workload,
+ * so full-text searches hit real documents.
+ */
+final class Vocabulary {
+
+    static final String ROOT_CATEGORY = "Load test catalog";
+
+    static final List<String> GROUPS = List.of(
+        "Computer accessories", "Audio and video", "Kitchen", "Home and garden", "Sports and outdoor", "Office"
+    );
+
+    /**
+     * Category name and its product noun.
+     */
+    static final List<List<String>> PRODUCT_KINDS = List.of(
+        List.of("Monitors", "monitor"), List.of("Keyboards", "keyboard"), List.of("Mice", "mouse"),
+        List.of("Headphones", "headphones"), List.of("Speakers", "speaker"), List.of("Televisions", "TV"),
+        List.of("Cameras", "camera"), List.of("Microwaves", "microwave"), List.of("Coffee machines", "coffee machine"),
+        List.of("Blenders", "blender"), List.of("Kettles", "kettle"), List.of("Vacuum cleaners", "vacuum cleaner"),
+        List.of("Lawn mowers", "lawn mower"), List.of("Grills", "grill"), List.of("Bicycles", "bicycle"),
+        List.of("Tents", "tent"), List.of("Backpacks", "backpack"), List.of("Printers", "printer"),
+        List.of("Office chairs", "office chair"), List.of("Desks", "desk"), List.of("Routers", "router"),
+        List.of("Tablets", "tablet"), List.of("Smartwatches", "smartwatch"), List.of("Projectors", "projector")
+    );
+
+    static final List<String> BRANDS = List.of(
+        "Samsung", "LG", "Sony", "Philips", "Bosch", "Xiaomi", "Panasonic", "Logitech", "Apple", "Lenovo",
+        "Asus", "Dell", "HP", "Braun", "Tefal", "Garmin", "Canon", "Epson", "Huawei", "Dyson"
+    );
+
+    static final List<String> SERIES = List.of(
+        "Pro", "Max", "Ultra", "Air", "Lite", "Neo", "Prime", "Edge", "Nova", "Zen",
+        "Vision", "Flex", "Core", "Pulse", "Aura", "Titan", "Swift", "Echo", "Orbit", "Spark"
+    );
+
+    static final List<String> ADJECTIVES = List.of(
+        "compact", "wireless", "powerful", "portable", "silent", "smart", "durable", "lightweight", "premium", "ergonomic"
+    );
+
+    static final List<String> FEATURES = List.of(
+        "bluetooth", "fast charging", "touch control", "energy saving mode", "aluminium body", "app control",
+        "long battery life", "noise cancelling", "voice assistant", "waterproof design", "quick start", "led display"
+    );
+
+    static final List<String> COLORS = List.of("black", "white", "silver", "grey", "blue", "red", "green", "gold");
+
+    private Vocabulary() {}
+
+    /**
+     * @param skew 1 for uniform choice, the greater the more often the first elements are picked.
+     */
+    static <T> T pick(List<T> values, Random random, double skew) {
+        return values.get((int) (Math.pow(random.nextDouble(), skew) * values.size()));
+    }
+}
@@ -0,0 +1,220 @@
+package com.github.ggruzdov.ecommerce.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ggruzdov.ecommerce.request.FilterCondition;
+import com.github.ggruzdov.ecommerce.request.Pagination;
+import com.github.ggruzdov.ecommerce.request.PriceRange;
+import com.github.ggruzdov.ecommerce.request.ProductFilterSearchRequest;
+import com.github.ggruzdov.ecommerce.request.ProductFullTextSearchRequest;
+import com.github.ggruzdov.ecommerce.request.SortCriteria;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Mixed and skewed search workload over the seeded catalog: categories are picked proportionally
+ * to their amount of products, most requests ask for the first page with a couple of filters,
+ * a few ones go deep or ask for facets, see {@link Scenario}.
+ */
+class Workload {
+
+    private static final String SEARCH_PATH = "/products/search";
+    private static final String FULL_TEXT_PATH = "/products/search/full-text";
+
+    /**
+     * @param weight share of the scenario in the workload, in percent.
+     */
+    enum Scenario {
+        FILTER("filter, first page", SEARCH_PATH, 45),
+        FILTER_FACETS("filter with facets", SEARCH_PATH, 10),
+        // Parent categories have no attributes of their own, so only brand and price filters
+        FILTER_SUBTREE("filter of parent category", SEARCH_PATH, 10),
+        FILTER_DEEP_PAGE("filter, deep page", SEARCH_PATH, 5),
+        FULL_TEXT("full-text", FULL_TEXT_PATH, 30);
+
+        final String description;
+        final String path;
+        final int weight;
+
+        Scenario(String description, String path, int weight) {
+            this.description = description;
+            this.path = path;
+            this.weight = weight;
+        }
+    }
+
+    record Request(Scenario scenario, Object body) {
+    }
+
+    private record Attribute(String name, String type, List<Object> values) {
+
+        boolean isNumeric() {
+            return !"varchar".equals(type);
+        }
+    }
+
+    private final List<Integer> categoryIds;
+    private final double[] cumulativeCategoryShares;
+    private final List<Integer> parentCategoryIds;
+    private final Map<Integer, List<Attribute>> attributes;
+
+    private Workload(
+        List<Integer> categoryIds,
+        double[] cumulativeCategoryShares,
+        List<Integer> parentCategoryIds,
+        Map<Integer, List<Attribute>> attributes
+    ) {
+        this.categoryIds = categoryIds;
+        this.cumulativeCategoryShares = cumulativeCategoryShares;
+        this.parentCategoryIds = parentCategoryIds;
+        this.attributes = attributes;
+    }
+
+    static Workload load(Connection connection, ObjectMapper objectMapper) throws SQLException {
+        var counts = new LinkedHashMap<Integer, Long>();
+        try (var statement = connection.createStatement();
+             var rs = statement.executeQuery("SELECT category_id, COUNT(1) FROM products GROUP BY category_id ORDER BY category_id")) {
+            while (rs.next()) {
+                counts.put(rs.getInt(1), rs.getLong(2));
+            }
+        }
+
+        var total = counts.values().stream().mapToLong(Long::longValue).sum();
+        var cumulativeShares = new double[counts.size()];
+        double cumulative = 0;
+        int i = 0;
+        for (var count : counts.values()) {
+            cumulative += (double) count / total;
+            cumulativeShares[i++] = cumulative;
+        }
+
+        var parentIds = new ArrayList<Integer>();
+        try (var statement = connection.createStatement();
+             var rs = statement.executeQuery("SELECT DISTINCT parent_id FROM categories WHERE parent_id IS NOT NULL ORDER BY parent_id")) {
+            while (rs.next()) {
+                parentIds.add(rs.getInt(1));
+            }
+        }
+
+        var attributes = new HashMap<Integer, List<Attribute>>();
+        var sql = "SELECT category_id, name, type, values FROM attribute_definitions WHERE is_filterable ORDER BY category_id, display_order";
+        try (var statement = connection.createStatement(); var rs = statement.executeQuery(sql)) {
+            while (rs.next()) {
+                var values = objectMapper.readValue(rs.getString("values"), new TypeReference<List<Object>>() {});
+                attributes.computeIfAbsent(rs.getInt("category_id"), key -> new ArrayList<>())
+                    .add(new Attribute(rs.getString("name"), rs.getString("type"), values));
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Invalid attribute values", e);
+        }
+
+        return new Workload(List.copyOf(counts.keySet()), cumulativeShares, List.copyOf(parentIds), attributes);
+    }
+
+    Request next(Random random) {
+        var roll = random.nextInt(100);
+        for (var scenario : Scenario.values()) {
+            roll -= scenario.weight;
+            if (roll < 0) {
+                return new Request(scenario, body(scenario, random));
+            }
+        }
+
+        throw new IllegalStateException("Scenario weights must sum up to 100");
+    }
+
+    private Object body(Scenario scenario, Random random) {
+        return switch (scenario) {
+            case FILTER -> filterRequest(category(random), 1, false, random);
+            case FILTER_FACETS -> filterRequest(category(random), 1, true, random);
+            case FILTER_SUBTREE -> filterRequest(Vocabulary.pick(parentCategoryIds, random, 1), 1, false, random);
+            case FILTER_DEEP_PAGE -> filterRequest(category(random), 5 + (int) (Math.pow(random.nextDouble(), 2) * 95), false, random);
+            case FULL_TEXT -> fullTextRequest(random);
+        };
+    }
+
+    private ProductFilterSearchRequest filterRequest(Integer categoryId, int page, boolean includeFacets, Random random) {
+        var filters = new HashMap<String, FilterCondition>();
+        var categoryAttributes = attributes.getOrDefault(categoryId, List.of());
+        // 40% without filters, 40% with one and 20% with two
+        var filterCount = Math.min(categoryAttributes.size(), new int[]{0, 0, 1, 1, 2}[random.nextInt(5)]);
+        while (filters.size() < filterCount) {
+            var attribute = Vocabulary.pick(categoryAttributes, random, 1);
+            filters.put(attribute.name(), condition(attribute, random));
+        }
+
+        var brand = random.nextInt(100) < 20 ? Vocabulary.pick(Vocabulary.BRANDS, random, 2) : null;
+        PriceRange price = null;
+        if (random.nextInt(100) < 25) {
+            var min = 1000 * random.nextInt(100);
+            price = new PriceRange(min, min + 1000 * (10 + random.nextInt(200)));
+        }
+
+        var sortRoll = random.nextInt(100);
+        var sort = sortRoll < 50
+            ? new SortCriteria(SortCriteria.CREATED_AT, "desc")
+            : new SortCriteria(SortCriteria.PRICE, sortRoll < 80 ? "asc" : "desc");
+
+        return new ProductFilterSearchRequest(categoryId, brand, price, filters, sort, new Pagination(page, 20), null, includeFacets);
+    }
+
+    private static FilterCondition condition(Attribute attribute, Random random) {
+        var value = Vocabulary.pick(attribute.values(), random, 1.5);
+        if (attribute.isNumeric()) {
+            return switch (random.nextInt(4)) {
+                case 0 -> new FilterCondition("eq", value, null, null, null);
+                case 1 -> new FilterCondition("gte", value, null, null, null);
+                case 2 -> new FilterCondition("lte", value, null, null, null);
+                default -> {
+                    var other = Vocabulary.pick(attribute.values(), random, 1);
+                    var ascending = ((Number) value).doubleValue() <= ((Number) other).doubleValue();
+                    yield new FilterCondition("between", null, null, ascending ? value : other, ascending ? other : value);
+                }
+            };
+        }
+
+        var text = value.toString();
+        return switch (random.nextInt(3)) {
+            case 0 -> new FilterCondition("eq", text, null, null, null);
+            case 1 -> new FilterCondition("in", null, List.of(text, Vocabulary.pick(attribute.values(), random, 1).toString()), null, null);
+            default -> new FilterCondition("contains", text.substring(0, Math.min(text.length(), 3 + random.nextInt(3))).toLowerCase(), null, null, null);
+        };
+    }
+
+    private static ProductFullTextSearchRequest fullTextRequest(Random random) {
+        var noun = Vocabulary.pick(Vocabulary.PRODUCT_KINDS, random, 1.5).get(1);
+        var phrase = switch (random.nextInt(5)) {
+            case 0 -> Vocabulary.pick(Vocabulary.BRANDS, random, 2);
+            case 1 -> noun;
+            case 2 -> Vocabulary.pick(Vocabulary.FEATURES, random, 1.5);
+            case 3 -> Vocabulary.pick(Vocabulary.BRANDS, random, 2) + " " + noun;
+            default -> Vocabulary.pick(Vocabulary.ADJECTIVES, random, 1.5) + " " + noun;
+        };
+
+        var sortRoll = random.nextInt(100);
+        var sort = sortRoll < 60
+            ? new SortCriteria(SortCriteria.RELEVANCE, "desc")
+            : sortRoll < 80 ? new SortCriteria(SortCriteria.PRICE, "asc") : new SortCriteria(SortCriteria.CREATED_AT, "desc");
+
+        return new ProductFullTextSearchRequest(phrase, sort, new Pagination(1, 20));
+    }
+
+    private Integer category(Random random) {
+        var roll = random.nextDouble();
+        for (int i = 0; i < cumulativeCategoryShares.length; i++) {
+            if (roll < cumulativeCategoryShares[i]) {
+                return categoryIds.get(i);
+            }
+        }
+
+        return categoryIds.getLast();
+    }
+}
@@ -0,0 +1,152 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ggruzdov.ecommerce.model.AttributeDefinition;
+import com.github.ggruzdov.ecommerce.model.AttributeMetadata;
+import com.github.ggruzdov.ecommerce.model.AttributeType;
+import com.github.ggruzdov.ecommerce.model.CategoryAttributes;
+import com.github.ggruzdov.ecommerce.repository.AttributeDefinitionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory registry of category attribute definitions.
+ * <p>
+ * Definitions are loaded at startup into an immutable snapshot which is replaced as a whole
+ * once 'attribute_definitions' revision(see 'change_revisions' table) changes, so lookups never hit the DB.
+ */
+@Slf4j
+@Component
+public class AttributeDefinitionRegistry {
+
+    private static final String REVISION_QUERY = "SELECT revision FROM change_revisions WHERE name = 'attribute_definitions'";
+
+    private final AttributeDefinitionRepository attributeDefinitionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter refreshes;
+
+    private volatile Snapshot snapshot = new Snapshot(-1, Map.of());
+
+    public AttributeDefinitionRegistry(
+        AttributeDefinitionRepository attributeDefinitionRepository,
+        JdbcTemplate jdbcTemplate,
+        ObjectMapper objectMapper,
+        ApplicationEventPublisher eventPublisher,
+        MeterRegistry meterRegistry
+    ) {
+        this.attributeDefinitionRepository = attributeDefinitionRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.hits = meterRegistry.counter("attribute.registry.lookups", "result", "hit");
+        this.misses = meterRegistry.counter("attribute.registry.lookups", "result", "miss");
+        this.refreshes = meterRegistry.counter("attribute.registry.refreshes");
+        Gauge.builder("attribute.registry.categories", this, registry -> registry.snapshot.categories().size())
+            .register(meterRegistry);
+    }
+
+    /**
+     * @return attributes of the category, empty if the category does not have any.
+     */
+    public CategoryAttributes getCategoryAttributes(Integer categoryId) {
+        var attributes = snapshot.categories().get(categoryId);
+        if (attributes == null) {
+            misses.increment();
+            return CategoryAttributes.EMPTY;
+        }
+
+        hits.increment();
+        return attributes;
+    }
+
+    /**
+     * @return attributes of all categories having at least one attribute, lookups are not counted in metrics.
+     */
+    public Map<Integer, CategoryAttributes> getAllCategoryAttributes() {
+        return snapshot.categories();
+    }
+
+    @PostConstruct
+    void load() {
+        refresh();
+    }
+
+    /**
+     * Reloads definitions if they were changed since the last load.
+     * The revision is read before definitions, so a concurrent change is picked up by the next run at the latest.
+     */
+    @Scheduled(
+        initialDelayString = "${ecommerce.search.attributes.refresh-interval:5s}",
+        fixedDelayString = "${ecommerce.search.attributes.refresh-interval:5s}"
+    )
+    public synchronized void refresh() {
+        var revision = jdbcTemplate.queryForObject(REVISION_QUERY, Long.class);
+        if (revision == null || revision == snapshot.revision()) {
+            return;
+        }
+
+        var categories = attributeDefinitionRepository.findAll()
+            .stream()
+            .collect(Collectors.groupingBy(
+                definition -> definition.getCategory().getId(),
+                Collectors.collectingAndThen(
+                    Collectors.mapping(this::toMetadata, Collectors.toList()),
+                    CategoryAttributes::new
+                )
+            ));
+
+        snapshot = new Snapshot(revision, Map.copyOf(categories));
+        refreshes.increment();
+        log.info("Attribute definitions loaded: revision = {}, categories = {}", revision, categories.keySet());
+        eventPublisher.publishEvent(new AttributeDefinitionsRefreshedEvent(revision));
+    }
+
+    private AttributeMetadata toMetadata(AttributeDefinition definition) {
+        return new AttributeMetadata(
+            definition.getId(),
+            definition.getName(),
+            definition.getDisplayName(),
+            AttributeType.of(definition.getType()),
+            parseValues(definition),
+            definition.getIsOptional(),
+            definition.getIsFilterable(),
+            definition.getIsPromoted(),
+            definition.getDisplayOrder()
+        );
+    }
+
+    private List<Object> parseValues(AttributeDefinition definition) {
+        if (definition.getValues() == null) {
+            return List.of();
+        }
+
+        try {
+            return List.copyOf(objectMapper.readValue(definition.getValues(), new TypeReference<List<Object>>() {}));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Invalid values of attribute definition: " + definition.getId(), e);
+        }
+    }
+
+    private record Snapshot(
+        long revision,
+        Map<Integer, CategoryAttributes> categories
+    ) {
+    }
+}
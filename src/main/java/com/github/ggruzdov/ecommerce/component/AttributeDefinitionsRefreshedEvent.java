@@ -0,0 +1,9 @@
+package com.github.ggruzdov.ecommerce.component;
+
+/**
+ * Published by {@link AttributeDefinitionRegistry} once a new definitions snapshot is loaded.
+ */
+public record AttributeDefinitionsRefreshedEvent(
+    long revision
+) {
+}
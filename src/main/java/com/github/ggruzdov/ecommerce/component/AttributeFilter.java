@@ -0,0 +1,128 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import com.github.ggruzdov.ecommerce.model.AttributeMetadata;
+import com.github.ggruzdov.ecommerce.request.FilterCondition;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Typed filter by a single attribute parsed from {@link FilterCondition}.
+ * Values are coerced to the attribute type(see {@link com.github.ggruzdov.ecommerce.model.AttributeType#coerce(Object)}),
+ * i.e. they are BigDecimal for numeric attributes and String otherwise.
+ */
+public sealed interface AttributeFilter {
+
+    AttributeMetadata attribute();
+
+    FilterOperator operator();
+
+    /**
+     * 'eq' and 'ne' filters, applicable to any attribute type.
+     */
+    record Equality(AttributeMetadata attribute, FilterOperator operator, Object value) implements AttributeFilter {
+    }
+
+    /**
+     * 'gt', 'lt', 'gte' and 'lte' filters of numeric attributes.
+     */
+    record Range(AttributeMetadata attribute, FilterOperator operator, BigDecimal value) implements AttributeFilter {
+    }
+
+    /**
+     * @param from lower bound, inclusive, not greater than the upper one.
+     * @param to   upper bound, inclusive.
+     */
+    record Between(AttributeMetadata attribute, BigDecimal from, BigDecimal to) implements AttributeFilter {
+
+        @Override
+        public FilterOperator operator() {
+            return FilterOperator.BETWEEN;
+        }
+    }
+
+    /**
+     * @param values distinct values, at least one.
+     */
+    record In(AttributeMetadata attribute, List<Object> values) implements AttributeFilter {
+
+        @Override
+        public FilterOperator operator() {
+            return FilterOperator.IN;
+        }
+    }
+
+    /**
+     * Case-insensitive substring filter of varchar attributes.
+     */
+    record Contains(AttributeMetadata attribute, String value) implements AttributeFilter {
+
+        @Override
+        public FilterOperator operator() {
+            return FilterOperator.CONTAINS;
+        }
+    }
+
+    /**
+     * Resolves the operator and checks that it is applicable to the attribute type
+     * and that the condition has all the values the operator needs.
+     *
+     * @throws InvalidFilterException describing the first problem of the condition.
+     */
+    static AttributeFilter of(AttributeMetadata attribute, FilterCondition condition) {
+        if (condition.operator() == null) {
+            throw new InvalidFilterException("Invalid filter of attribute '" + attribute.name() + "': 'operator' is required");
+        }
+
+        FilterOperator operator;
+        try {
+            operator = FilterOperator.of(condition.operator());
+        } catch (InvalidFilterException e) {
+            throw new InvalidFilterException("Invalid filter of attribute '" + attribute.name() + "': " + e.getMessage(), e);
+        }
+
+        if (!operator.isApplicableTo(attribute.type())) {
+            throw invalid(attribute, operator, "operator is not applicable to " + attribute.type().name().toLowerCase() + " attribute");
+        }
+
+        return switch (operator) {
+            case EQ, NE -> new Equality(attribute, operator, value(attribute, operator, condition.value(), "value"));
+            case GT, LT, GTE, LTE -> new Range(attribute, operator, (BigDecimal) value(attribute, operator, condition.value(), "value"));
+            case BETWEEN -> {
+                var from = (BigDecimal) value(attribute, operator, condition.fromValue(), "fromValue");
+                var to = (BigDecimal) value(attribute, operator, condition.toValue(), "toValue");
+                if (from.compareTo(to) > 0) {
+                    throw invalid(attribute, operator, "'fromValue' " + from + " is greater than 'toValue' " + to);
+                }
+                yield new Between(attribute, from, to);
+            }
+            case IN -> {
+                if (condition.values() == null || condition.values().isEmpty()) {
+                    throw invalid(attribute, operator, "'values' must not be empty");
+                }
+                yield new In(attribute, condition.values().stream().map(value -> value(attribute, operator, value, "values")).distinct().toList());
+            }
+            case CONTAINS -> new Contains(attribute, (String) value(attribute, operator, condition.value(), "value"));
+        };
+    }
+
+    private static Object value(AttributeMetadata attribute, FilterOperator operator, Object value, String field) {
+        if (value == null) {
+            throw invalid(attribute, operator, "'" + field + "' is required");
+        }
+
+        try {
+            return attribute.type().coerce(value);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidFilterException(message(attribute, operator, e.getMessage()), e);
+        }
+    }
+
+    private static InvalidFilterException invalid(AttributeMetadata attribute, FilterOperator operator, String problem) {
+        return new InvalidFilterException(message(attribute, operator, problem));
+    }
+
+    private static String message(AttributeMetadata attribute, FilterOperator operator, String problem) {
+        return "Invalid '" + operator.code() + "' filter of attribute '" + attribute.name() + "': " + problem;
+    }
+}
@@ -0,0 +1,196 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import com.github.ggruzdov.ecommerce.config.SearchProperties;
+import com.github.ggruzdov.ecommerce.model.AttributeMetadata;
+import lombok.extern.slf4j.Slf4j;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Maintains indexes of filterable attributes(see 'attribute_definitions.is_filterable'), one per attribute:
+ * <ul>
+ *   <li>numeric types - B-tree expression index serving range operators(gt, gte, lt, lte, between);</li>
+ *   <li>varchar type - trigram GIN index serving 'contains' operator.</li>
+ * </ul>
+ * Both are built on the partition of the attribute category(see {@link ProductPartitions}). 'eq' and 'in' operators
+ * are served by the common 'idx_product_attributes' jsonb_path_ops index, see V1.07 migration.
+ * Numeric promoted attributes do not need them, as they are filtered by typed columns, see {@link PromotedAttributeManager}.
+ * <p>
+ * Indexes are built concurrently, so writes are not blocked, which is possible for a partition but not for the whole
+ * partitioned table. Indexes of attributes which are not filterable anymore as well as invalid ones(e.g. left by a failed build) are dropped.
+ * <p>
+ * Builds of a large catalog take long, so they run in the background rather than on startup, and only by one instance at a time:
+ * the instance holding the advisory lock syncs indexes, others retry every 'ecommerce.search.attribute-indexes.lock-retry-interval'
+ * and find them built. Search queries do not depend on the indexes, they are just slower until the indexes are built.
+ */
+@Slf4j
+@Component
+public class AttributeIndexManager {
+
+    private static final String INDEX_PREFIX = "idx_product_attr_";
+    private static final Pattern MANAGED_INDEX_NAME = Pattern.compile(INDEX_PREFIX + "\\d+_(num|trgm)");
+    private static final String EXISTING_INDEXES_QUERY = """
+        SELECT i.relname, x.indisvalid
+        FROM pg_index x
+        JOIN pg_class i ON i.oid = x.indexrelid
+        JOIN pg_inherits p ON p.inhrelid = x.indrelid
+        WHERE p.inhparent = 'products'::regclass
+        """;
+    // Session level lock, it is released explicitly or once the connection is closed, e.g. the instance is gone
+    private static final String TRY_LOCK_QUERY = "SELECT pg_try_advisory_lock(hashtext('attribute_indexes'))";
+    private static final String UNLOCK_QUERY = "SELECT pg_advisory_unlock(hashtext('attribute_indexes'))";
+
+    private final AttributeDefinitionRegistry attributeDefinitionRegistry;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final Duration lockRetryInterval;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofVirtual().name("attribute-indexes").factory()
+    );
+
+    private volatile CompletableFuture<Void> lastSync = CompletableFuture.completedFuture(null);
+
+    public AttributeIndexManager(
+        AttributeDefinitionRegistry attributeDefinitionRegistry,
+        JdbcTemplate jdbcTemplate,
+        SearchProperties searchProperties
+    ) {
+        this.attributeDefinitionRegistry = attributeDefinitionRegistry;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = searchProperties.attributeIndexes().enabled();
+        this.lockRetryInterval = searchProperties.attributeIndexes().lockRetryInterval();
+    }
+
+    /**
+     * Syncs indexes in the background, syncs are run one by one.
+     */
+    @EventListener({ApplicationReadyEvent.class, AttributeDefinitionsRefreshedEvent.class})
+    public void scheduleSync() {
+        if (!enabled) {
+            return;
+        }
+
+        var sync = new CompletableFuture<Void>();
+        lastSync = sync;
+        executor.execute(() -> trySync(sync));
+    }
+
+    /**
+     * @return the last scheduled sync, completed once this or another instance has synced indexes.
+     */
+    public CompletableFuture<Void> lastSync() {
+        return lastSync;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // An interrupted build leaves an invalid index, which is dropped by the next sync
+        executor.shutdownNow();
+    }
+
+    private void trySync(CompletableFuture<Void> sync) {
+        try {
+            if (Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) this::syncIndexesLocked))) {
+                sync.complete(null);
+            } else {
+                log.info("Attribute indexes are synced by another instance, retry in {}", lockRetryInterval);
+                executor.schedule(() -> trySync(sync), lockRetryInterval.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        } catch (RuntimeException e) {
+            // E.g. the database is unavailable, the next definitions refresh schedules another sync
+            log.error("Attribute indexes are not synced", e);
+            sync.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * DDL goes through the connection holding the lock, it is not in a transaction, as concurrent builds cannot be.
+     *
+     * @return whether the lock is acquired and indexes are synced.
+     */
+    private boolean syncIndexesLocked(Connection connection) {
+        var lockedJdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+        if (!Boolean.TRUE.equals(lockedJdbcTemplate.queryForObject(TRY_LOCK_QUERY, Boolean.class))) {
+            return false;
+        }
+
+        try {
+            syncIndexes(lockedJdbcTemplate);
+        } finally {
+            lockedJdbcTemplate.queryForObject(UNLOCK_QUERY, Boolean.class);
+        }
+        return true;
+    }
+
+    private void syncIndexes(JdbcTemplate jdbcTemplate) {
+        var requiredIndexes = new HashMap<String, String>();
+        attributeDefinitionRegistry.getAllCategoryAttributes().forEach((categoryId, attributes) ->
+            attributes.list()
+                .stream()
+                .filter(attribute -> attribute.filterable() && !(attribute.promoted() && attribute.type().isNumeric()))
+                .forEach(attribute -> requiredIndexes.put(indexName(attribute), indexDefinition(categoryId, attribute)))
+        );
+
+        var existingIndexes = new HashMap<String, Boolean>();
+        jdbcTemplate.query(EXISTING_INDEXES_QUERY, rs -> {
+            var name = rs.getString("relname");
+            if (MANAGED_INDEX_NAME.matcher(name).matches()) {
+                existingIndexes.put(name, rs.getBoolean("indisvalid"));
+            }
+        });
+
+        for (var index : existingIndexes.entrySet()) {
+            if (!index.getValue() || !requiredIndexes.containsKey(index.getKey())) {
+                execute(jdbcTemplate, "DROP INDEX CONCURRENTLY IF EXISTS " + index.getKey());
+                index.setValue(false);
+            }
+        }
+
+        requiredIndexes.forEach((name, definition) -> {
+            if (!existingIndexes.getOrDefault(name, false)) {
+                execute(jdbcTemplate, "CREATE INDEX CONCURRENTLY " + name + " ON " + definition);
+            }
+        });
+    }
+
+    static String indexName(AttributeMetadata attribute) {
+        return INDEX_PREFIX + attribute.id() + (attribute.type().isNumeric() ? "_num" : "_trgm");
+    }
+
+    /**
+     * Index expressions must be the same as the ones used by search queries, e.g.
+     * (p.attributes->>'RAM')::NUMERIC >= 16 or (p.attributes->>'processor') ILIKE '%intel%'.
+     */
+    private static String indexDefinition(Integer categoryId, AttributeMetadata attribute) {
+        var value = "(attributes->>'" + attribute.name().replace("'", "''") + "')";
+        var partition = ProductPartitions.partitionName(categoryId);
+        if (attribute.type().isNumeric()) {
+            return partition + " ((" + value + "::NUMERIC))";
+        }
+        return partition + " USING gin (" + value + " gin_trgm_ops)";
+    }
+
+    private static void execute(JdbcTemplate jdbcTemplate, String ddl) {
+        try {
+            log.info("Attribute index: {}", ddl);
+            jdbcTemplate.execute(ddl);
+        } catch (RuntimeException e) {
+            // E.g. a value which cannot be cast to numeric, the invalid index is dropped on the next sync
+            log.error("Attribute index DDL failed: {}", ddl, e);
+        }
+    }
+}
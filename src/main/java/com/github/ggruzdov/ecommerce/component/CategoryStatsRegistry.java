@@ -0,0 +1,82 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import com.github.ggruzdov.ecommerce.model.CategoryStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory copy of per category aggregates maintained by products triggers(see V1.12 migration).
+ * <p>
+ * Unlike {@link CategoryTree} the snapshot is reloaded every 'ecommerce.search.category-stats.refresh-interval'
+ * without a revision check: products change all the time, and a revision row bumped by every products statement
+ * would serialize concurrent writers, while the aggregate tables are small, i.e. a row per category and per attribute value.
+ */
+@Slf4j
+@Component
+public class CategoryStatsRegistry {
+
+    private static final String CATEGORY_STATS_QUERY = "SELECT category_id, products, min_price, max_price FROM category_stats";
+    private static final String ATTRIBUTE_STATS_QUERY = "SELECT category_id, attribute, value, products FROM category_attribute_stats";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Map<Integer, CategoryStats> snapshot = Map.of();
+
+    public CategoryStatsRegistry(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        Gauge.builder("category.stats.categories", this, registry -> registry.snapshot.size())
+            .register(meterRegistry);
+    }
+
+    /**
+     * @return aggregates of the category itself(not its subtree), empty if the category does not have products.
+     */
+    public CategoryStats getCategoryStats(Integer categoryId) {
+        return snapshot.getOrDefault(categoryId, CategoryStats.EMPTY);
+    }
+
+    @PostConstruct
+    void load() {
+        refresh();
+    }
+
+    /**
+     * Both tables are read by separate queries, so a concurrent change might be seen partially until the next run.
+     */
+    @Scheduled(
+        initialDelayString = "${ecommerce.search.category-stats.refresh-interval:5s}",
+        fixedDelayString = "${ecommerce.search.category-stats.refresh-interval:5s}"
+    )
+    public synchronized void refresh() {
+        var attributeValues = new HashMap<Integer, Map<String, Map<String, Long>>>();
+        jdbcTemplate.query(ATTRIBUTE_STATS_QUERY, rs -> {
+            attributeValues.computeIfAbsent(rs.getInt("category_id"), key -> new HashMap<>())
+                .computeIfAbsent(rs.getString("attribute"), key -> new HashMap<>())
+                .put(rs.getString("value"), rs.getLong("products"));
+        });
+
+        var categories = new HashMap<Integer, CategoryStats>();
+        jdbcTemplate.query(CATEGORY_STATS_QUERY, rs -> {
+            int categoryId = rs.getInt("category_id");
+            var values = new HashMap<String, Map<String, Long>>();
+            attributeValues.getOrDefault(categoryId, Map.of()).forEach((attribute, counts) -> values.put(attribute, Map.copyOf(counts)));
+            categories.put(categoryId, new CategoryStats(
+                rs.getLong("products"),
+                rs.getObject("min_price", Integer.class),
+                rs.getObject("max_price", Integer.class),
+                Map.copyOf(values)
+            ));
+        });
+
+        snapshot = Map.copyOf(categories);
+        log.debug("Category stats loaded: categories = {}", categories.size());
+    }
+}
@@ -0,0 +1,144 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory category tree with precomputed subtrees, so subtree search does not run a recursive query per request.
+ * <p>
+ * The tree is loaded at startup into an immutable snapshot which is replaced as a whole
+ * once 'categories' revision(see 'change_revisions' table) changes, the same way as {@link AttributeDefinitionRegistry}.
+ */
+@Slf4j
+@Component
+public class CategoryTree {
+
+    private static final String REVISION_QUERY = "SELECT revision FROM change_revisions WHERE name = 'categories'";
+    private static final String CATEGORIES_QUERY = "SELECT id, parent_id FROM categories";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private volatile Snapshot snapshot = new Snapshot(-1, Map.of(), Map.of());
+
+    public CategoryTree(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        Gauge.builder("category.tree.categories", this, tree -> tree.snapshot.subtrees().size())
+            .register(meterRegistry);
+    }
+
+    /**
+     * @return ids of the category and all its descendants in ascending order,
+     *         only the category itself if it is unknown.
+     */
+    public List<Integer> getSubtree(Integer categoryId) {
+        return snapshot.subtrees().getOrDefault(categoryId, List.of(categoryId));
+    }
+
+    /**
+     * @return revision of the loaded tree, -1 before the first load.
+     */
+    public long getRevision() {
+        return snapshot.revision();
+    }
+
+    /**
+     * @return the categories together with all their ancestors.
+     */
+    public Set<Integer> withAncestors(Set<Integer> categoryIds) {
+        var parents = snapshot.parents();
+        var result = new HashSet<Integer>();
+        for (var categoryId : categoryIds) {
+            // Stops at an already visited category, so shared ancestors are walked once
+            var id = categoryId;
+            while (id != null && result.add(id)) {
+                id = parents.get(id);
+            }
+        }
+
+        return Set.copyOf(result);
+    }
+
+    @PostConstruct
+    void load() {
+        refresh();
+    }
+
+    /**
+     * Reloads the tree if categories were changed since the last load.
+     * The revision is read before categories, so a concurrent change is picked up by the next run at the latest.
+     */
+    @Scheduled(
+        initialDelayString = "${ecommerce.search.categories.refresh-interval:5s}",
+        fixedDelayString = "${ecommerce.search.categories.refresh-interval:5s}"
+    )
+    public synchronized void refresh() {
+        var revision = jdbcTemplate.queryForObject(REVISION_QUERY, Long.class);
+        if (revision == null || revision == snapshot.revision()) {
+            return;
+        }
+
+        var parents = new HashMap<Integer, Integer>();
+        var children = new HashMap<Integer, List<Integer>>();
+        jdbcTemplate.query(CATEGORIES_QUERY, rs -> {
+            int id = rs.getInt("id");
+            var parentId = rs.getObject("parent_id", Integer.class);
+            parents.put(id, parentId);
+            children.computeIfAbsent(id, key -> new ArrayList<>());
+            if (parentId != null) {
+                children.computeIfAbsent(parentId, key -> new ArrayList<>()).add(id);
+            }
+        });
+
+        var subtrees = new HashMap<Integer, List<Integer>>();
+        parents.keySet().forEach(id -> subtrees.put(id, subtree(id, children)));
+
+        // Not Map.copyOf, as root categories have null parents
+        snapshot = new Snapshot(revision, Map.copyOf(subtrees), Collections.unmodifiableMap(parents));
+        log.info("Category tree loaded: revision = {}, categories = {}", revision, subtrees.size());
+        eventPublisher.publishEvent(new CategoryTreeRefreshedEvent(revision));
+    }
+
+    private static List<Integer> subtree(Integer categoryId, Map<Integer, List<Integer>> children) {
+        var subtree = new ArrayList<Integer>();
+        var visited = new HashSet<Integer>();
+        var stack = new ArrayList<>(List.of(categoryId));
+        while (!stack.isEmpty()) {
+            var id = stack.removeLast();
+            // Guards against cycles, which are not prevented by the schema
+            if (visited.add(id)) {
+                subtree.add(id);
+                stack.addAll(children.getOrDefault(id, List.of()));
+            }
+        }
+        subtree.sort(null);
+
+        return List.copyOf(subtree);
+    }
+
+    /**
+     * @param subtrees subtree of every category including the category itself.
+     * @param parents  parent of every category, null for root ones.
+     */
+    private record Snapshot(
+        long revision,
+        Map<Integer, List<Integer>> subtrees,
+        Map<Integer, Integer> parents
+    ) {
+    }
+}
@@ -0,0 +1,9 @@
+package com.github.ggruzdov.ecommerce.component;
+
+/**
+ * Published by {@link CategoryTree} once a new tree snapshot is loaded.
+ */
+public record CategoryTreeRefreshedEvent(
+    long revision
+) {
+}
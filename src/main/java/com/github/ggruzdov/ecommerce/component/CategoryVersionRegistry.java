@@ -0,0 +1,130 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import com.github.ggruzdov.ecommerce.config.ReadReplicaProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory copy of per category catalog versions bumped by products triggers(see V1.15 migration),
+ * so versions of search results are known without SQL.
+ * <p>
+ * Like {@link CategoryStatsRegistry} the snapshot is reloaded every 'ecommerce.search.category-versions.refresh-interval',
+ * and right away once products are changed by this instance. The version of a subtree is the sum of its category versions,
+ * so it changes whenever any of them does regardless of the order concurrent changes are seen in, and it is prefixed
+ * by the tree revision, as a moved category changes subtrees of its ancestors.
+ * <p>
+ * Searches might read a replica or {@link ProductBitmapEngine} index, both lag behind the primary the versions are read from.
+ * So a reloaded snapshot is applied once it is 'max-lag' old with 'ecommerce.read-replicas' enabled, and once the bitmap index
+ * reflects changes committed before the snapshot was read(see {@link ProductBitmapEngine#reflects(long)}). This way a version
+ * is never newer than results of searches started after it was applied.
+ */
+@Slf4j
+@Component
+public class CategoryVersionRegistry {
+
+    private static final String VERSIONS_QUERY = "SELECT category_id, version FROM category_versions";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CategoryTree categoryTree;
+    private final ProductBitmapEngine productBitmapEngine;
+    private final Duration delay;
+    private final Deque<Pending> pending = new ArrayDeque<>();
+
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), 0);
+
+    public CategoryVersionRegistry(
+        JdbcTemplate jdbcTemplate,
+        CategoryTree categoryTree,
+        ProductBitmapEngine productBitmapEngine,
+        ReadReplicaProperties readReplicaProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.categoryTree = categoryTree;
+        this.productBitmapEngine = productBitmapEngine;
+        this.delay = readReplicaProperties.enabled() ? readReplicaProperties.maxLag() : Duration.ZERO;
+        Gauge.builder("category.versions.categories", this, registry -> registry.snapshot.versions().size())
+            .register(meterRegistry);
+    }
+
+    /**
+     * @return version of products of the category subtree.
+     */
+    public String getVersion(Integer categoryId) {
+        var versions = snapshot.versions();
+        long sum = 0;
+        for (var id : categoryTree.getSubtree(categoryId)) {
+            sum += versions.getOrDefault(id, 0L);
+        }
+
+        return categoryTree.getRevision() + "." + sum;
+    }
+
+    /**
+     * @return version of all products, i.e. of full-text search results.
+     */
+    public String getCatalogVersion() {
+        return categoryTree.getRevision() + "." + snapshot.total();
+    }
+
+    @PostConstruct
+    void load() {
+        refresh();
+    }
+
+    @EventListener
+    public void onProductsChanged(ProductsChangedEvent event) {
+        refresh();
+    }
+
+    @Scheduled(
+        initialDelayString = "${ecommerce.search.category-versions.refresh-interval:1s}",
+        fixedDelayString = "${ecommerce.search.category-versions.refresh-interval:1s}"
+    )
+    public synchronized void refresh() {
+        var versions = new HashMap<Integer, Long>();
+        jdbcTemplate.query(VERSIONS_QUERY, rs -> {
+            versions.put(rs.getInt("category_id"), rs.getLong("version"));
+        });
+        long total = versions.values().stream().mapToLong(Long::longValue).sum();
+
+        // Taken after the query, so changes seen by it are committed before the moment
+        long now = System.nanoTime();
+        pending.addLast(new Pending(now, new Snapshot(Map.copyOf(versions), total)));
+        while (!pending.isEmpty() && isApplicable(pending.peekFirst(), now)) {
+            snapshot = pending.pollFirst().snapshot();
+        }
+        log.debug("Category versions loaded: categories = {}, total = {}", versions.size(), total);
+    }
+
+    private boolean isApplicable(Pending snapshot, long now) {
+        return now - snapshot.loadedAt() >= delay.toNanos() && productBitmapEngine.reflects(snapshot.loadedAt());
+    }
+
+    /**
+     * @param total sum of all versions.
+     */
+    private record Snapshot(
+        Map<Integer, Long> versions,
+        long total
+    ) {
+    }
+
+    private record Pending(
+        long loadedAt,
+        Snapshot snapshot
+    ) {
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import com.github.ggruzdov.ecommerce.model.AttributeType;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Operator of attribute filter, see {@link AttributeFilter}.
+ */
+public enum FilterOperator {
+    EQ("eq", "="),
+    NE("ne", "!="),
+    GT("gt", ">"),
+    LT("lt", "<"),
+    GTE("gte", ">="),
+    LTE("lte", "<="),
+    CONTAINS("contains", null),
+    IN("in", null),
+    BETWEEN("between", null);
+
+    private static final Map<String, FilterOperator> BY_CODE = Arrays.stream(values())
+        .collect(Collectors.toUnmodifiableMap(FilterOperator::code, Function.identity()));
+
+    private final String code;
+    private final String sign;
+
+    FilterOperator(String code, String sign) {
+        this.code = code;
+        this.sign = sign;
+    }
+
+    /**
+     * @return operator name used by search requests, e.g. 'gte'.
+     */
+    public String code() {
+        return code;
+    }
+
+    /**
+     * @return SQL comparison sign, e.g. '>=', null for 'contains', 'in' and 'between'.
+     */
+    public String sign() {
+        return sign;
+    }
+
+    public boolean isApplicableTo(AttributeType type) {
+        return switch (this) {
+            case GT, LT, GTE, LTE, BETWEEN -> type.isNumeric();
+            // ILIKE over textual representation of a number is not a meaningful filter
+            case CONTAINS -> !type.isNumeric();
+            case EQ, NE, IN -> true;
+        };
+    }
+
+    public static FilterOperator of(String code) {
+        var operator = BY_CODE.get(code);
+        if (operator == null) {
+            throw new InvalidFilterException("Unknown operator '" + code + "', expected one of " + BY_CODE.keySet().stream().sorted().toList());
+        }
+
+        return operator;
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import com.github.ggruzdov.ecommerce.model.CategoryAttributes;
+import com.github.ggruzdov.ecommerce.request.ProductFilterSearchRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Validated and typed filters of {@link ProductFilterSearchRequest}, the filter query SQL and its parameters
+ * are generated from it, see {@link com.github.ggruzdov.ecommerce.service.ProductSearchService}.
+ *
+ * @param brand      brand filter, null if absent.
+ * @param minPrice   lower price bound in cents, null if absent.
+ * @param maxPrice   upper price bound in cents, null if absent.
+ * @param attributes attribute filters sorted by attribute name, so the same filter set always produces the same plan.
+ */
+public record FilterPlan(
+    String brand,
+    Integer minPrice,
+    Integer maxPrice,
+    List<AttributeFilter> attributes
+) {
+
+    /**
+     * @param categoryAttributes attributes the request category can be filtered by.
+     * @throws InvalidFilterException describing the first problem of the filters.
+     */
+    public static FilterPlan of(ProductFilterSearchRequest request, CategoryAttributes categoryAttributes) {
+        var price = request.price();
+        var minPrice = price == null ? null : price.min();
+        var maxPrice = price == null ? null : price.max();
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            throw new InvalidFilterException("Invalid price range: min " + minPrice + " is greater than max " + maxPrice);
+        }
+
+        var attributes = new ArrayList<AttributeFilter>(request.filters().size());
+        new TreeMap<>(request.filters()).forEach((name, condition) -> {
+            var attribute = categoryAttributes.get(name);
+            if (attribute == null) {
+                throw new InvalidFilterException("Unknown attribute '" + name + "' of category " + request.categoryId());
+            }
+            if (condition == null) {
+                throw new InvalidFilterException("Invalid filter of attribute '" + name + "': condition is required");
+            }
+
+            attributes.add(AttributeFilter.of(attribute, condition));
+        });
+
+        return new FilterPlan(request.brand(), minPrice, maxPrice, List.copyOf(attributes));
+    }
+}
@@ -0,0 +1,15 @@
+package com.github.ggruzdov.ecommerce.component;
+
+/**
+ * Thrown when a search filter cannot be applied to the category attributes, see {@link FilterPlan}.
+ */
+public class InvalidFilterException extends IllegalArgumentException {
+
+    public InvalidFilterException(String message) {
+        super(message);
+    }
+
+    public InvalidFilterException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
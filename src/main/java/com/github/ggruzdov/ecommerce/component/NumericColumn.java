@@ -0,0 +1,233 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable column of numeric values of products kept in primitive arrays sorted by (value, product id),
+ * so a range filter is two binary searches and sorting by the value is a walk over the arrays.
+ * Products without the value are not in the column.
+ * <p>
+ * Rewriting the arrays on every change would cost O(n) per change batch, so changes are kept aside:
+ * ids of changed products mask their base entries and their current values go to a small overlay column.
+ * Once the changes reach 1/{@value #COMPACTION_RATIO} of the base, both are merged into a new base.
+ */
+final class NumericColumn {
+
+    private static final RoaringBitmap NO_CHANGES = new RoaringBitmap();
+    private static final int COMPACTION_RATIO = 16;
+
+    static final NumericColumn EMPTY = new NumericColumn(new double[0], new int[0]);
+
+    private final double[] values;
+    private final int[] ids;
+    // Ids of products whose base entries are outdated
+    private final RoaringBitmap removed;
+    // Current values of changed products, null if there are no changes
+    private final NumericColumn overlay;
+
+    private NumericColumn(double[] values, int[] ids, RoaringBitmap removed, NumericColumn overlay) {
+        this.values = values;
+        this.ids = ids;
+        this.removed = removed;
+        this.overlay = overlay;
+    }
+
+    private NumericColumn(double[] values, int[] ids) {
+        this(values, ids, NO_CHANGES, null);
+    }
+
+    /**
+     * Appends values of products and sorts them once all are appended.
+     */
+    static final class Builder {
+
+        private double[] values = new double[16];
+        private int[] ids = new int[16];
+        private int size;
+
+        void add(int id, double value) {
+            if (size == ids.length) {
+                values = Arrays.copyOf(values, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            values[size] = value;
+            ids[size] = id;
+            size++;
+        }
+
+        /**
+         * Values are replaced by their ranks among distinct values, so (rank, id) pairs fit into longs
+         * and are sorted by the primitive sort rather than by a comparator of boxed indexes.
+         */
+        NumericColumn build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+
+            var distinct = Arrays.copyOf(values, size);
+            Arrays.sort(distinct);
+            int distinctSize = 0;
+            for (int i = 0; i < size; i++) {
+                if (i == 0 || Double.compare(distinct[i], distinct[distinctSize - 1]) != 0) {
+                    distinct[distinctSize++] = distinct[i];
+                }
+            }
+
+            var keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                long rank = Arrays.binarySearch(distinct, 0, distinctSize, values[i]);
+                keys[i] = rank << 32 | Integer.toUnsignedLong(ids[i]);
+            }
+            Arrays.sort(keys);
+
+            var sortedValues = new double[size];
+            var sortedIds = new int[size];
+            for (int i = 0; i < size; i++) {
+                sortedValues[i] = distinct[(int) (keys[i] >>> 32)];
+                sortedIds[i] = (int) keys[i];
+            }
+
+            return new NumericColumn(sortedValues, sortedIds);
+        }
+    }
+
+    /**
+     * @return amount of entries including outdated ones.
+     */
+    int size() {
+        return ids.length + (overlay == null ? 0 : overlay.size());
+    }
+
+    /**
+     * @param changed ids of changed products, their previous values are dropped.
+     * @param added   current values of changed products, built by {@link Builder}.
+     * @return a new column sharing the base arrays with this one unless it is compacted.
+     */
+    NumericColumn update(RoaringBitmap changed, NumericColumn added) {
+        var nextRemoved = RoaringBitmap.or(removed, changed);
+        var nextOverlay = overlay == null ? added : overlay.merge(changed, added);
+        if ((nextRemoved.getLongCardinality() + nextOverlay.ids.length) * COMPACTION_RATIO <= ids.length) {
+            return new NumericColumn(values, ids, nextRemoved, nextOverlay);
+        }
+
+        return new NumericColumn(values, ids).merge(nextRemoved, nextOverlay);
+    }
+
+    /**
+     * Merges a column without changes with another one in a single pass over both,
+     * entries of the removed ids are skipped.
+     */
+    private NumericColumn merge(RoaringBitmap removed, NumericColumn added) {
+        var mergedValues = new double[ids.length + added.ids.length];
+        var mergedIds = new int[mergedValues.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < ids.length || j < added.ids.length) {
+            boolean takeAdded = i == ids.length
+                || j < added.ids.length && compare(added.values[j], added.ids[j], values[i], ids[i]) < 0;
+            if (takeAdded) {
+                mergedValues[size] = added.values[j];
+                mergedIds[size++] = added.ids[j++];
+            } else if (removed.contains(ids[i])) {
+                i++;
+            } else {
+                mergedValues[size] = values[i];
+                mergedIds[size++] = ids[i++];
+            }
+        }
+
+        return new NumericColumn(Arrays.copyOf(mergedValues, size), Arrays.copyOf(mergedIds, size));
+    }
+
+    /**
+     * @param from lower bound, null if unbounded.
+     * @param to   upper bound, null if unbounded.
+     * @return ids of products having a value in the range.
+     */
+    RoaringBitmap range(Double from, boolean fromInclusive, Double to, boolean toInclusive) {
+        int start = from == null ? 0 : fromInclusive ? firstIndexOf(from, false) : firstIndexOf(from, true);
+        int end = to == null ? ids.length : toInclusive ? firstIndexOf(to, true) : firstIndexOf(to, false);
+
+        var result = new RoaringBitmap();
+        if (start < end) {
+            result.addN(ids, start, end - start);
+        }
+        if (overlay != null) {
+            result.andNot(removed);
+            result.or(overlay.range(from, fromInclusive, to, toInclusive));
+        }
+        return result;
+    }
+
+    /**
+     * Ids of matching products ordered by (value, id) or the reverse, which is the order of
+     * 'ORDER BY value asc, id asc'(or 'desc, desc') of the filter query.
+     * The walk stops as soon as the page is collected or all matching products are seen.
+     */
+    List<Integer> page(RoaringBitmap matches, boolean descending, int offset, int limit) {
+        var changes = overlay == null ? EMPTY : overlay;
+        long remaining = matches.getLongCardinality();
+        var page = new ArrayList<Integer>(limit);
+        int skipped = 0;
+        int i = 0;
+        int j = 0;
+        while ((i < ids.length || j < changes.ids.length) && remaining > 0 && page.size() < limit) {
+            // Base and overlay are walked together as a single sorted column
+            int base = descending ? ids.length - 1 - i : i;
+            int changed = descending ? changes.ids.length - 1 - j : j;
+            boolean takeChanged = i == ids.length || j < changes.ids.length
+                && compare(changes.values[changed], changes.ids[changed], values[base], ids[base]) * (descending ? -1 : 1) < 0;
+            int id;
+            if (takeChanged) {
+                id = changes.ids[changed];
+                j++;
+            } else {
+                id = ids[base];
+                i++;
+                if (overlay != null && removed.contains(id)) {
+                    continue;
+                }
+            }
+            if (!matches.contains(id)) {
+                continue;
+            }
+
+            remaining--;
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                page.add(id);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * @param after whether to skip values equal to the given one.
+     * @return index of the first value greater than or equal to(or greater than if 'after') the given one.
+     */
+    private int firstIndexOf(double value, boolean after) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = Double.compare(values[middle], value);
+            if (comparison < 0 || after && comparison == 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int compare(double value, int id, double otherValue, int otherId) {
+        int comparison = Double.compare(value, otherValue);
+        return comparison != 0 ? comparison : Integer.compare(id, otherId);
+    }
+}
@@ -0,0 +1,234 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ggruzdov.ecommerce.config.SearchProperties;
+import com.github.ggruzdov.ecommerce.request.SortCriteria;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps {@link ProductBitmapIndex} of all products in memory and up to date, so offset filter search
+ * is answered without SQL, see {@link com.github.ggruzdov.ecommerce.service.ProductSearchService}.
+ * Enabled by 'ecommerce.search.bitmap-engine.enabled'.
+ * <p>
+ * The index is loaded by the first poll and then follows 'product_changes' change feed(see V1.13 migration)
+ * every 'ecommerce.search.bitmap-engine.poll-interval': changed products are read by ids and replace their previous state
+ * in a new index snapshot. Each poll remembers the oldest transaction still running(snapshot xmin), the next one reads
+ * changes of that transaction and later ones, so changes committed out of order are not missed. Until the index is loaded,
+ * or if it has not caught up for 'ecommerce.search.bitmap-engine.max-lag'(e.g. the database is unavailable),
+ * it is not warm and search falls back to SQL.
+ */
+@Slf4j
+@Component
+public class ProductBitmapEngine {
+
+    private static final String XMIN_QUERY = "SELECT pg_snapshot_xmin(pg_current_snapshot())::TEXT";
+    private static final String CHANGES_QUERY = "SELECT DISTINCT product_id FROM product_changes WHERE xid >= cast(? as xid8)";
+    private static final String PRODUCTS_QUERY = "SELECT id, category_id, brand, price, created_at, attributes FROM products";
+    private static final String CHANGED_PRODUCTS_QUERY = PRODUCTS_QUERY + " WHERE id = ANY(cast(? as integer[]))";
+    private static final String PURGE_QUERY = "DELETE FROM product_changes WHERE changed_at < now() - make_interval(secs => ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final SearchProperties.BitmapEngine properties;
+    private final Counter reloads;
+    private final Counter appliedChanges;
+
+    private volatile ProductBitmapIndex index = ProductBitmapIndex.EMPTY;
+    private volatile long indexSizeInBytes;
+    // Null until the index is loaded
+    private volatile String xmin;
+    private volatile long caughtUpAt;
+
+    public ProductBitmapEngine(
+        JdbcTemplate jdbcTemplate,
+        DataSource dataSource,
+        PlatformTransactionManager transactionManager,
+        ObjectMapper objectMapper,
+        SearchProperties searchProperties,
+        MeterRegistry meterRegistry
+    ) {
+        // Postgres driver reads rows by portions of fetch size(server-side cursor) only inside a transaction
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(searchProperties.stream().fetchSize());
+        // Not read-only, so that products are loaded from the primary the same as xmin and the change feed,
+        // rather than from a lagging read replica(see ReadReplicaConfiguration)
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = searchProperties.bitmapEngine();
+        this.reloads = meterRegistry.counter("search.bitmap.reloads");
+        this.appliedChanges = meterRegistry.counter("search.bitmap.changes");
+        Gauge.builder("search.bitmap.products", this, engine -> engine.index.size())
+            .register(meterRegistry);
+        Gauge.builder("search.bitmap.size", this, engine -> engine.indexSizeInBytes)
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder("search.bitmap.lag", this, engine -> engine.xmin == null ? Double.NaN : (System.nanoTime() - engine.caughtUpAt) / 1e9)
+            .baseUnit("seconds")
+            .register(meterRegistry);
+    }
+
+    /**
+     * @return whether the index is loaded and has caught up with products changes recently enough to be searched.
+     */
+    public boolean isWarm() {
+        return properties.enabled() && xmin != null && System.nanoTime() - caughtUpAt <= properties.maxLag().toNanos();
+    }
+
+    /**
+     * Searches started from now on reflect changes committed before the moment, if the index has caught up with them,
+     * or it is disabled, or it has not caught up for 'max-lag' since then, so it is not warm until it does.
+     * Polls are sequential and an index snapshot is replaced before the moment it has caught up at, so the answer
+     * does not turn back to false.
+     *
+     * @param committedBefore {@link System#nanoTime()} the changes are committed before.
+     */
+    public boolean reflects(long committedBefore) {
+        if (!properties.enabled()) {
+            return true;
+        }
+
+        return (xmin != null && caughtUpAt - committedBefore >= 0) || System.nanoTime() - committedBefore > properties.maxLag().toNanos();
+    }
+
+    /**
+     * Filters are matched and sorted against the same index snapshot, so the total and the page are consistent.
+     *
+     * @param categoryIds category subtree, see {@link CategoryTree}.
+     * @return ids of the page products in the sort order and the exact amount of matching products.
+     */
+    public Result search(List<Integer> categoryIds, FilterPlan plan, SortCriteria sort, int offset, int limit) {
+        var snapshot = index;
+        var matches = snapshot.match(categoryIds, plan);
+        return new Result(snapshot.page(matches, sort, offset, limit), matches.getLongCardinality());
+    }
+
+    public record Result(
+        List<Integer> ids,
+        long total
+    ) {
+    }
+
+    @Scheduled(fixedDelayString = "${ecommerce.search.bitmap-engine.poll-interval:1s}")
+    public synchronized void poll() {
+        if (!properties.enabled()) {
+            return;
+        }
+
+        try {
+            // Changes older than the retention might be purged already
+            if (xmin == null || System.nanoTime() - caughtUpAt > properties.changesRetention().toNanos()) {
+                reload();
+            } else {
+                applyChanges();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Product bitmap index is not updated: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Change feed rows are purged whether the engine is enabled or not, since triggers write them anyway.
+     */
+    @Scheduled(
+        initialDelayString = "${ecommerce.search.bitmap-engine.purge-interval:1m}",
+        fixedDelayString = "${ecommerce.search.bitmap-engine.purge-interval:1m}"
+    )
+    public void purgeChanges() {
+        int purged = jdbcTemplate.update(PURGE_QUERY, properties.changesRetention().toSeconds());
+        log.debug("Product changes purged: {}", purged);
+    }
+
+    private void reload() {
+        long startedAt = System.nanoTime();
+        // Transactions older than xmin are committed before the products query starts, so they are loaded,
+        // later ones are applied by the next poll
+        var nextXmin = jdbcTemplate.queryForObject(XMIN_QUERY, String.class);
+        var builder = new ProductBitmapIndex.Builder();
+        transactionTemplate.executeWithoutResult(status ->
+            streamingJdbcTemplate.query(PRODUCTS_QUERY, (RowCallbackHandler) rs -> add(builder, rs))
+        );
+
+        update(builder.build(), nextXmin, startedAt);
+        reloads.increment();
+        log.info("Product bitmap index loaded: products = {}, size = {} KB, elapsed = {} ms",
+            index.size(), indexSizeInBytes / 1024, (System.nanoTime() - startedAt) / 1_000_000
+        );
+    }
+
+    private void applyChanges() {
+        long startedAt = System.nanoTime();
+        var nextXmin = jdbcTemplate.queryForObject(XMIN_QUERY, String.class);
+        var productIds = jdbcTemplate.queryForList(CHANGES_QUERY, Integer.class, xmin);
+        // NULL product id stands for TRUNCATE
+        if (productIds.contains(null) || productIds.size() > properties.maxChanges()) {
+            reload();
+            return;
+        }
+        if (productIds.isEmpty()) {
+            update(index, nextXmin, startedAt);
+            return;
+        }
+
+        var changed = new RoaringBitmap();
+        productIds.forEach(changed::add);
+        var builder = new ProductBitmapIndex.Builder();
+        var ids = productIds.stream().map(Objects::toString).collect(Collectors.joining(",", "{", "}"));
+        jdbcTemplate.query(CHANGED_PRODUCTS_QUERY, (RowCallbackHandler) rs -> add(builder, rs), ids);
+
+        update(index.apply(changed, builder.build()), nextXmin, startedAt);
+        appliedChanges.increment(productIds.size());
+        log.debug("Product bitmap index updated: changed products = {}", productIds.size());
+    }
+
+    private void update(ProductBitmapIndex index, String xmin, long startedAt) {
+        if (index != this.index) {
+            this.index = index;
+            this.indexSizeInBytes = index.sizeInBytes();
+        }
+        this.xmin = xmin;
+        // The index reflects everything committed before the poll started
+        this.caughtUpAt = startedAt;
+    }
+
+    private void add(ProductBitmapIndex.Builder builder, ResultSet rs) throws SQLException {
+        // The column is 'timestamp without time zone' which is treated as UTC, the same as Hibernate does
+        var createdAt = rs.getObject("created_at", LocalDateTime.class).toInstant(ZoneOffset.UTC);
+        try {
+            builder.add(
+                rs.getInt("id"),
+                rs.getInt("category_id"),
+                rs.getString("brand"),
+                rs.getInt("price"),
+                ChronoUnit.MICROS.between(Instant.EPOCH, createdAt),
+                objectMapper.readTree(rs.getString("attributes"))
+            );
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Invalid attributes JSON of product " + rs.getInt("id"), e);
+        }
+    }
+}
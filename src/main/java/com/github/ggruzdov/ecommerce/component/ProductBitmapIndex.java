@@ -0,0 +1,386 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.ggruzdov.ecommerce.request.SortCriteria;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable in-memory index of products answering {@link FilterPlan} by compressed bitmaps of product ids:
+ * a bitmap per category, per brand and per (attribute, value), numeric values(price, creation time and numeric attributes)
+ * are kept in sorted columns(see {@link NumericColumn}) for range filters and sorting.
+ * <p>
+ * Filters are matched as the filter query does, see {@link com.github.ggruzdov.ecommerce.service.ProductSearchService}:
+ * 'eq' and 'in' compare JSON values by type(JSONB containment, i.e. 14 matches 14.0 but not "14"),
+ * numeric comparisons take numeric text of any JSON value('::NUMERIC' cast) and 'contains' is a case-insensitive substring
+ * of string values. Changes are applied by {@link #apply(RoaringBitmap, ProductBitmapIndex)} which shares untouched bitmaps,
+ * so an index can be read concurrently without locks.
+ */
+public final class ProductBitmapIndex {
+
+    public static final ProductBitmapIndex EMPTY = new Builder().build();
+
+    private static final RoaringBitmap NONE = new RoaringBitmap();
+
+    // Ranges of attributes with fewer distinct numbers are a union of value bitmaps rather than a column slice
+    private static final int MAX_RANGE_VALUES = 256;
+
+    private final RoaringBitmap products;
+    private final Map<Integer, RoaringBitmap> categories;
+    private final Map<String, RoaringBitmap> brands;
+    private final Map<String, AttributeColumns> attributes;
+    private final NumericColumn prices;
+    private final NumericColumn createdAt;
+
+    private ProductBitmapIndex(
+        RoaringBitmap products,
+        Map<Integer, RoaringBitmap> categories,
+        Map<String, RoaringBitmap> brands,
+        Map<String, AttributeColumns> attributes,
+        NumericColumn prices,
+        NumericColumn createdAt
+    ) {
+        this.products = products;
+        this.categories = categories;
+        this.brands = brands;
+        this.attributes = attributes;
+        this.prices = prices;
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * @param values         products by value: String for JSON strings and BigDecimal without trailing zeros for JSON numbers.
+     * @param present        products having a non-null scalar value.
+     * @param numbers        numeric values, i.e. JSON numbers and numeric strings.
+     * @param numericStrings products having a numeric string value, they are not in number value bitmaps.
+     */
+    private record AttributeColumns(
+        Map<Object, RoaringBitmap> values,
+        RoaringBitmap present,
+        NumericColumn numbers,
+        RoaringBitmap numericStrings
+    ) {
+    }
+
+    public long size() {
+        return products.getLongCardinality();
+    }
+
+    /**
+     * @return estimated memory taken by bitmaps and columns.
+     */
+    public long sizeInBytes() {
+        long size = products.getLongSizeInBytes() + (long) (prices.size() + createdAt.size()) * (Double.BYTES + Integer.BYTES);
+        size += categories.values().stream().mapToLong(RoaringBitmap::getLongSizeInBytes).sum();
+        size += brands.values().stream().mapToLong(RoaringBitmap::getLongSizeInBytes).sum();
+        for (var columns : attributes.values()) {
+            size += columns.present().getLongSizeInBytes() + (long) columns.numbers().size() * (Double.BYTES + Integer.BYTES);
+            size += columns.values().values().stream().mapToLong(RoaringBitmap::getLongSizeInBytes).sum();
+        }
+        return size;
+    }
+
+    /**
+     * @param categoryIds category subtree, see {@link CategoryTree}.
+     * @return ids of products matching all filters of the plan.
+     */
+    public RoaringBitmap match(List<Integer> categoryIds, FilterPlan plan) {
+        var result = RoaringBitmap.or(categoryIds.stream().map(categories::get).filter(Objects::nonNull).iterator());
+        if (plan.brand() != null) {
+            result.and(brands.getOrDefault(plan.brand(), NONE));
+        }
+        if (plan.minPrice() != null || plan.maxPrice() != null) {
+            result.and(prices.range(toDouble(plan.minPrice()), true, toDouble(plan.maxPrice()), true));
+        }
+        for (var filter : plan.attributes()) {
+            if (result.isEmpty()) {
+                break;
+            }
+            result.and(match(filter));
+        }
+        return result;
+    }
+
+    /**
+     * @return a page of matching products ids in the order of the sort criteria with product id as a tiebreaker.
+     */
+    public List<Integer> page(RoaringBitmap matches, SortCriteria sort, int offset, int limit) {
+        var column = switch (sort.field()) {
+            case SortCriteria.PRICE -> prices;
+            case SortCriteria.CREATED_AT -> createdAt;
+            default -> throw new IllegalArgumentException("Unsupported sort field: " + sort.field());
+        };
+        return column.page(matches, "desc".equalsIgnoreCase(sort.order()), offset, limit);
+    }
+
+    private RoaringBitmap match(AttributeFilter filter) {
+        var columns = attributes.get(filter.attribute().name());
+        if (columns == null) {
+            return NONE;
+        }
+
+        return switch (filter) {
+            case AttributeFilter.Equality equality when equality.operator() == FilterOperator.EQ ->
+                columns.values().getOrDefault(key(equality.value()), NONE);
+            case AttributeFilter.Equality equality when equality.value() instanceof BigDecimal value -> RoaringBitmap.or(
+                range(columns, null, true, value, false),
+                range(columns, value, false, null, true)
+            );
+            case AttributeFilter.Equality equality ->
+                RoaringBitmap.andNot(columns.present(), columns.values().getOrDefault(key(equality.value()), NONE));
+            case AttributeFilter.Range range -> switch (range.operator()) {
+                case GT -> range(columns, range.value(), false, null, true);
+                case GTE -> range(columns, range.value(), true, null, true);
+                case LT -> range(columns, null, true, range.value(), false);
+                case LTE -> range(columns, null, true, range.value(), true);
+                default -> throw new IllegalStateException("Unexpected range operator: " + range.operator());
+            };
+            case AttributeFilter.Between between -> range(columns, between.from(), true, between.to(), true);
+            case AttributeFilter.In in -> RoaringBitmap.or(
+                in.values().stream().map(value -> columns.values().getOrDefault(key(value), NONE)).iterator()
+            );
+            case AttributeFilter.Contains contains -> {
+                var needle = contains.value().toLowerCase(Locale.ROOT);
+                var result = new RoaringBitmap();
+                columns.values().forEach((value, ids) -> {
+                    if (value instanceof String text && text.toLowerCase(Locale.ROOT).contains(needle)) {
+                        result.or(ids);
+                    }
+                });
+                yield result;
+            }
+        };
+    }
+
+    /**
+     * Low cardinality attributes, e.g. RAM, are answered by their value bitmaps, which is cheaper than
+     * collecting a large slice of the column into a bitmap. Numeric strings are only in the column, so
+     * they are taken from it if there are any.
+     */
+    private static RoaringBitmap range(AttributeColumns columns, BigDecimal from, boolean fromInclusive, BigDecimal to, boolean toInclusive) {
+        var bitmaps = new ArrayList<RoaringBitmap>();
+        for (var entry : columns.values().entrySet()) {
+            if (!(entry.getKey() instanceof BigDecimal value)) {
+                continue;
+            }
+            if (bitmaps.size() == MAX_RANGE_VALUES) {
+                return columns.numbers().range(toDouble(from), fromInclusive, toDouble(to), toInclusive);
+            }
+
+            boolean afterFrom = from == null || (fromInclusive ? value.compareTo(from) >= 0 : value.compareTo(from) > 0);
+            boolean beforeTo = to == null || (toInclusive ? value.compareTo(to) <= 0 : value.compareTo(to) < 0);
+            bitmaps.add(afterFrom && beforeTo ? entry.getValue() : NONE);
+        }
+
+        var result = RoaringBitmap.or(bitmaps.iterator());
+        if (!columns.numericStrings().isEmpty()) {
+            result.or(RoaringBitmap.and(
+                columns.numbers().range(toDouble(from), fromInclusive, toDouble(to), toInclusive),
+                columns.numericStrings()
+            ));
+        }
+        return result;
+    }
+
+    /**
+     * @param changed ids of changed products, their current state is in the delta, deleted ones are absent from it.
+     * @param delta   index of the current state of changed products.
+     * @return a new index, bitmaps not touched by the change are shared with this one.
+     */
+    public ProductBitmapIndex apply(RoaringBitmap changed, ProductBitmapIndex delta) {
+        var mergedAttributes = new HashMap<String, AttributeColumns>();
+        attributes.forEach((name, columns) -> {
+            var added = delta.attributes.get(name);
+            mergedAttributes.put(name, merge(columns, changed, added));
+        });
+        delta.attributes.forEach(mergedAttributes::putIfAbsent);
+        // Numeric values are present ones as well
+        mergedAttributes.values().removeIf(columns -> columns.present().isEmpty());
+
+        var mergedProducts = RoaringBitmap.andNot(products, changed);
+        mergedProducts.or(delta.products);
+        return new ProductBitmapIndex(
+            mergedProducts,
+            merge(categories, changed, delta.categories),
+            merge(brands, changed, delta.brands),
+            Map.copyOf(mergedAttributes),
+            prices.update(changed, delta.prices),
+            createdAt.update(changed, delta.createdAt)
+        );
+    }
+
+    private static AttributeColumns merge(AttributeColumns columns, RoaringBitmap changed, AttributeColumns added) {
+        if (added == null && !RoaringBitmap.intersects(columns.present(), changed)) {
+            return columns;
+        }
+
+        var present = RoaringBitmap.andNot(columns.present(), changed);
+        var numericStrings = RoaringBitmap.andNot(columns.numericStrings(), changed);
+        if (added != null) {
+            present.or(added.present());
+            numericStrings.or(added.numericStrings());
+        }
+        return new AttributeColumns(
+            merge(columns.values(), changed, added == null ? Map.of() : added.values()),
+            present,
+            columns.numbers().update(changed, added == null ? NumericColumn.EMPTY : added.numbers()),
+            numericStrings
+        );
+    }
+
+    private static <K> Map<K, RoaringBitmap> merge(Map<K, RoaringBitmap> bitmaps, RoaringBitmap changed, Map<K, RoaringBitmap> added) {
+        var result = new HashMap<K, RoaringBitmap>(bitmaps.size() + added.size());
+        bitmaps.forEach((key, ids) -> {
+            var addedIds = added.get(key);
+            if (addedIds == null && !RoaringBitmap.intersects(ids, changed)) {
+                result.put(key, ids);
+                return;
+            }
+
+            var merged = RoaringBitmap.andNot(ids, changed);
+            if (addedIds != null) {
+                merged.or(addedIds);
+            }
+            merged.runOptimize();
+            if (!merged.isEmpty()) {
+                result.put(key, merged);
+            }
+        });
+        added.forEach(result::putIfAbsent);
+        return Map.copyOf(result);
+    }
+
+    /**
+     * @return lookup key of a JSON value or a filter value, null if the value is neither a string nor a number.
+     */
+    private static Object key(Object value) {
+        return switch (value) {
+            case String text -> text;
+            case BigDecimal number -> number.stripTrailingZeros();
+            case JsonNode node when node.isTextual() -> node.textValue();
+            case JsonNode node when node.isNumber() -> node.decimalValue().stripTrailingZeros();
+            case null, default -> null;
+        };
+    }
+
+    private static Double toDouble(Integer value) {
+        return value == null ? null : value.doubleValue();
+    }
+
+    private static Double toDouble(BigDecimal value) {
+        return value == null ? null : value.doubleValue();
+    }
+
+    /**
+     * Collects products one by one, not thread-safe.
+     */
+    public static final class Builder {
+
+        private final RoaringBitmap products = new RoaringBitmap();
+        private final Map<Integer, RoaringBitmap> categories = new HashMap<>();
+        private final Map<String, RoaringBitmap> brands = new HashMap<>();
+        private final Map<String, AttributesBuilder> attributes = new HashMap<>();
+        private final NumericColumn.Builder prices = new NumericColumn.Builder();
+        private final NumericColumn.Builder createdAt = new NumericColumn.Builder();
+
+        private static final class AttributesBuilder {
+            private final Map<Object, RoaringBitmap> values = new HashMap<>();
+            private final RoaringBitmap present = new RoaringBitmap();
+            private final NumericColumn.Builder numbers = new NumericColumn.Builder();
+            private final RoaringBitmap numericStrings = new RoaringBitmap();
+        }
+
+        /**
+         * @param createdAtMicros creation time in microseconds, the precision of Postgres timestamps.
+         * @param attributes      JSON object of product attributes.
+         */
+        public Builder add(int id, int categoryId, String brand, int price, long createdAtMicros, JsonNode attributes) {
+            products.add(id);
+            categories.computeIfAbsent(categoryId, key -> new RoaringBitmap()).add(id);
+            brands.computeIfAbsent(brand, key -> new RoaringBitmap()).add(id);
+            prices.add(id, price);
+            createdAt.add(id, createdAtMicros);
+
+            var fields = attributes.fields();
+            while (fields.hasNext()) {
+                var field = fields.next();
+                var value = field.getValue();
+                if (!value.isValueNode() || value.isNull()) {
+                    continue;
+                }
+
+                var columns = this.attributes.computeIfAbsent(field.getKey(), key -> new AttributesBuilder());
+                columns.present.add(id);
+                var key = key(value);
+                if (key != null) {
+                    columns.values.computeIfAbsent(key, k -> new RoaringBitmap()).add(id);
+                }
+                var number = numericValue(value);
+                if (number != null) {
+                    columns.numbers.add(id, number);
+                    if (value.isTextual()) {
+                        columns.numericStrings.add(id);
+                    }
+                }
+            }
+            return this;
+        }
+
+        public ProductBitmapIndex build() {
+            products.runOptimize();
+            var attributeColumns = new HashMap<String, AttributeColumns>();
+            attributes.forEach((name, columns) -> {
+                columns.present.runOptimize();
+                attributeColumns.put(name, new AttributeColumns(
+                    optimize(columns.values),
+                    columns.present,
+                    columns.numbers.build(),
+                    columns.numericStrings
+                ));
+            });
+
+            return new ProductBitmapIndex(
+                products,
+                optimize(categories),
+                optimize(brands),
+                Map.copyOf(attributeColumns),
+                prices.build(),
+                createdAt.build()
+            );
+        }
+
+        private static <K> Map<K, RoaringBitmap> optimize(Map<K, RoaringBitmap> bitmaps) {
+            bitmaps.values().forEach(RoaringBitmap::runOptimize);
+            return Map.copyOf(bitmaps);
+        }
+
+        /**
+         * @return value of '(attributes->>'name')::NUMERIC', null if the text is not a number.
+         */
+        private static Double numericValue(JsonNode value) {
+            if (value.isNumber()) {
+                return value.doubleValue();
+            }
+            if (!value.isTextual()) {
+                return null;
+            }
+
+            var text = value.textValue().strip();
+            if (text.isEmpty() || !(Character.isDigit(text.charAt(0)) || "+-.".indexOf(text.charAt(0)) >= 0)) {
+                return null;
+            }
+            try {
+                return new BigDecimal(text).doubleValue();
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
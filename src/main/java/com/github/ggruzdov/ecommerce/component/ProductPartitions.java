@@ -0,0 +1,15 @@
+package com.github.ggruzdov.ecommerce.component;
+
+/**
+ * Products are list-partitioned by category, a partition per category, see V1.14 migration.
+ * Partitions are created and dropped together with categories by a trigger.
+ */
+public final class ProductPartitions {
+
+    private ProductPartitions() {
+    }
+
+    public static String partitionName(Integer categoryId) {
+        return "products_" + categoryId;
+    }
+}
@@ -0,0 +1,11 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import java.util.Set;
+
+/**
+ * Published once products of the categories are created, updated or deleted and the change is committed.
+ */
+public record ProductsChangedEvent(
+    Set<Integer> categoryIds
+) {
+}
@@ -0,0 +1,129 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import com.github.ggruzdov.ecommerce.config.SearchProperties;
+import com.github.ggruzdov.ecommerce.model.AttributeMetadata;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Tracks typed generated columns of products materialized from promoted attributes(see 'attribute_definitions.is_promoted'),
+ * e.g. 'attr_2 NUMERIC GENERATED ALWAYS AS (...) STORED', each with a B-tree index on the partition of the attribute category
+ * (see {@link ProductPartitions}).
+ * <p>
+ * Filters on such columns compare native values instead of extracting and casting JSONB per row,
+ * and the planner has real column statistics, so open ranges are estimated by actual value distribution.
+ * Columns are kept in sync by Postgres itself on any write. Search queries use a column only once it exists,
+ * see {@link #isMaterialized(Integer)}.
+ * <p>
+ * Adding a stored generated column rewrites the table under an exclusive lock, so columns are added and dropped
+ * by migrations only(see 'sync_promoted_attribute_columns()' of V1.17 migration), this component only reads them.
+ * A column comment keeps the attribute definition it was generated from, so a column of a renamed or retyped attribute
+ * is not used until a migration rebuilds it. Disabled together with attribute indexes('ecommerce.search.attribute-indexes.enabled').
+ */
+@Slf4j
+@Component
+public class PromotedAttributeManager {
+
+    private static final String COLUMN_PREFIX = "attr_";
+    private static final Pattern MANAGED_COLUMN_NAME = Pattern.compile(COLUMN_PREFIX + "(\\d+)");
+    private static final String EXISTING_COLUMNS_QUERY = """
+        SELECT a.attname, col_description(a.attrelid, a.attnum) AS definition
+        FROM pg_attribute a
+        WHERE a.attrelid = 'products'::regclass AND a.attnum > 0 AND NOT a.attisdropped
+        """;
+
+    private final AttributeDefinitionRegistry attributeDefinitionRegistry;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+
+    private volatile Set<Integer> materialized = Set.of();
+
+    public PromotedAttributeManager(
+        AttributeDefinitionRegistry attributeDefinitionRegistry,
+        JdbcTemplate jdbcTemplate,
+        SearchProperties searchProperties
+    ) {
+        this.attributeDefinitionRegistry = attributeDefinitionRegistry;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = searchProperties.attributeIndexes().enabled();
+    }
+
+    /**
+     * @return whether the attribute has an up-to-date generated column, see {@link #columnName(Integer)}.
+     */
+    public boolean isMaterialized(Integer attributeId) {
+        return materialized.contains(attributeId);
+    }
+
+    public static String columnName(Integer attributeId) {
+        return COLUMN_PREFIX + attributeId;
+    }
+
+    @EventListener({ApplicationReadyEvent.class, AttributeDefinitionsRefreshedEvent.class})
+    public void refreshColumns() {
+        if (!enabled) {
+            return;
+        }
+
+        var requiredColumns = new HashMap<String, AttributeColumn>();
+        attributeDefinitionRegistry.getAllCategoryAttributes().forEach((categoryId, attributes) ->
+            attributes.list()
+                .stream()
+                .filter(AttributeMetadata::promoted)
+                .forEach(attribute -> requiredColumns.put(columnName(attribute.id()), new AttributeColumn(categoryId, attribute)))
+        );
+
+        var existingColumns = loadColumns();
+        materialized = upToDate(requiredColumns, existingColumns);
+        requiredColumns.forEach((name, column) -> {
+            if (!column.definition().equals(existingColumns.get(name))) {
+                log.warn("Promoted attribute {} has no up-to-date column {}, see V1.17 migration", column.definition(), name);
+            }
+        });
+    }
+
+    private static Set<Integer> upToDate(Map<String, AttributeColumn> requiredColumns, Map<String, String> existingColumns) {
+        var attributeIds = new HashSet<Integer>();
+        requiredColumns.forEach((name, column) -> {
+            if (column.definition().equals(existingColumns.get(name))) {
+                attributeIds.add(column.attribute().id());
+            }
+        });
+
+        return Set.copyOf(attributeIds);
+    }
+
+    /**
+     * @return managed columns with their comments.
+     */
+    private Map<String, String> loadColumns() {
+        var columns = new HashMap<String, String>();
+        jdbcTemplate.query(EXISTING_COLUMNS_QUERY, rs -> {
+            var name = rs.getString("attname");
+            if (MANAGED_COLUMN_NAME.matcher(name).matches()) {
+                columns.put(name, rs.getString("definition"));
+            }
+        });
+
+        return columns;
+    }
+
+    private record AttributeColumn(
+        Integer categoryId,
+        AttributeMetadata attribute
+    ) {
+
+        String definition() {
+            return categoryId + ":" + attribute.name() + ":" + attribute.type();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import com.github.ggruzdov.ecommerce.request.FilterCondition;
+import com.github.ggruzdov.ecommerce.request.ProductFilterSearchRequest;
+import com.github.ggruzdov.ecommerce.request.ProductFullTextSearchRequest;
+import io.micrometer.core.instrument.Tags;
+
+import java.util.TreeSet;
+
+/**
+ * Low cardinality description of a search query used as metrics tags: attribute names and values are omitted.
+ *
+ * @param category  category id, 'none' for full-text search.
+ * @param operators sorted distinct filter operators, e.g. 'eq,gte', 'none' without filters or 'full-text'.
+ * @param sort      sort field and order, e.g. 'price_asc'.
+ */
+public record QueryShape(
+    String category,
+    String operators,
+    String sort
+) {
+    private static final String NONE = "none";
+
+    public static QueryShape of(ProductFilterSearchRequest request) {
+        var operators = new TreeSet<String>();
+        request.filters().values().stream().map(FilterCondition::operator).forEach(operators::add);
+
+        return new QueryShape(
+            String.valueOf(request.categoryId()),
+            operators.isEmpty() ? NONE : String.join(",", operators),
+            request.sort().field() + "_" + request.sort().order().toLowerCase()
+        );
+    }
+
+    public static QueryShape of(ProductFullTextSearchRequest request) {
+        return new QueryShape(NONE, "full-text", request.sort().field() + "_" + request.sort().order().toLowerCase());
+    }
+
+    public Tags tags() {
+        return Tags.of("category", category, "operators", operators, "sort", sort);
+    }
+}
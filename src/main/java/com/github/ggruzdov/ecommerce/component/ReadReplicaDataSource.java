@@ -0,0 +1,205 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import com.github.ggruzdov.ecommerce.config.ReadReplicaProperties;
+import com.github.ggruzdov.ecommerce.config.ReadReplicaProperties.Balancing;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connections of read-only transactions, see {@link com.github.ggruzdov.ecommerce.config.ReadReplicaConfiguration}.
+ * A connection is taken from one of the replicas picked by 'ecommerce.read-replicas.balancing', or from the primary
+ * if none of them is available. A replica which does not give a connection within 'ecommerce.read-replicas.connection-timeout'
+ * is not available either, and the transaction gets a primary connection.
+ * <p>
+ * Replication lag of every replica is checked every 'ecommerce.read-replicas.lag-check-interval': a replica which has replayed
+ * everything it received from a streaming primary does not lag, otherwise the lag is the time since its last replayed transaction.
+ * The streaming status is visible to superusers and 'pg_read_all_stats' members only, for other users a replica of an idle
+ * primary seems to lag. A replica lagging more than 'ecommerce.read-replicas.max-lag', or unreachable, is not used
+ * until the next check.
+ * <p>
+ * Each replica has its own Hikari pool named after it, so 'hikaricp.connections.*' metrics are tagged by pool.
+ * Other metrics: 'datasource.route' counter by route(replica or primary), 'datasource.replica.lag'
+ * and 'datasource.replica.available' gauges by replica.
+ */
+@Slf4j
+public class ReadReplicaDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final String PRIMARY = "primary";
+    private static final String LAG_QUERY = """
+        SELECT CASE
+            WHEN NOT pg_is_in_recovery() THEN 0
+            WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn()
+                AND EXISTS (SELECT 1 FROM pg_stat_wal_receiver WHERE status = 'streaming') THEN 0
+            ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())
+        END""";
+
+    private final HikariDataSource primary;
+    private final List<Replica> replicas;
+    private final Balancing balancing;
+    private final Duration maxLag;
+    private final Counter primaryRoutes;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param primary pool of 'spring.datasource', the replica pools copy its settings.
+     */
+    public ReadReplicaDataSource(HikariDataSource primary, ReadReplicaProperties properties, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = properties.replicas()
+            .stream()
+            .map(replica -> new Replica(replica.name(), pool(primary, replica, properties.connectionTimeout(), meterRegistry), meterRegistry))
+            .toList();
+        this.balancing = properties.balancing();
+        this.maxLag = properties.maxLag();
+        this.primaryRoutes = meterRegistry.counter("datasource.route", "route", PRIMARY);
+    }
+
+    @PostConstruct
+    void init() {
+        checkLag();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        var replica = pick();
+        if (replica == null) {
+            primaryRoutes.increment();
+            return primary.getConnection();
+        }
+
+        try {
+            var connection = replica.dataSource.getConnection();
+            replica.routes.increment();
+            return connection;
+        } catch (SQLException e) {
+            log.warn("Replica {} is not available until the next lag check: {}", replica.name, e.getMessage());
+            replica.available = false;
+            primaryRoutes.increment();
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Replicas are connected with the credentials of the primary");
+    }
+
+    @Scheduled(
+        initialDelayString = "${ecommerce.read-replicas.lag-check-interval:1s}",
+        fixedDelayString = "${ecommerce.read-replicas.lag-check-interval:1s}"
+    )
+    public void checkLag() {
+        for (var replica : replicas) {
+            try {
+                var lag = new JdbcTemplate(replica.dataSource).queryForObject(LAG_QUERY, BigDecimal.class);
+                replica.lag = lag == null ? Double.NaN : lag.doubleValue();
+            } catch (RuntimeException e) {
+                log.debug("Replication lag of {} is not checked: {}", replica.name, e.getMessage());
+                replica.lag = Double.NaN;
+            }
+
+            // NaN, i.e. unknown lag, is not available either
+            boolean available = replica.lag <= maxLag.toMillis() / 1000.0;
+            if (available != replica.available) {
+                log.info("Replica {} is {}, lag = {} s", replica.name, available ? "available" : "not available", replica.lag);
+                replica.available = available;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    /**
+     * Replicas are looked through from the next one in turn, so least busy balancing spreads transactions among
+     * equally busy replicas as well.
+     *
+     * @return null if none of the replicas is available.
+     */
+    private Replica pick() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        Replica picked = null;
+        for (int i = 0; i < size; i++) {
+            var replica = replicas.get((start + i) % size);
+            if (!replica.available) {
+                continue;
+            }
+            if (balancing == Balancing.ROUND_ROBIN) {
+                return replica;
+            }
+            if (picked == null || replica.activeConnections() < picked.activeConnections()) {
+                picked = replica;
+            }
+        }
+
+        return picked;
+    }
+
+    private static HikariDataSource pool(
+        HikariDataSource primary,
+        ReadReplicaProperties.Replica replica,
+        Duration connectionTimeout,
+        MeterRegistry meterRegistry
+    ) {
+        var dataSource = new HikariDataSource();
+        primary.copyStateTo(dataSource);
+        dataSource.setPoolName(replica.name());
+        dataSource.setJdbcUrl(replica.url());
+        dataSource.setMaximumPoolSize(replica.maximumPoolSize());
+        if (dataSource.getMinimumIdle() > replica.maximumPoolSize()) {
+            dataSource.setMinimumIdle(replica.maximumPoolSize());
+        }
+        dataSource.setConnectionTimeout(connectionTimeout.toMillis());
+        dataSource.setReadOnly(true);
+        dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return dataSource;
+    }
+
+    private static class Replica {
+
+        private final String name;
+        private final HikariDataSource dataSource;
+        private final Counter routes;
+
+        private volatile double lag = Double.NaN;
+        private volatile boolean available;
+
+        private Replica(String name, HikariDataSource dataSource, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.routes = meterRegistry.counter("datasource.route", "route", name);
+            Gauge.builder("datasource.replica.lag", this, replica -> replica.lag)
+                .tag("replica", name)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+            Gauge.builder("datasource.replica.available", this, replica -> replica.available ? 1 : 0)
+                .tag("replica", name)
+                .register(meterRegistry);
+        }
+
+        private int activeConnections() {
+            // The pool is started by the first connection
+            var pool = dataSource.getHikariPoolMXBean();
+            return pool == null ? 0 : pool.getActiveConnections() + pool.getThreadsAwaitingConnection();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import com.github.ggruzdov.ecommerce.config.SearchProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Bounds the amount of concurrently executed searches, so requests wait for a permit(with a short timeout)
+ * instead of piling up in the connection pool queue. By default, there are as many permits as pool connections
+ * not reserved for exports. Streamed exports hold their permits as long as clients read them, so they have their own ones,
+ * see {@link #acquireExport(String)}.
+ * <p>
+ * Metrics by endpoint: 'search.queue.wait' and 'search.execution' timers, 'search.rejected' counter.
+ */
+@Slf4j
+@Component
+public class SearchConcurrencyLimiter {
+
+    private final Semaphore permits;
+    private final Semaphore exportPermits;
+    private final Duration maxQueueWait;
+    private final Duration retryAfter;
+    private final MeterRegistry meterRegistry;
+
+    public SearchConcurrencyLimiter(DataSource dataSource, SearchProperties searchProperties, MeterRegistry meterRegistry) {
+        var concurrency = searchProperties.concurrency();
+        int maxConcurrent = concurrency.maxConcurrent() > 0
+            ? concurrency.maxConcurrent()
+            : Math.max(poolSize(dataSource) - concurrency.maxConcurrentExports(), 1);
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.exportPermits = new Semaphore(concurrency.maxConcurrentExports(), true);
+        this.maxQueueWait = concurrency.maxQueueWait();
+        this.retryAfter = concurrency.retryAfter();
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("search.permits.available", permits, Semaphore::availablePermits)
+            .register(meterRegistry);
+        Gauge.builder("search.export.permits.available", exportPermits, Semaphore::availablePermits)
+            .register(meterRegistry);
+        log.info("Search concurrency limit: {}, exports: {}", maxConcurrent, concurrency.maxConcurrentExports());
+    }
+
+    /**
+     * Executes the search once a permit is acquired.
+     *
+     * @param endpoint metrics tag.
+     * @throws SearchOverloadedException if there is no permit within 'ecommerce.search.concurrency.max-queue-wait'.
+     */
+    public <T> T execute(String endpoint, Supplier<T> search) {
+        try (var ignored = acquire(endpoint)) {
+            return search.get();
+        }
+    }
+
+    /**
+     * Acquires a permit for a search outliving the method call, e.g. a streamed response.
+     * The permit must be closed once the search is completed.
+     *
+     * @param endpoint metrics tag.
+     * @throws SearchOverloadedException if there is no permit within 'ecommerce.search.concurrency.max-queue-wait'.
+     */
+    public Permit acquire(String endpoint) {
+        return acquire(permits, endpoint);
+    }
+
+    /**
+     * The same as {@link #acquire(String)}, but the permit is one of 'ecommerce.search.concurrency.max-concurrent-exports'.
+     */
+    public Permit acquireExport(String endpoint) {
+        return acquire(exportPermits, endpoint);
+    }
+
+    private Permit acquire(Semaphore permits, String endpoint) {
+        long startedAt = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxQueueWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        meterRegistry.timer("search.queue.wait", "endpoint", endpoint).record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+
+        if (!acquired) {
+            meterRegistry.counter("search.rejected", "endpoint", endpoint).increment();
+            throw new SearchOverloadedException(retryAfter);
+        }
+
+        return new Permit(permits, endpoint);
+    }
+
+    /**
+     * With read replicas(see ReadReplicaConfiguration) the data source is a proxy of the primary pool,
+     * which is the one searches fall back to, so its size is taken.
+     */
+    private static int poolSize(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Connection pool size is unknown", e);
+        }
+
+        throw new IllegalStateException("Search concurrency limit must be set for non Hikari data source");
+    }
+
+    /**
+     * Might be closed by several threads, e.g. the one writing a streamed response and the one completing the request,
+     * the permit is released once.
+     */
+    public class Permit implements AutoCloseable {
+
+        private final Semaphore permits;
+        private final String endpoint;
+        private final long acquiredAt = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Semaphore permits, String endpoint) {
+            this.permits = permits;
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        public void close() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+
+            permits.release();
+            meterRegistry.timer("search.execution", "endpoint", endpoint).record(System.nanoTime() - acquiredAt, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset pagination position: the sort field value and id of the last row of a page.
+ * Clients get it as an opaque Base64 string and must not rely on its content.
+ */
+public record SearchCursor(
+    String field,
+    String order,
+    String value,
+    Integer id
+) {
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        var raw = String.join(SEPARATOR, field, order, value, id.toString());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SearchCursor decode(String cursor) {
+        String[] parts;
+        Integer id;
+        try {
+            var raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            parts = raw.split("\\" + SEPARATOR, -1);
+            id = parts.length == 4 ? Integer.valueOf(parts[3]) : null;
+        } catch (IllegalArgumentException e) {
+            // Base64 as well as number format errors
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+
+        if (id == null) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+
+        return new SearchCursor(parts[0], parts[1], parts[2], id);
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import com.github.ggruzdov.ecommerce.config.SearchProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Times search stages as 'search.stage' timer tagged by stage and {@link QueryShape}.
+ * <p>
+ * Queries slower than 'ecommerce.search.slow-query.threshold' are logged with their SQL and parameters
+ * and counted by 'search.slow.queries' counter. If 'ecommerce.search.slow-query.explain' is on,
+ * the query is executed once more by 'EXPLAIN (ANALYZE, BUFFERS)' and the plan is logged too,
+ * which doubles the time of slow requests, so it is meant for troubleshooting only.
+ */
+@Slf4j
+@Component
+public class SearchMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final long slowQueryThresholdNanos;
+    private final boolean explainSlowQueries;
+
+    public SearchMetrics(MeterRegistry meterRegistry, NamedParameterJdbcTemplate jdbcTemplate, SearchProperties searchProperties) {
+        var slowQuery = searchProperties.slowQuery();
+        this.meterRegistry = meterRegistry;
+        this.jdbcTemplate = jdbcTemplate;
+        this.slowQueryThresholdNanos = slowQuery.threshold().toNanos();
+        this.explainSlowQueries = slowQuery.explain();
+    }
+
+    public <T> T time(String stage, QueryShape shape, Supplier<T> action) {
+        long startedAt = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            record(stage, shape, System.nanoTime() - startedAt);
+        }
+    }
+
+    /**
+     * The same as {@link #time(String, QueryShape, Supplier)}, but the query is logged if it is slow.
+     *
+     * @param sql    the query as it is executed, so it can be explained.
+     * @param params named query parameters.
+     */
+    public <T> T timeQuery(String stage, QueryShape shape, String sql, Map<String, ?> params, Supplier<T> query) {
+        long startedAt = System.nanoTime();
+        try {
+            return query.get();
+        } finally {
+            long elapsed = System.nanoTime() - startedAt;
+            record(stage, shape, elapsed);
+            if (elapsed > slowQueryThresholdNanos) {
+                logSlowQuery(stage, shape, sql, params, elapsed);
+            }
+        }
+    }
+
+    private void record(String stage, QueryShape shape, long elapsedNanos) {
+        Timer.builder("search.stage")
+            .tag("stage", stage)
+            .tags(shape.tags())
+            .register(meterRegistry)
+            .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void logSlowQuery(String stage, QueryShape shape, String sql, Map<String, ?> params, long elapsedNanos) {
+        meterRegistry.counter("search.slow.queries", "stage", stage).increment();
+        log.warn("Slow search query: stage = {}, shape = {}, elapsed = {} ms, sql = {}, params = {}",
+            stage, shape, Duration.ofNanos(elapsedNanos).toMillis(), sql, params
+        );
+
+        if (!explainSlowQueries) {
+            return;
+        }
+
+        try {
+            var plan = jdbcTemplate.queryForList("EXPLAIN (ANALYZE, BUFFERS) " + sql, params, String.class);
+            log.warn("Slow search query plan: stage = {}\n{}", stage, String.join("\n", plan));
+        } catch (RuntimeException e) {
+            log.warn("Slow search query cannot be explained: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a search cannot be started because all search permits are taken, see {@link SearchConcurrencyLimiter}.
+ */
+@Getter
+public class SearchOverloadedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public SearchOverloadedException(Duration retryAfter) {
+        super("Too many concurrent searches");
+        this.retryAfter = retryAfter;
+    }
+}
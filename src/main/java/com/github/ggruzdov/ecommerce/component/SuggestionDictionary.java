@@ -0,0 +1,132 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import com.github.ggruzdov.ecommerce.model.AttributeType;
+import com.github.ggruzdov.ecommerce.response.SuggestionResponse;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * In-memory prefix index of brands and attribute values for search box suggestions.
+ * <p>
+ * Terms are kept lowercased in a sorted array, so all terms starting with a prefix are a contiguous range
+ * found by binary search, which is what a trie would give for such a small vocabulary without its memory overhead.
+ * Brands are ranked by their amount of products. Attribute values come from {@link AttributeDefinitionRegistry}
+ * and are rebuilt once it is refreshed, brands are reloaded every 'ecommerce.search.suggestions.refresh-interval',
+ * so a new brand shows up with that delay.
+ */
+@Slf4j
+@Component
+public class SuggestionDictionary {
+
+    private static final String BRANDS_QUERY = "SELECT brand, COUNT(1) AS products FROM products GROUP BY brand";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AttributeDefinitionRegistry attributeDefinitionRegistry;
+
+    private volatile List<Entry> brands = List.of();
+    private volatile List<Entry> entries = List.of();
+
+    public SuggestionDictionary(
+        JdbcTemplate jdbcTemplate,
+        AttributeDefinitionRegistry attributeDefinitionRegistry,
+        MeterRegistry meterRegistry
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.attributeDefinitionRegistry = attributeDefinitionRegistry;
+        Gauge.builder("suggestion.dictionary.terms", this, dictionary -> dictionary.entries.size())
+            .register(meterRegistry);
+    }
+
+    /**
+     * @param prefix lowercased prefix.
+     * @return suggestions of terms starting with the prefix, the most popular first.
+     */
+    public List<SuggestionResponse> find(String prefix, int limit) {
+        var snapshot = entries;
+        int from = Collections.binarySearch(snapshot, new Entry(prefix, null, 0), Entry.BY_TERM);
+        if (from < 0) {
+            from = -from - 1;
+        }
+
+        var matches = new ArrayList<Entry>();
+        for (int i = from; i < snapshot.size() && snapshot.get(i).term().startsWith(prefix); i++) {
+            matches.add(snapshot.get(i));
+        }
+        matches.sort(Entry.BY_WEIGHT);
+
+        return matches.stream().limit(limit).map(Entry::suggestion).toList();
+    }
+
+    @PostConstruct
+    void load() {
+        refresh();
+    }
+
+    @Scheduled(
+        initialDelayString = "${ecommerce.search.suggestions.refresh-interval:5m}",
+        fixedDelayString = "${ecommerce.search.suggestions.refresh-interval:5m}"
+    )
+    public synchronized void refresh() {
+        brands = jdbcTemplate.query(BRANDS_QUERY, (rs, rowNum) -> {
+            var brand = rs.getString("brand");
+            return new Entry(normalize(brand), new SuggestionResponse(brand, SuggestionResponse.Type.BRAND, null, null, null), rs.getLong("products"));
+        });
+        rebuild();
+    }
+
+    @EventListener
+    public synchronized void onAttributeDefinitionsRefreshed(AttributeDefinitionsRefreshedEvent event) {
+        rebuild();
+    }
+
+    private void rebuild() {
+        var terms = new ArrayList<>(brands);
+        attributeDefinitionRegistry.getAllCategoryAttributes().forEach((categoryId, attributes) ->
+            attributes.list()
+                .stream()
+                // Numbers are not worth suggesting without their attribute name
+                .filter(attribute -> attribute.type() == AttributeType.VARCHAR)
+                .forEach(attribute -> attribute.values().forEach(value -> terms.add(new Entry(
+                    normalize(value.toString()),
+                    new SuggestionResponse(value.toString(), SuggestionResponse.Type.ATTRIBUTE, categoryId, attribute.name(), null),
+                    0
+                ))))
+        );
+        terms.sort(Entry.BY_TERM);
+
+        entries = List.copyOf(terms);
+        log.info("Suggestion dictionary loaded: terms = {}", terms.size());
+    }
+
+    /**
+     * The same normalization is applied to queries, see ProductSuggestionService.
+     */
+    public static String normalize(String text) {
+        return text.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param term   lowercased text of the suggestion.
+     * @param weight popularity of the term, the greater the higher it is suggested.
+     */
+    private record Entry(
+        String term,
+        SuggestionResponse suggestion,
+        long weight
+    ) {
+        static final Comparator<Entry> BY_TERM = Comparator.comparing(Entry::term);
+        static final Comparator<Entry> BY_WEIGHT = Comparator.comparingLong(Entry::weight).reversed().thenComparing(Entry::term);
+    }
+}
@@ -0,0 +1,14 @@
+package com.github.ggruzdov.ecommerce.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param chunkSize amount of products upserted in one transaction.
+ */
+@ConfigurationProperties(prefix = "ecommerce.ingest")
+public record IngestProperties(
+    @DefaultValue("1000")
+    int chunkSize
+) {
+}
@@ -0,0 +1,54 @@
+package com.github.ggruzdov.ecommerce.config;
+
+import com.github.ggruzdov.ecommerce.component.ReadReplicaDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Routes read-only transactions, i.e. searches of ProductSearchService, to the replicas of 'ecommerce.read-replicas',
+ * everything else goes to the primary 'spring.datasource'. Enabled by 'ecommerce.read-replicas.enabled',
+ * otherwise the data source is auto-configured as usual.
+ * <p>
+ * The data source is a lazy proxy of the primary: a transaction gets the actual connection on its first statement,
+ * when it is known to be read-only(Hibernate marks the connection of a read-only transaction as such), and that one
+ * is taken from {@link ReadReplicaDataSource}. Therefore, a read-only transaction does not take a connection at all
+ * if it is answered from a cache, and its statements are executed on a single replica.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "ecommerce.read-replicas", name = "enabled", havingValue = "true")
+public class ReadReplicaConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        var dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReadReplicaDataSource readReplicaDataSource(
+        HikariDataSource primaryDataSource,
+        ReadReplicaProperties readReplicaProperties,
+        MeterRegistry meterRegistry
+    ) {
+        return new ReadReplicaDataSource(primaryDataSource, readReplicaProperties, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReadReplicaDataSource readReplicaDataSource) {
+        var dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(readReplicaDataSource);
+        return dataSource;
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.ggruzdov.ecommerce.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * @param enabled           whether read-only transactions are routed to the replicas, see ReadReplicaConfiguration.
+ * @param replicas          streaming replicas of 'spring.datasource', connected with the same credentials.
+ * @param balancing         how a replica is picked for a read-only transaction.
+ * @param maxLag            a replica lagging more, as well as an unreachable one, is not used until it catches up.
+ * @param connectionTimeout how long a transaction waits for a replica connection before it falls back to the primary.
+ */
+@ConfigurationProperties(prefix = "ecommerce.read-replicas")
+public record ReadReplicaProperties(
+    @DefaultValue("false")
+    boolean enabled,
+    @DefaultValue
+    List<Replica> replicas,
+    @DefaultValue("round-robin")
+    Balancing balancing,
+    @DefaultValue("5s")
+    Duration maxLag,
+    @DefaultValue("1s")
+    Duration connectionTimeout
+) {
+
+    /**
+     * @param name            pool name, metrics tag of the replica.
+     * @param url             JDBC URL of the replica.
+     * @param maximumPoolSize max amount of connections to the replica.
+     */
+    public record Replica(
+        String name,
+        String url,
+        @DefaultValue("10")
+        int maximumPoolSize
+    ) {
+    }
+
+    public enum Balancing {
+        /**
+         * Replicas take read-only transactions in turn.
+         */
+        ROUND_ROBIN,
+        /**
+         * The replica with the least amount of active connections, replicas in turn if there are several.
+         */
+        LEAST_BUSY
+    }
+}
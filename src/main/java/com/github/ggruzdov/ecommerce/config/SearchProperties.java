@@ -0,0 +1,222 @@
+package com.github.ggruzdov.ecommerce.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "ecommerce.search")
+public record SearchProperties(
+    @DefaultValue
+    Count count,
+    @DefaultValue
+    AttributeIndexes attributeIndexes,
+    @DefaultValue
+    Facets facets,
+    @DefaultValue
+    QueryShapes queryShapes,
+    @DefaultValue
+    Results results,
+    @DefaultValue
+    Stream stream,
+    @DefaultValue
+    Concurrency concurrency,
+    @DefaultValue
+    ResultCache resultCache,
+    @DefaultValue
+    SlowQuery slowQuery,
+    @DefaultValue
+    Suggestions suggestions,
+    @DefaultValue
+    BitmapEngine bitmapEngine,
+    @DefaultValue
+    Multi multi,
+    @DefaultValue
+    HttpCache httpCache
+) {
+
+    /**
+     * @param cacheTtl          how long exact counts are reused for the same filter set.
+     * @param cacheMaxSize      max amount of cached exact counts.
+     * @param estimateThreshold rows counted exactly by 'estimated' strategy before falling back to planner estimate.
+     */
+    public record Count(
+        @DefaultValue("30s")
+        Duration cacheTtl,
+        @DefaultValue("10000")
+        long cacheMaxSize,
+        @DefaultValue("10000")
+        int estimateThreshold
+    ) {
+    }
+
+    /**
+     * @param enabled           whether indexes of filterable attributes are created/dropped by the application.
+     * @param lockRetryInterval how long to wait before the next attempt, if another instance is building indexes.
+     */
+    public record AttributeIndexes(
+        @DefaultValue("true")
+        boolean enabled,
+        @DefaultValue("10s")
+        Duration lockRetryInterval
+    ) {
+    }
+
+    /**
+     * @param priceBucketSize width of price facet buckets in cents.
+     */
+    public record Facets(
+        @DefaultValue("50000")
+        int priceBucketSize
+    ) {
+    }
+
+    /**
+     * @param cacheMaxSize max amount of cached filter query shapes, see FilterQueryShapeCache.
+     */
+    public record QueryShapes(
+        @DefaultValue("1000")
+        int cacheMaxSize
+    ) {
+    }
+
+    /**
+     * @param mapping how search result rows are turned into responses.
+     */
+    public record Results(
+        @DefaultValue("raw-json")
+        ResultMapping mapping
+    ) {
+    }
+
+    /**
+     * @param fetchSize amount of rows fetched from the server-side cursor at once by streaming export,
+     *                  the response is flushed after each portion.
+     */
+    public record Stream(
+        @DefaultValue("1000")
+        int fetchSize
+    ) {
+    }
+
+    /**
+     * @param maxConcurrent        max amount of concurrently executed searches, 0 means the connection pool size
+     *                             without the connections of exports.
+     * @param maxConcurrentExports max amount of concurrently streamed exports, they have their own permits,
+     *                             so slow consumers do not starve searches.
+     * @param maxQueueWait         how long a search waits for a permit before it is rejected.
+     * @param retryAfter           'Retry-After' of rejected searches.
+     */
+    public record Concurrency(
+        @DefaultValue("0")
+        int maxConcurrent,
+        @DefaultValue("2")
+        int maxConcurrentExports,
+        @DefaultValue("100ms")
+        Duration maxQueueWait,
+        @DefaultValue("1s")
+        Duration retryAfter
+    ) {
+    }
+
+    /**
+     * @param enabled   whether offset search results are cached, see SearchResultCache.
+     * @param ttl       how long a result is reused.
+     * @param maxWeight max estimated size of locally cached results.
+     */
+    public record ResultCache(
+        @DefaultValue("true")
+        boolean enabled,
+        @DefaultValue("30s")
+        Duration ttl,
+        @DefaultValue("64MB")
+        DataSize maxWeight
+    ) {
+    }
+
+    /**
+     * @param threshold queries running longer are logged, see SearchMetrics.
+     * @param explain   whether slow queries are logged with 'EXPLAIN (ANALYZE, BUFFERS)' plan.
+     */
+    public record SlowQuery(
+        @DefaultValue("500ms")
+        Duration threshold,
+        @DefaultValue("false")
+        boolean explain
+    ) {
+    }
+
+    /**
+     * @param minSimilarity  min word similarity(0..1) of a product name suggested for a mistyped query.
+     * @param fuzzyMinLength min query length to look for similar product names, shorter queries are matched by prefix only.
+     */
+    public record Suggestions(
+        @DefaultValue("0.4")
+        double minSimilarity,
+        @DefaultValue("3")
+        int fuzzyMinLength
+    ) {
+    }
+
+    /**
+     * @param enabled          whether offset filter search is answered by in-memory bitmap index, see ProductBitmapEngine.
+     * @param maxLag           the index is not used if it has not caught up with products changes for longer.
+     * @param changesRetention how long rows of 'product_changes' are kept, an index lagging more is reloaded.
+     * @param maxChanges       max amount of changed products applied incrementally, the index is reloaded if there are more.
+     */
+    public record BitmapEngine(
+        @DefaultValue("false")
+        boolean enabled,
+        @DefaultValue("10s")
+        Duration maxLag,
+        @DefaultValue("1h")
+        Duration changesRetention,
+        @DefaultValue("100000")
+        int maxChanges
+    ) {
+    }
+
+    /**
+     * @param maxConcurrent max amount of concurrently executed searches of a single multi search request.
+     * @param timeout       searches of a multi search request not completed within the timeout are cancelled.
+     */
+    public record Multi(
+        @DefaultValue("4")
+        int maxConcurrent,
+        @DefaultValue("5s")
+        Duration timeout
+    ) {
+    }
+
+    /**
+     * @param etags        whether search responses carry ETags and are answered with 304 if they match 'If-None-Match',
+     *                     see SearchHttpCache.
+     * @param cacheControl 'Cache-Control' of responses by endpoint(search, full-text, cursor, full-text-cursor),
+     *                     the header is not set for an endpoint without a value.
+     */
+    public record HttpCache(
+        @DefaultValue("true")
+        boolean etags,
+        @DefaultValue
+        Map<String, String> cacheControl
+    ) {
+    }
+
+    public enum ResultMapping {
+        /**
+         * Managed Product entities mapped to responses.
+         */
+        ENTITY,
+        /**
+         * Plain JDBC rows of the response columns, attributes are parsed.
+         */
+        PROJECTION,
+        /**
+         * The same as {@link #PROJECTION} but attributes are kept as raw JSON and parsed only on access.
+         */
+        RAW_JSON
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.ggruzdov.ecommerce.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ggruzdov.ecommerce.response.CursorPagedModel;
+import com.github.ggruzdov.ecommerce.response.MultiSearchResponse;
+import com.github.ggruzdov.ecommerce.response.SearchPagedModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson converter which times serialization of search responses as 'search.serialization' timer tagged by response type.
+ * Being a bean, it replaces the default Jackson converter of Spring Boot, so other responses, e.g. errors or stats,
+ * are written the same way but not timed.
+ */
+@Component
+public class TimedJacksonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    private final MeterRegistry meterRegistry;
+
+    public TimedJacksonHttpMessageConverter(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        super(objectMapper);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException, HttpMessageNotWritableException {
+        if (!isSearchResponse(object)) {
+            super.writeInternal(object, type, outputMessage);
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        try {
+            super.writeInternal(object, type, outputMessage);
+        } finally {
+            Timer.builder("search.serialization")
+                .tag("type", object.getClass().getSimpleName())
+                .register(meterRegistry)
+                .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static boolean isSearchResponse(Object object) {
+        return object instanceof SearchPagedModel<?> || object instanceof CursorPagedModel<?> || object instanceof MultiSearchResponse;
+    }
+}
@@ -0,0 +1,25 @@
+package com.github.ggruzdov.ecommerce.controller;
+
+import com.github.ggruzdov.ecommerce.response.CategoryStatsResponse;
+import com.github.ggruzdov.ecommerce.service.CategoryStatsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/categories")
+public class CategoryStatsController {
+
+    private final CategoryStatsService categoryStatsService;
+
+    @GetMapping("/{categoryId}/stats")
+    public CategoryStatsResponse getStats(@PathVariable Integer categoryId) {
+        log.debug("Getting category stats: categoryId = {}", categoryId);
+        return categoryStatsService.getStats(categoryId);
+    }
+}
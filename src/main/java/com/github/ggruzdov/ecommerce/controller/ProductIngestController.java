@@ -0,0 +1,32 @@
+package com.github.ggruzdov.ecommerce.controller;
+
+import com.github.ggruzdov.ecommerce.request.ProductIngestItem;
+import com.github.ggruzdov.ecommerce.response.ProductIngestResponse;
+import com.github.ggruzdov.ecommerce.service.ProductIngestService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/products")
+public class ProductIngestController {
+
+    private final ProductIngestService productIngestService;
+
+    /**
+     * Products are validated one by one by the service, so invalid ones are reported as row errors
+     * instead of rejecting the whole request.
+     */
+    @PostMapping("/bulk")
+    public ProductIngestResponse ingest(@RequestBody List<ProductIngestItem> products) {
+        log.info("Ingesting products: count = {}", products.size());
+        return productIngestService.ingest(products);
+    }
+}
@@ -1,18 +1,44 @@
 package com.github.ggruzdov.ecommerce.controller;
 
+import com.github.ggruzdov.ecommerce.component.SearchConcurrencyLimiter;
 import com.github.ggruzdov.ecommerce.request.ProductFilterSearchRequest;
 import com.github.ggruzdov.ecommerce.request.ProductFullTextSearchRequest;
+import com.github.ggruzdov.ecommerce.request.ProductMultiSearchRequest;
+import com.github.ggruzdov.ecommerce.response.CursorPagedModel;
+import com.github.ggruzdov.ecommerce.response.MultiSearchResponse;
 import com.github.ggruzdov.ecommerce.response.ProductSearchResponse;
+import com.github.ggruzdov.ecommerce.response.SearchPagedModel;
+import com.github.ggruzdov.ecommerce.response.SuggestionResponse;
+import com.github.ggruzdov.ecommerce.service.ProductExportService;
+import com.github.ggruzdov.ecommerce.service.ProductMultiSearchService;
 import com.github.ggruzdov.ecommerce.service.ProductSearchService;
+import com.github.ggruzdov.ecommerce.service.ProductSuggestionService;
+import com.github.ggruzdov.ecommerce.service.SearchHttpCache;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
-import org.springframework.data.web.PagedModel;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+import java.util.concurrent.Callable;
 
 @Slf4j
 @RestController
@@ -21,18 +47,107 @@ import org.springframework.web.bind.annotation.RestController;
 public class ProductSearchController {
 
     private final ProductSearchService productSearchService;
+    private final ProductExportService productExportService;
+    private final ProductSuggestionService productSuggestionService;
+    private final ProductMultiSearchService productMultiSearchService;
+    private final SearchConcurrencyLimiter searchConcurrencyLimiter;
+    private final SearchHttpCache searchHttpCache;
 
+    /**
+     * Not modified results are answered before a permit is taken, see SearchHttpCache.
+     */
     @PostMapping
-    public PagedModel<ProductSearchResponse> search(@Valid @RequestBody ProductFilterSearchRequest request) {
-        log.info("Searching products: categoryId = {}, brand = {}, price = {}, filters: {}",
+    public ResponseEntity<SearchPagedModel<ProductSearchResponse>> search(
+        @Valid @RequestBody ProductFilterSearchRequest request,
+        @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        log.debug("Searching products: categoryId = {}, brand = {}, price = {}, filters: {}",
+            request.categoryId(), request.brand(), request.price(), request.filters()
+        );
+        return searchHttpCache.respond("search", request, ifNoneMatch,
+            () -> searchConcurrencyLimiter.execute("search", () -> productSearchService.search(request))
+        );
+    }
+
+    /**
+     * The export permit is held until the whole response is written. It is released by the async request completion too,
+     * so it does not leak if the body is never written, e.g. the client is gone or the async dispatch is rejected.
+     */
+    @PostMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody stream(@Valid @RequestBody ProductFilterSearchRequest request, HttpServletRequest servletRequest) {
+        log.debug("Streaming products: categoryId = {}, brand = {}, price = {}, filters: {}",
             request.categoryId(), request.brand(), request.price(), request.filters()
         );
-        return productSearchService.search(request);
+        var permit = searchConcurrencyLimiter.acquireExport("stream");
+        try {
+            var body = productExportService.export(request);
+            WebAsyncUtils.getAsyncManager(servletRequest).registerCallableInterceptor(permit, new CallableProcessingInterceptor() {
+                @Override
+                public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                    permit.close();
+                }
+            });
+            return outputStream -> {
+                try (permit) {
+                    body.writeTo(outputStream);
+                }
+            };
+        } catch (RuntimeException e) {
+            permit.close();
+            throw e;
+        }
     }
 
     @PostMapping("/full-text")
-    public PagedModel<ProductSearchResponse> search(@Valid @RequestBody ProductFullTextSearchRequest request) {
-        log.info("Searching products by phrase: {}", request.phrase());
-        return productSearchService.search(request);
+    public ResponseEntity<SearchPagedModel<ProductSearchResponse>> search(
+        @Valid @RequestBody ProductFullTextSearchRequest request,
+        @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        log.debug("Searching products by phrase: {}", request.phrase());
+        return searchHttpCache.respond("full-text", request, ifNoneMatch,
+            () -> searchConcurrencyLimiter.execute("full-text", () -> productSearchService.search(request))
+        );
+    }
+
+    /**
+     * Searches take permits one by one, so the request itself does not hold one.
+     */
+    @PostMapping("/multi")
+    public MultiSearchResponse search(@Valid @RequestBody ProductMultiSearchRequest request) {
+        log.debug("Searching products by {} searches", request.searches().size());
+        return productMultiSearchService.search(request);
+    }
+
+    @PostMapping("/cursor")
+    public ResponseEntity<CursorPagedModel<ProductSearchResponse>> searchWithCursor(
+        @Valid @RequestBody ProductFilterSearchRequest request,
+        @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        log.debug("Searching products with cursor: categoryId = {}, brand = {}, price = {}, filters: {}",
+            request.categoryId(), request.brand(), request.price(), request.filters()
+        );
+        return searchHttpCache.respond("cursor", request, ifNoneMatch,
+            () -> searchConcurrencyLimiter.execute("cursor", () -> productSearchService.searchWithCursor(request))
+        );
+    }
+
+    @PostMapping("/full-text/cursor")
+    public ResponseEntity<CursorPagedModel<ProductSearchResponse>> searchWithCursor(
+        @Valid @RequestBody ProductFullTextSearchRequest request,
+        @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        log.debug("Searching products by phrase with cursor: {}", request.phrase());
+        return searchHttpCache.respond("full-text-cursor", request, ifNoneMatch,
+            () -> searchConcurrencyLimiter.execute("full-text-cursor", () -> productSearchService.searchWithCursor(request))
+        );
+    }
+
+    @GetMapping("/suggestions")
+    public List<SuggestionResponse> suggest(
+        @RequestParam @NotBlank @Size(max = 100) String query,
+        @RequestParam(defaultValue = "10") @Min(1) @Max(20) int limit
+    ) {
+        log.debug("Suggesting products: query = {}", query);
+        return searchConcurrencyLimiter.execute("suggestions", () -> productSuggestionService.suggest(query, limit));
     }
 }
@@ -0,0 +1,30 @@
+package com.github.ggruzdov.ecommerce.controller;
+
+import com.github.ggruzdov.ecommerce.component.InvalidFilterException;
+import com.github.ggruzdov.ecommerce.component.SearchOverloadedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class SearchExceptionHandler {
+
+    @ExceptionHandler(SearchOverloadedException.class)
+    public ResponseEntity<ProblemDetail> handleOverloaded(SearchOverloadedException e) {
+        // Retry-After is in whole seconds, at least one
+        long retryAfterSeconds = Math.max(1, e.getRetryAfter().toSeconds());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+            .body(ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage()));
+    }
+
+    @ExceptionHandler(InvalidFilterException.class)
+    public ResponseEntity<ProblemDetail> handleInvalidFilter(InvalidFilterException e) {
+        return ResponseEntity.badRequest()
+            .body(ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage()));
+    }
+}
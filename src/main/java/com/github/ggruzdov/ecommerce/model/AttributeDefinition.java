@@ -29,6 +29,9 @@ public class AttributeDefinition {
     @JoinColumn(name = "category_id", nullable = false)
     private Category category;
 
+    @Column(name = "display_name", nullable = false, length = 100)
+    private String displayName;
+
     @Column(name = "name", nullable = false, length = 100)
     private String name;
 
@@ -42,6 +45,12 @@ public class AttributeDefinition {
     @Column(name = "is_optional", nullable = false)
     private Boolean isOptional = false;
 
+    @Column(name = "is_filterable", nullable = false)
+    private Boolean isFilterable = false;
+
+    @Column(name = "is_promoted", nullable = false)
+    private Boolean isPromoted = false;
+
     @Column(name = "display_order", nullable = false)
     private Integer displayOrder;
 }
\ No newline at end of file
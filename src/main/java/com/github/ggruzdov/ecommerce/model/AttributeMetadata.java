@@ -0,0 +1,23 @@
+package com.github.ggruzdov.ecommerce.model;
+
+import java.util.List;
+
+/**
+ * Immutable snapshot of {@link AttributeDefinition}.
+ *
+ * @param values     allowed attribute values, empty if any value is allowed.
+ * @param filterable whether the attribute is frequently filtered by, so it deserves dedicated indexes.
+ * @param promoted   whether the attribute values are materialized into a typed column of products.
+ */
+public record AttributeMetadata(
+    Integer id,
+    String name,
+    String displayName,
+    AttributeType type,
+    List<Object> values,
+    boolean optional,
+    boolean filterable,
+    boolean promoted,
+    int displayOrder
+) {
+}
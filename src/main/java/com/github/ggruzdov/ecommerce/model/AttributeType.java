@@ -0,0 +1,44 @@
+package com.github.ggruzdov.ecommerce.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Declared type of dynamic product attribute, see 'attribute_definitions.type' column.
+ */
+public enum AttributeType {
+    INTEGER,
+    DECIMAL,
+    VARCHAR;
+
+    public boolean isNumeric() {
+        return this == INTEGER || this == DECIMAL;
+    }
+
+    /**
+     * Converts request value(number or string) to the attribute type,
+     * i.e. BigDecimal for numeric types and String otherwise.
+     */
+    public Object coerce(Object value) {
+        if (!isNumeric()) {
+            return value.toString();
+        }
+
+        try {
+            var number = new BigDecimal(value.toString());
+            if (this == INTEGER && number.stripTrailingZeros().scale() > 0) {
+                throw new IllegalArgumentException("Integer value expected: " + value);
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Numeric value expected: " + value, e);
+        }
+    }
+
+    public static AttributeType of(String type) {
+        try {
+            return valueOf(type.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown attribute type: " + type, e);
+        }
+    }
+}
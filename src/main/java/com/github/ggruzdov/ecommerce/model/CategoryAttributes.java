@@ -0,0 +1,47 @@
+package com.github.ggruzdov.ecommerce.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable set of category attributes ordered by display order.
+ */
+public class CategoryAttributes {
+
+    public static final CategoryAttributes EMPTY = new CategoryAttributes(List.of());
+
+    private final Map<String, AttributeMetadata> attributes;
+
+    public CategoryAttributes(Collection<AttributeMetadata> attributes) {
+        var ordered = new LinkedHashMap<String, AttributeMetadata>();
+        attributes.stream()
+            .sorted(Comparator.comparingInt(AttributeMetadata::displayOrder))
+            .forEach(attribute -> ordered.put(attribute.name(), attribute));
+        this.attributes = Collections.unmodifiableMap(ordered);
+    }
+
+    public Set<String> names() {
+        return attributes.keySet();
+    }
+
+    public Collection<AttributeMetadata> list() {
+        return attributes.values();
+    }
+
+    public AttributeMetadata get(String name) {
+        return attributes.get(name);
+    }
+
+    public boolean contains(String name) {
+        return attributes.containsKey(name);
+    }
+
+    public boolean isEmpty() {
+        return attributes.isEmpty();
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.ggruzdov.ecommerce.model;
+
+import java.util.Map;
+
+/**
+ * Immutable snapshot of a single category aggregates, see 'category_stats' and 'category_attribute_stats' tables.
+ *
+ * @param minPrice        the least product price in cents, null if there are no products.
+ * @param maxPrice        the greatest product price in cents, null if there are no products.
+ * @param attributeValues amount of products by attribute name and value text, e.g. RAM -> {16 -> 232}.
+ */
+public record CategoryStats(
+    long products,
+    Integer minPrice,
+    Integer maxPrice,
+    Map<String, Map<String, Long>> attributeValues
+) {
+    public static final CategoryStats EMPTY = new CategoryStats(0, null, null, Map.of());
+}
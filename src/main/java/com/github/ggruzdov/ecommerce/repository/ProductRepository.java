@@ -0,0 +1,7 @@
+package com.github.ggruzdov.ecommerce.repository;
+
+import com.github.ggruzdov.ecommerce.model.Product;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ProductRepository extends JpaRepository<Product, Integer> {
+}
@@ -0,0 +1,19 @@
+package com.github.ggruzdov.ecommerce.request;
+
+/**
+ * How the total amount of found products is calculated for offset pagination.
+ */
+public enum CountStrategy {
+    /**
+     * COUNT of all matching rows, cached per normalized filter set for a short time.
+     */
+    EXACT,
+    /**
+     * COUNT capped by a threshold, above it the planner row estimate is used.
+     */
+    ESTIMATED,
+    /**
+     * No count query, total is known only on the last page.
+     */
+    NONE
+}
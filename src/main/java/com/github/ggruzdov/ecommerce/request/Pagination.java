@@ -1,12 +1,31 @@
 package com.github.ggruzdov.ecommerce.request;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 
+/**
+ * Offset based pagination uses 'page', cursor based one(see '/cursor' search endpoints) uses 'cursor'
+ * which is taken from the previous page 'nextCursor'. Absent cursor means the first page.
+ */
 public record Pagination(
-    @NotNull
+    @Min(1)
     Integer page,
     @NotNull
-    Integer limit
+    @Min(1)
+    @Max(1000)
+    Integer limit,
+    String cursor
 ) {
     public static Pagination DEFAULT = new Pagination(1, 20);
-}
\ No newline at end of file
+
+    public Pagination {
+        if (page == null) {
+            page = 1;
+        }
+    }
+
+    public Pagination(Integer page, Integer limit) {
+        this(page, limit, null);
+    }
+}
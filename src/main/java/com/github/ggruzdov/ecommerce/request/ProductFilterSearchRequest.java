@@ -1,5 +1,6 @@
 package com.github.ggruzdov.ecommerce.request;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 
 import java.util.Map;
@@ -10,8 +11,12 @@ public record ProductFilterSearchRequest(
     String brand,
     PriceRange price,
     Map<String, FilterCondition> filters,
+    @Valid
     SortCriteria sort,
-    Pagination pagination
+    @Valid
+    Pagination pagination,
+    CountStrategy countStrategy,
+    boolean includeFacets
 ) {
     public ProductFilterSearchRequest {
         if (pagination == null) {
@@ -23,5 +28,19 @@ public record ProductFilterSearchRequest(
         if (sort == null) {
             sort = SortCriteria.DEFAULT;
         }
+        if (countStrategy == null) {
+            countStrategy = CountStrategy.EXACT;
+        }
+    }
+
+    public ProductFilterSearchRequest(
+        Integer categoryId,
+        String brand,
+        PriceRange price,
+        Map<String, FilterCondition> filters,
+        SortCriteria sort,
+        Pagination pagination
+    ) {
+        this(categoryId, brand, price, filters, sort, pagination, null, false);
     }
 }
@@ -1,12 +1,16 @@
 package com.github.ggruzdov.ecommerce.request;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 
 public record ProductFullTextSearchRequest(
     @NotBlank
     String phrase,
+    @Valid
     SortCriteria sort,
-    Pagination pagination
+    @Valid
+    Pagination pagination,
+    CountStrategy countStrategy
 ) {
     public ProductFullTextSearchRequest {
         if (pagination == null) {
@@ -15,5 +19,12 @@ public record ProductFullTextSearchRequest(
         if (sort == null) {
             sort = SortCriteria.DEFAULT;
         }
+        if (countStrategy == null) {
+            countStrategy = CountStrategy.EXACT;
+        }
+    }
+
+    public ProductFullTextSearchRequest(String phrase, SortCriteria sort, Pagination pagination) {
+        this(phrase, sort, pagination, null);
     }
 }
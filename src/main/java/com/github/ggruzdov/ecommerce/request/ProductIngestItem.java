@@ -0,0 +1,47 @@
+package com.github.ggruzdov.ecommerce.request;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Product of bulk ingest, an existing product with the same SKU is replaced.
+ *
+ * @param price      in cents.
+ * @param attributes validated against category attribute definitions.
+ */
+public record ProductIngestItem(
+    @NotBlank
+    @Size(max = 50)
+    String sku,
+    @NotBlank
+    @Size(max = 100)
+    String name,
+    @NotNull
+    Integer categoryId,
+    @Size(max = 50)
+    String brand,
+    @NotNull
+    String description,
+    @NotNull
+    @Min(0)
+    Integer price,
+    @NotNull
+    @DecimalMin("0")
+    BigDecimal weight,
+    Map<String, Object> attributes
+) {
+    public ProductIngestItem {
+        if (brand == null) {
+            brand = "Other";
+        }
+        if (attributes == null) {
+            attributes = Map.of();
+        }
+    }
+}
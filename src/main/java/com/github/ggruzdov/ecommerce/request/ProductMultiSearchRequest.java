@@ -0,0 +1,36 @@
+package com.github.ggruzdov.ecommerce.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Independent searches of a page, e.g. blocks of a category landing page, executed concurrently.
+ * Identical searches are executed once.
+ */
+public record ProductMultiSearchRequest(
+    @NotEmpty
+    @Size(max = 20)
+    List<@NotNull @Valid Search> searches
+) {
+
+    /**
+     * Either a filter or a full-text search.
+     */
+    public record Search(
+        @Valid
+        ProductFilterSearchRequest filter,
+        @Valid
+        ProductFullTextSearchRequest fullText
+    ) {
+
+        @AssertTrue(message = "exactly one of 'filter' and 'fullText' must be set")
+        public boolean isSingle() {
+            return (filter == null) != (fullText == null);
+        }
+    }
+}
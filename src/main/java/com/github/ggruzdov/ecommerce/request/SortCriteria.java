@@ -1,12 +1,23 @@
 package com.github.ggruzdov.ecommerce.request;
 
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
 
 public record SortCriteria(
     @NotBlank
-    String field, // created_at, price
+    @Pattern(regexp = "created_at|price|relevance")
+    String field, // created_at, price, relevance(full-text search only)
     @NotBlank
+    @Pattern(regexp = "(?i)asc|desc")
     String order  // asc, desc
 ) {
-    public static SortCriteria DEFAULT = new SortCriteria("created_at", "desc");
-}
\ No newline at end of file
+    public static final String CREATED_AT = "created_at";
+    public static final String PRICE = "price";
+    public static final String RELEVANCE = "relevance";
+
+    public static SortCriteria DEFAULT = new SortCriteria(CREATED_AT, "desc");
+
+    public boolean isRelevance() {
+        return RELEVANCE.equals(field);
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.ggruzdov.ecommerce.response;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates of a category subtree for range sliders and price widgets.
+ *
+ * @param minPrice   the least product price, null if there are no products.
+ * @param maxPrice   the greatest product price, null if there are no products.
+ * @param attributes statistics by attribute name, ordered by attribute display order.
+ */
+public record CategoryStatsResponse(
+    Integer categoryId,
+    long products,
+    BigDecimal minPrice,
+    BigDecimal maxPrice,
+    Map<String, AttributeStats> attributes
+) {
+
+    /**
+     * @param min    the least value of a numeric attribute, null for other types or if there are no values.
+     * @param max    the greatest value of a numeric attribute, null for other types or if there are no values.
+     * @param values amount of products per value: numeric values in ascending order, others the most frequent first.
+     */
+    public record AttributeStats(
+        BigDecimal min,
+        BigDecimal max,
+        List<ValueCount> values
+    ) {
+    }
+
+    /**
+     * @param value attribute value of the attribute type, i.e. a number or a string.
+     */
+    public record ValueCount(
+        Object value,
+        long count
+    ) {
+    }
+}
@@ -0,0 +1,18 @@
+package com.github.ggruzdov.ecommerce.response;
+
+import java.util.List;
+
+/**
+ * Cursor based counterpart of {@link org.springframework.data.web.PagedModel}.
+ * There is no page number and total amount of elements, 'nextCursor' is null on the last page.
+ */
+public record CursorPagedModel<T>(
+    List<T> content,
+    CursorMetadata page
+) {
+    public record CursorMetadata(
+        long size,
+        String nextCursor
+    ) {
+    }
+}
@@ -0,0 +1,25 @@
+package com.github.ggruzdov.ecommerce.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.http.ProblemDetail;
+
+import java.util.List;
+
+/**
+ * @param results results of the searches in the request order.
+ */
+public record MultiSearchResponse(
+    List<Result> results
+) {
+
+    /**
+     * @param page  found products, null if the search failed.
+     * @param error why the search failed, its status is the one the single search endpoint would respond with.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Result(
+        SearchPagedModel<ProductSearchResponse> page,
+        ProblemDetail error
+    ) {
+    }
+}
@@ -0,0 +1,25 @@
+package com.github.ggruzdov.ecommerce.response;
+
+import java.util.List;
+
+/**
+ * @param received amount of products in the request.
+ * @param upserted amount of inserted or updated products.
+ * @param errors   rejected products.
+ */
+public record ProductIngestResponse(
+    int received,
+    int upserted,
+    List<RowError> errors
+) {
+
+    /**
+     * @param index position of the product in the request.
+     */
+    public record RowError(
+        int index,
+        String sku,
+        String message
+    ) {
+    }
+}
@@ -3,7 +3,6 @@ package com.github.ggruzdov.ecommerce.response;
 import com.github.ggruzdov.ecommerce.model.Product;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.Instant;
 import java.util.Map;
 
@@ -23,7 +22,7 @@ public record ProductSearchResponse(
             product.getName(),
             product.getBrand(),
             product.getDescription(),
-            BigDecimal.valueOf(product.getPrice()).divide(BigDecimal.valueOf(100), 2, RoundingMode.UNNECESSARY),
+            BigDecimal.valueOf(product.getPrice(), 2),
             product.getWeight(),
             product.getAttributes(),
             product.getCreatedAt()
@@ -0,0 +1,63 @@
+package com.github.ggruzdov.ecommerce.response;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Product attributes backed by the raw JSONB text of the column.
+ * The JSON is written to responses as is, it is parsed only if attributes are accessed as a map.
+ */
+@JsonSerialize(using = RawJsonAttributes.Serializer.class)
+public final class RawJsonAttributes extends AbstractMap<String, Object> {
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+    private final String json;
+    private final ObjectMapper objectMapper;
+    private Map<String, Object> parsed;
+
+    public RawJsonAttributes(String json, ObjectMapper objectMapper) {
+        this.json = json;
+        this.objectMapper = objectMapper;
+    }
+
+    public String json() {
+        return json;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        if (parsed == null) {
+            try {
+                parsed = Collections.unmodifiableMap(objectMapper.readValue(json, MAP_TYPE));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Invalid attributes JSON: " + json, e);
+            }
+        }
+
+        return parsed.entrySet();
+    }
+
+    public static class Serializer extends StdSerializer<RawJsonAttributes> {
+
+        public Serializer() {
+            super(RawJsonAttributes.class);
+        }
+
+        @Override
+        public void serialize(RawJsonAttributes value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeRawValue(value.json);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.ggruzdov.ecommerce.response;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Amount of products per facet value. Counts of a facet take into account all active filters except the facet own ones,
+ * i.e. they show how many products would be found if the facet filter is changed to the value.
+ *
+ * @param attributes facet values by attribute name, ordered by attribute display order.
+ */
+public record SearchFacets(
+    List<FacetValue> brands,
+    List<PriceBucket> prices,
+    Map<String, List<FacetValue>> attributes
+) {
+
+    public record FacetValue(
+        String value,
+        long count
+    ) {
+    }
+
+    /**
+     * @param from inclusive lower bound.
+     * @param to   exclusive upper bound.
+     */
+    public record PriceBucket(
+        BigDecimal from,
+        BigDecimal to,
+        long count
+    ) {
+    }
+}
@@ -0,0 +1,41 @@
+package com.github.ggruzdov.ecommerce.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.data.domain.Page;
+import org.springframework.data.web.PagedModel;
+
+/**
+ * {@link PagedModel} which tells whether 'page.totalElements' is exact
+ * or an estimate/lower bound, see {@link com.github.ggruzdov.ecommerce.request.CountStrategy}.
+ * Filter search might also have facets, see {@link SearchFacets}.
+ */
+public class SearchPagedModel<T> extends PagedModel<T> {
+
+    private final Page<T> page;
+    private final boolean totalExact;
+    private final SearchFacets facets;
+
+    public SearchPagedModel(Page<T> page, boolean totalExact) {
+        this(page, totalExact, null);
+    }
+
+    public SearchPagedModel(Page<T> page, boolean totalExact, SearchFacets facets) {
+        super(page);
+        this.page = page;
+        this.totalExact = totalExact;
+        this.facets = facets;
+    }
+
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public SearchFacets getFacets() {
+        return facets;
+    }
+
+    public SearchPagedModel<T> withFacets(SearchFacets facets) {
+        return new SearchPagedModel<>(page, totalExact, facets);
+    }
+}
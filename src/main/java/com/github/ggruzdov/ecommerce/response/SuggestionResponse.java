@@ -0,0 +1,24 @@
+package com.github.ggruzdov.ecommerce.response;
+
+/**
+ * Search box suggestion.
+ *
+ * @param text       suggested text as it is stored, e.g. product name.
+ * @param categoryId category of the product or the attribute, null for brands.
+ * @param attribute  attribute name of attribute value suggestions, null otherwise.
+ * @param productId  id of a product having the name for product suggestions, null otherwise.
+ */
+public record SuggestionResponse(
+    String text,
+    Type type,
+    Integer categoryId,
+    String attribute,
+    Integer productId
+) {
+
+    public enum Type {
+        BRAND,
+        ATTRIBUTE,
+        PRODUCT
+    }
+}
@@ -1,25 +1,101 @@
 package com.github.ggruzdov.ecommerce.service;
 
-import com.github.ggruzdov.ecommerce.model.AttributeDefinition;
-import com.github.ggruzdov.ecommerce.repository.AttributeDefinitionRepository;
+import com.github.ggruzdov.ecommerce.component.AttributeDefinitionRegistry;
+import com.github.ggruzdov.ecommerce.component.AttributeDefinitionsRefreshedEvent;
+import com.github.ggruzdov.ecommerce.component.CategoryTree;
+import com.github.ggruzdov.ecommerce.component.CategoryTreeRefreshedEvent;
+import com.github.ggruzdov.ecommerce.model.AttributeMetadata;
+import com.github.ggruzdov.ecommerce.model.CategoryAttributes;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 @Service
 @RequiredArgsConstructor
 public class AttributeDefinitionService {
 
-    private final AttributeDefinitionRepository attributeDefinitionRepository;
+    private final AttributeDefinitionRegistry attributeDefinitionRegistry;
+    private final CategoryTree categoryTree;
+    private final Map<Integer, CategoryAttributes> subtreeAttributes = new ConcurrentHashMap<>();
 
-    // For production consider cache
     public Set<String> getAttributeNames(Integer categoryId) {
-        return attributeDefinitionRepository.findAllByCategoryId(categoryId)
-            .stream()
-            .map(AttributeDefinition::getName)
-            .collect(Collectors.toSet());
+        return getAttributes(categoryId).names();
+    }
+
+    /**
+     * Attributes of the category subtree(see {@link CategoryTree}), i.e. the attributes which are common
+     * to all subtree categories having any attributes. Categories without attributes, like grouping ones,
+     * do not restrict the set. An attribute is common if it has the same name and type in all those categories.
+     */
+    public CategoryAttributes getAttributes(Integer categoryId) {
+        var subtree = categoryTree.getSubtree(categoryId);
+        if (subtree.size() == 1) {
+            return attributeDefinitionRegistry.getCategoryAttributes(categoryId);
+        }
+
+        return subtreeAttributes.computeIfAbsent(categoryId, key -> commonAttributes(subtree));
+    }
+
+    @EventListener({AttributeDefinitionsRefreshedEvent.class, CategoryTreeRefreshedEvent.class})
+    public void onRefresh() {
+        subtreeAttributes.clear();
+    }
+
+    private CategoryAttributes commonAttributes(List<Integer> subtree) {
+        var categories = subtree.stream()
+            .map(attributeDefinitionRegistry::getCategoryAttributes)
+            .filter(attributes -> !attributes.isEmpty())
+            .toList();
+        if (categories.size() <= 1) {
+            return categories.isEmpty() ? CategoryAttributes.EMPTY : categories.getFirst();
+        }
+
+        var common = new ArrayList<AttributeMetadata>();
+        for (var attribute : categories.getFirst().list()) {
+            var merged = attribute;
+            for (var category : categories.subList(1, categories.size())) {
+                var other = category.get(attribute.name());
+                if (other == null || other.type() != attribute.type()) {
+                    merged = null;
+                    break;
+                }
+                merged = merge(merged, other);
+            }
+            if (merged != null) {
+                common.add(merged);
+            }
+        }
+
+        return new CategoryAttributes(common);
+    }
+
+    /**
+     * Promoted columns are per category(see PromotedAttributeManager), so a merged attribute is not promoted.
+     */
+    private static AttributeMetadata merge(AttributeMetadata attribute, AttributeMetadata other) {
+        var values = new LinkedHashSet<>(attribute.values());
+        values.addAll(other.values());
+        // Any value is allowed if any category allows it
+        var mergedValues = attribute.values().isEmpty() || other.values().isEmpty() ? List.of() : List.copyOf(values);
+
+        return new AttributeMetadata(
+            attribute.id(),
+            attribute.name(),
+            attribute.displayName(),
+            attribute.type(),
+            mergedValues,
+            attribute.optional() || other.optional(),
+            attribute.filterable() && other.filterable(),
+            false,
+            attribute.displayOrder()
+        );
     }
 }
@@ -0,0 +1,102 @@
+package com.github.ggruzdov.ecommerce.service;
+
+import com.github.ggruzdov.ecommerce.component.CategoryStatsRegistry;
+import com.github.ggruzdov.ecommerce.component.CategoryTree;
+import com.github.ggruzdov.ecommerce.model.AttributeMetadata;
+import com.github.ggruzdov.ecommerce.response.CategoryStatsResponse;
+import com.github.ggruzdov.ecommerce.response.CategoryStatsResponse.AttributeStats;
+import com.github.ggruzdov.ecommerce.response.CategoryStatsResponse.ValueCount;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+public class CategoryStatsService {
+
+    private final CategoryStatsRegistry categoryStatsRegistry;
+    private final CategoryTree categoryTree;
+    private final AttributeDefinitionService attributeDefinitionService;
+
+    /**
+     * Aggregates of the category subtree(see {@link CategoryTree}) merged from in-memory per category ones,
+     * see {@link CategoryStatsRegistry}, so there is no query per request.
+     * Attribute statistics cover the attributes the subtree can be filtered by, see {@link AttributeDefinitionService},
+     * values are typed by the attribute definitions.
+     */
+    public CategoryStatsResponse getStats(Integer categoryId) {
+        long products = 0;
+        Integer minPrice = null;
+        Integer maxPrice = null;
+        var attributes = attributeDefinitionService.getAttributes(categoryId);
+        var valueCounts = new HashMap<String, Map<String, Long>>();
+        for (var subtreeCategoryId : categoryTree.getSubtree(categoryId)) {
+            var stats = categoryStatsRegistry.getCategoryStats(subtreeCategoryId);
+            products += stats.products();
+            if (stats.minPrice() != null && (minPrice == null || stats.minPrice() < minPrice)) {
+                minPrice = stats.minPrice();
+            }
+            if (stats.maxPrice() != null && (maxPrice == null || stats.maxPrice() > maxPrice)) {
+                maxPrice = stats.maxPrice();
+            }
+            stats.attributeValues().forEach((attribute, counts) -> {
+                if (attributes.contains(attribute)) {
+                    var merged = valueCounts.computeIfAbsent(attribute, key -> new HashMap<>());
+                    counts.forEach((value, count) -> merged.merge(value, count, Long::sum));
+                }
+            });
+        }
+
+        var attributeStats = new LinkedHashMap<String, AttributeStats>();
+        for (var attribute : attributes.list()) {
+            attributeStats.put(attribute.name(), attributeStats(attribute, valueCounts.getOrDefault(attribute.name(), Map.of())));
+        }
+
+        return new CategoryStatsResponse(
+            categoryId,
+            products,
+            minPrice == null ? null : BigDecimal.valueOf(minPrice, 2),
+            maxPrice == null ? null : BigDecimal.valueOf(maxPrice, 2),
+            attributeStats
+        );
+    }
+
+    private static AttributeStats attributeStats(AttributeMetadata attribute, Map<String, Long> counts) {
+        var type = attribute.type();
+        var values = new ArrayList<ValueCount>(counts.size());
+        counts.forEach((value, count) -> {
+            try {
+                values.add(new ValueCount(type.coerce(value), count));
+            } catch (IllegalArgumentException e) {
+                // A value stored before the attribute type was changed, it is not filterable by anyway
+            }
+        });
+
+        if (!type.isNumeric()) {
+            values.sort(Comparator.comparingLong(ValueCount::count).reversed().thenComparing(value -> (String) value.value()));
+            return new AttributeStats(null, null, values);
+        }
+
+        // Numerically equal values, e.g. 14 and 14.0, are the same slider position
+        var merged = new HashMap<BigDecimal, Long>();
+        for (var value : values) {
+            var number = ((BigDecimal) value.value()).stripTrailingZeros();
+            merged.merge(number.scale() < 0 ? number.setScale(0) : number, value.count(), Long::sum);
+        }
+        var numericValues = merged.entrySet()
+            .stream()
+            .sorted(Map.Entry.comparingByKey())
+            .map(entry -> new ValueCount(entry.getKey(), entry.getValue()))
+            .toList();
+
+        return numericValues.isEmpty()
+            ? new AttributeStats(null, null, numericValues)
+            : new AttributeStats((BigDecimal) numericValues.getFirst().value(), (BigDecimal) numericValues.getLast().value(), numericValues);
+    }
+}
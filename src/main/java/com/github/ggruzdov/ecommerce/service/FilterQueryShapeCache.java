@@ -0,0 +1,85 @@
+package com.github.ggruzdov.ecommerce.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.ggruzdov.ecommerce.component.FilterOperator;
+import com.github.ggruzdov.ecommerce.config.SearchProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of filter query SQL by filter shape.
+ * <p>
+ * The SQL of a filter query depends only on its shape: category, presence of brand/price filters
+ * and the set of (attribute, operator) pairs, while all values go as parameters.
+ * So requests of the same shape share the same statement text, which is parsed once
+ * by Hibernate(query interpretation cache) and prepared once per connection by Postgres JDBC driver.
+ */
+@Component
+public class FilterQueryShapeCache {
+
+    private final Cache<FilterShape, FilterTemplate> templates;
+    private final Counter hits;
+    private final Counter misses;
+
+    public FilterQueryShapeCache(SearchProperties searchProperties, MeterRegistry meterRegistry) {
+        this.templates = Caffeine.newBuilder()
+            .maximumSize(searchProperties.queryShapes().cacheMaxSize())
+            .build();
+        this.hits = meterRegistry.counter("search.query.shapes", "result", "hit");
+        this.misses = meterRegistry.counter("search.query.shapes", "result", "miss");
+        Gauge.builder("search.query.shapes.size", templates, Cache::estimatedSize)
+            .register(meterRegistry);
+    }
+
+    FilterTemplate get(FilterShape shape, Function<FilterShape, FilterTemplate> compiler) {
+        var template = templates.getIfPresent(shape);
+        if (template != null) {
+            hits.increment();
+            return template;
+        }
+
+        misses.increment();
+        return templates.get(shape, compiler);
+    }
+
+    /**
+     * @param categoryIds ids of the category and its descendants.
+     * @param attributes  filtered attributes sorted by name.
+     */
+    record FilterShape(
+        List<Integer> categoryIds,
+        boolean brand,
+        boolean minPrice,
+        boolean maxPrice,
+        List<AttributeShape> attributes
+    ) {
+    }
+
+    /**
+     * @param promotedId attribute id if it is filtered by its typed column, null otherwise.
+     * @param numeric    whether the attribute type is numeric.
+     */
+    record AttributeShape(
+        String attribute,
+        FilterOperator operator,
+        Integer promotedId,
+        boolean numeric
+    ) {
+    }
+
+    /**
+     * @param sql             query without sorting and pagination.
+     * @param facetConditions the same conditions split by facets.
+     */
+    record FilterTemplate(
+        String sql,
+        ProductSearchService.FacetConditions facetConditions
+    ) {
+    }
+}
@@ -0,0 +1,107 @@
+package com.github.ggruzdov.ecommerce.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.ggruzdov.ecommerce.config.SearchProperties;
+import com.github.ggruzdov.ecommerce.request.CountStrategy;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Calculates total amount of rows for search queries according to {@link CountStrategy}.
+ */
+@Service
+public class ProductCountService {
+
+    private static final Pattern PLAN_ROWS = Pattern.compile("rows=(\\d+)");
+
+    private final EntityManager entityManager;
+    private final int estimateThreshold;
+    private final Cache<CountKey, Long> exactCounts;
+
+    public ProductCountService(EntityManager entityManager, SearchProperties searchProperties) {
+        var countProperties = searchProperties.count();
+        this.entityManager = entityManager;
+        this.estimateThreshold = countProperties.estimateThreshold();
+        this.exactCounts = Caffeine.newBuilder()
+            .maximumSize(countProperties.cacheMaxSize())
+            .expireAfterWrite(countProperties.cacheTtl())
+            .build();
+    }
+
+    /**
+     * @param sql      search query without sorting and pagination, must start with 'SELECT *'.
+     * @param params   named query parameters.
+     * @param strategy count strategy, {@link CountStrategy#NONE} is not supported as there is nothing to count.
+     * @return total amount of rows and whether it is exact.
+     */
+    public Total count(String sql, Map<String, Object> params, CountStrategy strategy) {
+        return switch (strategy) {
+            case EXACT -> new Total(exactCounts.get(new CountKey(sql, Map.copyOf(params)), key -> exactCount(sql, params)), true);
+            case ESTIMATED -> estimatedCount(sql, params);
+            case NONE -> throw new IllegalArgumentException("Count strategy is not supported: " + strategy);
+        };
+    }
+
+    /**
+     * @param sql search query without sorting and pagination, must start with 'SELECT *'.
+     * @return the count query {@link #count(String, Map, CountStrategy)} executes, e.g. for slow query logs.
+     */
+    public String countSql(String sql, CountStrategy strategy) {
+        return switch (strategy) {
+            case EXACT -> sql.replaceFirst("SELECT \\*", "SELECT COUNT(1)");
+            // Stops after threshold + 1 matched rows
+            case ESTIMATED -> "SELECT COUNT(1) FROM (" + sql.replaceFirst("SELECT \\*", "SELECT 1") + " LIMIT " + (estimateThreshold + 1) + ") t";
+            case NONE -> throw new IllegalArgumentException("Count strategy is not supported: " + strategy);
+        };
+    }
+
+    private long exactCount(String sql, Map<String, Object> params) {
+        var countQuery = entityManager.createNativeQuery(countSql(sql, CountStrategy.EXACT), Long.class);
+        params.forEach(countQuery::setParameter);
+
+        return (long) countQuery.getSingleResult();
+    }
+
+    /**
+     * Counts rows up to the threshold, so the query stops after threshold + 1 matched rows.
+     * If there are more rows than that, the planner row estimate of the search query is used instead.
+     * <p>
+     * The count query might look like:
+     * SELECT COUNT(1) FROM (SELECT 1 FROM products p WHERE p.category_id = ? LIMIT 10001) t
+     */
+    private Total estimatedCount(String sql, Map<String, Object> params) {
+        var countQuery = entityManager.createNativeQuery(countSql(sql, CountStrategy.ESTIMATED), Long.class);
+        params.forEach(countQuery::setParameter);
+        long cappedCount = (long) countQuery.getSingleResult();
+        if (cappedCount <= estimateThreshold) {
+            return new Total(cappedCount, true);
+        }
+
+        // The first plan line is the top node, e.g. "Seq Scan on products p  (cost=0.00..574.00 rows=1000 width=311)"
+        var explainQuery = entityManager.createNativeQuery("EXPLAIN " + sql, String.class);
+        params.forEach(explainQuery::setParameter);
+        @SuppressWarnings("unchecked")
+        var plan = (List<String>) explainQuery.getResultList();
+        var matcher = PLAN_ROWS.matcher(plan.getFirst());
+        long estimate = matcher.find() ? Long.parseLong(matcher.group(1)) : 0;
+
+        return new Total(Math.max(estimate, cappedCount), false);
+    }
+
+    public record Total(
+        long value,
+        boolean exact
+    ) {
+    }
+
+    private record CountKey(
+        String sql,
+        Map<String, Object> params
+    ) {
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.ggruzdov.ecommerce.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.ggruzdov.ecommerce.config.SearchProperties;
+import com.github.ggruzdov.ecommerce.request.ProductFilterSearchRequest;
+import com.github.ggruzdov.ecommerce.response.ProductSearchResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Exports all products matching a filter search as NDJSON(one product JSON per line).
+ */
+@Slf4j
+@Service
+public class ProductExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ProductSearchService productSearchService;
+    private final ProductResultReader productResultReader;
+    private final ObjectWriter productWriter;
+    private final int flushEvery;
+
+    public ProductExportService(
+        ProductSearchService productSearchService,
+        ProductResultReader productResultReader,
+        ObjectMapper objectMapper,
+        SearchProperties searchProperties
+    ) {
+        this.productSearchService = productSearchService;
+        this.productResultReader = productResultReader;
+        // The writer must neither close nor flush the response on every product
+        this.productWriter = objectMapper.writerFor(ProductSearchResponse.class)
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.flushEvery = searchProperties.stream().fetchSize();
+    }
+
+    /**
+     * The query is built(and so the request is validated) right away, rows are streamed once the body is written.
+     * Pagination and count strategy of the request are ignored, facets are not included.
+     * <p>
+     * Writes block while the client does not read, so rows are fetched no faster than the client consumes them.
+     * The response is flushed after each fetched portion of rows. Once the client disconnects
+     * the write fails and the query is stopped, see {@link ProductResultReader#stream}.
+     *
+     * @param request set of attributes to filter products.
+     * @return NDJSON body of all matched products in the requested order.
+     */
+    public StreamingResponseBody export(ProductFilterSearchRequest request) {
+        var searchQuery = productSearchService.buildFilterQuery(request);
+        var sort = searchQuery.sort();
+        var sql = searchQuery.sql()
+            .append(" ORDER BY ").append(searchQuery.orderExpression()).append(" ").append(sort.order())
+            .append(", p.id ").append(sort.order())
+            .toString();
+
+        return outputStream -> {
+            var output = new BufferedOutputStream(outputStream, BUFFER_SIZE);
+            var rows = new long[1];
+            try {
+                productResultReader.stream(sql, searchQuery.params(), product -> {
+                    try {
+                        productWriter.writeValue(output, product);
+                        output.write('\n');
+                        if (++rows[0] % flushEvery == 0) {
+                            output.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                log.info("Products export aborted after {} rows: {}", rows[0], e.getMessage());
+                throw e.getCause();
+            }
+
+            output.flush();
+            log.info("Products exported: categoryId = {}, rows = {}", request.categoryId(), rows[0]);
+        };
+    }
+}
@@ -0,0 +1,159 @@
+package com.github.ggruzdov.ecommerce.service;
+
+import com.github.ggruzdov.ecommerce.component.QueryShape;
+import com.github.ggruzdov.ecommerce.component.SearchMetrics;
+import com.github.ggruzdov.ecommerce.config.SearchProperties;
+import com.github.ggruzdov.ecommerce.model.AttributeMetadata;
+import com.github.ggruzdov.ecommerce.model.CategoryAttributes;
+import com.github.ggruzdov.ecommerce.response.SearchFacets;
+import com.github.ggruzdov.ecommerce.response.SearchFacets.FacetValue;
+import com.github.ggruzdov.ecommerce.response.SearchFacets.PriceBucket;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calculates facet counts of filter search in a single aggregated query.
+ */
+@Service
+public class ProductFacetService {
+
+    private static final String BRAND_FACET = "brand";
+    private static final String PRICE_FACET = "price";
+    // Attribute facets are prefixed, so they never clash with brand and price ones
+    private static final String ATTRIBUTE_FACET_PREFIX = "attribute:";
+
+    private final EntityManager entityManager;
+    private final SearchMetrics searchMetrics;
+    private final int priceBucketSize;
+
+    public ProductFacetService(EntityManager entityManager, SearchMetrics searchMetrics, SearchProperties searchProperties) {
+        this.entityManager = entityManager;
+        this.searchMetrics = searchMetrics;
+        this.priceBucketSize = searchProperties.facets().priceBucketSize();
+    }
+
+    /**
+     * Every product row is expanded into one row per facet by LATERAL VALUES. Each facet row carries the facet value
+     * and whether the product matches all filters except the facet own ones, so all facets are counted by a single
+     * scan of the category.
+     * <p>
+     * The query might look like:
+     * SELECT f.facet, f.value, COUNT(1)
+     * FROM products p
+     * CROSS JOIN LATERAL (VALUES
+     *     ('brand', p.brand, TRUE AND (p.attributes->>'RAM')::NUMERIC >= 16),
+     *     ('price', ((p.price / 50000) * 50000)::TEXT, TRUE AND p.brand = 'Dell' AND (p.attributes->>'RAM')::NUMERIC >= 16),
+     *     ('attribute:RAM', p.attributes->>'RAM', TRUE AND p.brand = 'Dell'),
+     *     ('attribute:processor', p.attributes->>'processor', TRUE AND p.brand = 'Dell' AND (p.attributes->>'RAM')::NUMERIC >= 16)
+     * ) f(facet, value, matched)
+     * WHERE p.category_id = 2 AND f.matched AND f.value IS NOT NULL
+     * GROUP BY f.facet, f.value
+     *
+     * @param facetConditions search filter conditions split by facets, including the category one.
+     * @param params          named parameters of the conditions.
+     * @param attributes      category subtree attributes, each of them is a facet.
+     * @param shape           metrics tags of the search query.
+     */
+    SearchFacets calculate(
+        ProductSearchService.FacetConditions facetConditions,
+        Map<String, Object> params,
+        CategoryAttributes attributes,
+        QueryShape shape
+    ) {
+        var facetValues = new LinkedHashMap<String, String>();
+        facetValues.put(BRAND_FACET, "p.brand");
+        facetValues.put(PRICE_FACET, "((p.price / " + priceBucketSize + ") * " + priceBucketSize + ")::TEXT");
+        attributes.names().forEach(name ->
+            facetValues.put(ATTRIBUTE_FACET_PREFIX + name, "p.attributes->>'" + name.replace("'", "''") + "'")
+        );
+
+        // Linked map keeps the same SQL text for the same filter shape
+        var conditions = new LinkedHashMap<String, String>();
+        conditions.put(BRAND_FACET, facetConditions.brand());
+        conditions.put(PRICE_FACET, facetConditions.price());
+        facetConditions.attributes().forEach((name, condition) -> conditions.put(ATTRIBUTE_FACET_PREFIX + name, condition));
+
+        var sql = new StringBuilder("SELECT f.facet, f.value, COUNT(1) FROM products p CROSS JOIN LATERAL (VALUES ");
+        var first = true;
+        for (var facet : facetValues.entrySet()) {
+            if (!first) {
+                sql.append(", ");
+            }
+            first = false;
+
+            sql.append("('").append(facet.getKey().replace("'", "''")).append("', ").append(facet.getValue()).append(", TRUE");
+            conditions.forEach((conditionFacet, condition) -> {
+                if (!conditionFacet.equals(facet.getKey())) {
+                    sql.append(condition);
+                }
+            });
+            sql.append(")");
+        }
+        sql.append(") f(facet, value, matched) WHERE ").append(facetConditions.category())
+            .append(" AND f.matched AND f.value IS NOT NULL GROUP BY f.facet, f.value");
+
+        var query = entityManager.createNativeQuery(sql.toString(), Object[].class);
+        // Each condition is used by every facet but its own one, and there are at least two facets(brand and price)
+        params.forEach(query::setParameter);
+
+        @SuppressWarnings("unchecked")
+        var rows = searchMetrics.timeQuery("facets", shape, sql.toString(), params, () -> (List<Object[]>) query.getResultList());
+        var counts = new HashMap<String, List<FacetValue>>();
+        for (var row : rows) {
+            counts.computeIfAbsent((String) row[0], key -> new ArrayList<>())
+                .add(new FacetValue((String) row[1], ((Number) row[2]).longValue()));
+        }
+
+        return new SearchFacets(
+            brands(counts.getOrDefault(BRAND_FACET, List.of())),
+            prices(counts.getOrDefault(PRICE_FACET, List.of())),
+            attributes(counts, attributes)
+        );
+    }
+
+    private static List<FacetValue> brands(List<FacetValue> values) {
+        return values.stream()
+            .sorted(Comparator.comparingLong(FacetValue::count).reversed().thenComparing(FacetValue::value))
+            .toList();
+    }
+
+    private List<PriceBucket> prices(List<FacetValue> values) {
+        return values.stream()
+            .map(value -> {
+                long from = Long.parseLong(value.value());
+                return new PriceBucket(BigDecimal.valueOf(from, 2), BigDecimal.valueOf(from + priceBucketSize, 2), value.count());
+            })
+            .sorted(Comparator.comparing(PriceBucket::from))
+            .toList();
+    }
+
+    /**
+     * Values are ordered as in attribute definition, values not defined there go last by count.
+     */
+    private static Map<String, List<FacetValue>> attributes(Map<String, List<FacetValue>> counts, CategoryAttributes attributes) {
+        var result = new LinkedHashMap<String, List<FacetValue>>();
+        for (AttributeMetadata attribute : attributes.list()) {
+            var definedValues = attribute.values().stream().map(Object::toString).toList();
+            Comparator<FacetValue> definedOrder = Comparator.comparingInt(value -> {
+                int index = definedValues.indexOf(value.value());
+                return index < 0 ? Integer.MAX_VALUE : index;
+            });
+
+            var values = counts.getOrDefault(ATTRIBUTE_FACET_PREFIX + attribute.name(), List.of())
+                .stream()
+                .sorted(definedOrder.thenComparing(Comparator.comparingLong(FacetValue::count).reversed()))
+                .toList();
+            result.put(attribute.name(), values);
+        }
+
+        return result;
+    }
+}
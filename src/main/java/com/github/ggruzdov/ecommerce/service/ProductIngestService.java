@@ -0,0 +1,267 @@
+package com.github.ggruzdov.ecommerce.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ggruzdov.ecommerce.component.AttributeDefinitionRegistry;
+import com.github.ggruzdov.ecommerce.component.ProductsChangedEvent;
+import com.github.ggruzdov.ecommerce.config.IngestProperties;
+import com.github.ggruzdov.ecommerce.model.AttributeMetadata;
+import com.github.ggruzdov.ecommerce.request.ProductIngestItem;
+import com.github.ggruzdov.ecommerce.response.ProductIngestResponse;
+import com.github.ggruzdov.ecommerce.response.ProductIngestResponse.RowError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk products ingest: products are validated one by one, valid ones are upserted by SKU
+ * with JDBC batches(rewritten by the driver into multi-row inserts, see 'reWriteBatchedInserts'),
+ * one transaction per chunk of 'ecommerce.ingest.chunk-size' products.
+ */
+@Slf4j
+@Service
+public class ProductIngestService {
+
+    private static final String UPSERT_QUERY = """
+        INSERT INTO products(sku, name, category_id, brand, description, price, weight, attributes)
+        VALUES (?, ?, ?, ?, ?, ?, ?, cast(? as jsonb))
+        ON CONFLICT (sku, category_id) DO UPDATE SET
+            name = excluded.name,
+            brand = excluded.brand,
+            description = excluded.description,
+            price = excluded.price,
+            weight = excluded.weight,
+            attributes = excluded.attributes,
+            updated_at = clock_timestamp()
+        """;
+
+    private static final String CATEGORIES_BY_SKU_QUERY = "SELECT DISTINCT category_id FROM products WHERE sku = ANY(?)";
+
+    /**
+     * Upserts conflict by SKU within a category partition only(SKUs across partitions are unique by 'product_skus',
+     * see V1.16 migration), so products moved to another category are moved by an update first,
+     * which keeps their ids, and then upserted in their new partitions.
+     */
+    private static final String MOVE_QUERY = """
+        UPDATE products p SET category_id = m.category_id
+        FROM unnest(cast(? as text[]), cast(? as integer[])) AS m(sku, category_id)
+        WHERE p.sku = m.sku AND p.category_id <> m.category_id
+        """;
+
+    private final AttributeDefinitionRegistry attributeDefinitionRegistry;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+    private final Counter upsertedRows;
+    private final Counter rejectedRows;
+
+    public ProductIngestService(
+        AttributeDefinitionRegistry attributeDefinitionRegistry,
+        JdbcTemplate jdbcTemplate,
+        PlatformTransactionManager transactionManager,
+        Validator validator,
+        ObjectMapper objectMapper,
+        ApplicationEventPublisher eventPublisher,
+        IngestProperties ingestProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.attributeDefinitionRegistry = attributeDefinitionRegistry;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = ingestProperties.chunkSize();
+        this.upsertedRows = meterRegistry.counter("products.ingest.rows", "result", "upserted");
+        this.rejectedRows = meterRegistry.counter("products.ingest.rows", "result", "rejected");
+    }
+
+    /**
+     * Invalid products are reported as row errors and do not stop the ingest. If a chunk fails in DB,
+     * all its products are reported as row errors, while already committed chunks stay.
+     * Once a chunk is committed {@link ProductsChangedEvent} is published for its old and new categories.
+     *
+     * @param products products to insert or update by SKU.
+     * @return amount of upserted products and errors of rejected ones.
+     */
+    public ProductIngestResponse ingest(List<ProductIngestItem> products) {
+        var categoryIds = new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM categories", Integer.class));
+        var skus = new HashSet<String>();
+        var errors = new ArrayList<RowError>();
+        var chunk = new ArrayList<ValidProduct>(chunkSize);
+        int upserted = 0;
+
+        for (int i = 0; i < products.size(); i++) {
+            var product = products.get(i);
+            try {
+                var attributesJson = validate(product, categoryIds);
+                if (!skus.add(product.sku())) {
+                    throw new IllegalArgumentException("Duplicate SKU in the request");
+                }
+                chunk.add(new ValidProduct(i, product, attributesJson));
+            } catch (IllegalArgumentException e) {
+                errors.add(new RowError(i, product == null ? null : product.sku(), e.getMessage()));
+                rejectedRows.increment();
+            }
+
+            if (chunk.size() == chunkSize || (i == products.size() - 1 && !chunk.isEmpty())) {
+                upserted += upsertChunk(chunk, errors);
+                chunk.clear();
+                log.info("Products ingest progress: processed = {}/{}, upserted = {}, rejected = {}",
+                    i + 1, products.size(), upserted, errors.size()
+                );
+            }
+        }
+
+        return new ProductIngestResponse(products.size(), upserted, errors);
+    }
+
+    /**
+     * @return attributes JSON with values converted to their declared types.
+     */
+    private String validate(ProductIngestItem product, Set<Integer> categoryIds) {
+        if (product == null) {
+            throw new IllegalArgumentException("Product is required");
+        }
+
+        var violations = validator.validate(product);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", ")));
+        }
+
+        if (!categoryIds.contains(product.categoryId())) {
+            throw new IllegalArgumentException("Unknown category: " + product.categoryId());
+        }
+
+        var definitions = attributeDefinitionRegistry.getCategoryAttributes(product.categoryId());
+        var attributes = new LinkedHashMap<String, Object>();
+        for (var definition : definitions.list()) {
+            var value = product.attributes().get(definition.name());
+            if (value == null) {
+                if (!definition.optional()) {
+                    throw new IllegalArgumentException("Missing required attribute: " + definition.name());
+                }
+                continue;
+            }
+            if (value instanceof Map<?, ?> || value instanceof Collection<?>) {
+                throw new IllegalArgumentException("Scalar value expected for attribute: " + definition.name());
+            }
+            var coerced = definition.type().coerce(value);
+            if (!isAllowed(definition, coerced)) {
+                throw new IllegalArgumentException("Value is not allowed for attribute " + definition.name() + ": " + value);
+            }
+            attributes.put(definition.name(), coerced);
+        }
+
+        for (var name : product.attributes().keySet()) {
+            if (!definitions.contains(name)) {
+                throw new IllegalArgumentException("Unknown attribute: " + name);
+            }
+        }
+
+        try {
+            return objectMapper.writeValueAsString(attributes);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Attributes cannot be converted to JSON", e);
+        }
+    }
+
+    /**
+     * Allowed values are compared as the attribute type, so e.g. 16 and 16.0 are the same numeric value.
+     */
+    private static boolean isAllowed(AttributeMetadata definition, Object coerced) {
+        if (definition.values().isEmpty()) {
+            return true;
+        }
+
+        var type = definition.type();
+        return definition.values().stream()
+            .filter(Objects::nonNull)
+            .anyMatch(allowed -> type.isNumeric()
+                ? coerced instanceof BigDecimal number && number.compareTo(new BigDecimal(allowed.toString())) == 0
+                : coerced.equals(allowed.toString())
+            );
+    }
+
+    /**
+     * @return amount of upserted products.
+     */
+    private int upsertChunk(List<ValidProduct> chunk, List<RowError> errors) {
+        try {
+            var changedCategoryIds = transactionTemplate.execute(status -> {
+                var skus = chunk.stream().map(product -> product.item().sku()).toArray(String[]::new);
+                // Moved products leave their old categories
+                var categoryIds = new HashSet<>(jdbcTemplate.query(
+                    CATEGORIES_BY_SKU_QUERY,
+                    (rs, rowNum) -> rs.getInt(1),
+                    (Object) skus
+                ));
+
+                var productCategoryIds = chunk.stream().map(product -> product.item().categoryId()).toArray(Integer[]::new);
+                jdbcTemplate.update(MOVE_QUERY, skus, productCategoryIds);
+                jdbcTemplate.batchUpdate(UPSERT_QUERY, chunk, chunk.size(), ProductIngestService::setParameters);
+                chunk.forEach(product -> categoryIds.add(product.item().categoryId()));
+
+                return categoryIds;
+            });
+
+            upsertedRows.increment(chunk.size());
+            eventPublisher.publishEvent(new ProductsChangedEvent(Set.copyOf(changedCategoryIds)));
+
+            return chunk.size();
+        } catch (DataAccessException e) {
+            // DB error details stay in the log, they are not for API clients
+            log.warn("Products ingest chunk failed: {}", e.getMostSpecificCause().getMessage(), e);
+            var message = "Chunk failed, products of the chunk were not saved";
+            chunk.forEach(product -> errors.add(new RowError(product.index(), product.item().sku(), message)));
+            rejectedRows.increment(chunk.size());
+
+            return 0;
+        }
+    }
+
+    private static void setParameters(PreparedStatement ps, ValidProduct product) throws SQLException {
+        var item = product.item();
+        ps.setString(1, item.sku());
+        ps.setString(2, item.name());
+        ps.setInt(3, item.categoryId());
+        ps.setString(4, item.brand());
+        ps.setString(5, item.description());
+        ps.setInt(6, item.price());
+        ps.setBigDecimal(7, item.weight());
+        ps.setString(8, product.attributesJson());
+    }
+
+    private record ValidProduct(
+        int index,
+        ProductIngestItem item,
+        String attributesJson
+    ) {
+    }
+}
@@ -0,0 +1,129 @@
+package com.github.ggruzdov.ecommerce.service;
+
+import com.github.ggruzdov.ecommerce.component.InvalidFilterException;
+import com.github.ggruzdov.ecommerce.component.SearchConcurrencyLimiter;
+import com.github.ggruzdov.ecommerce.component.SearchOverloadedException;
+import com.github.ggruzdov.ecommerce.config.SearchProperties;
+import com.github.ggruzdov.ecommerce.request.ProductMultiSearchRequest;
+import com.github.ggruzdov.ecommerce.response.MultiSearchResponse;
+import com.github.ggruzdov.ecommerce.response.ProductSearchResponse;
+import com.github.ggruzdov.ecommerce.response.SearchPagedModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Slf4j
+@Service
+public class ProductMultiSearchService {
+
+    private final ProductSearchService productSearchService;
+    private final SearchConcurrencyLimiter searchConcurrencyLimiter;
+    private final SearchResultCache searchResultCache;
+    private final Counter deduplicated;
+
+    private final int maxConcurrent;
+    private final Duration timeout;
+
+    public ProductMultiSearchService(
+        ProductSearchService productSearchService,
+        SearchConcurrencyLimiter searchConcurrencyLimiter,
+        SearchResultCache searchResultCache,
+        SearchProperties searchProperties,
+        MeterRegistry meterRegistry
+    ) {
+        var multi = searchProperties.multi();
+        this.productSearchService = productSearchService;
+        this.searchConcurrencyLimiter = searchConcurrencyLimiter;
+        this.searchResultCache = searchResultCache;
+        this.deduplicated = meterRegistry.counter("search.multi.deduplicated");
+        this.maxConcurrent = multi.maxConcurrent();
+        this.timeout = multi.timeout();
+    }
+
+    /**
+     * Searches are executed on virtual threads, at most 'ecommerce.search.multi.max-concurrent' of them at once,
+     * so a single page does not take all connections. Each one takes a permit of {@link SearchConcurrencyLimiter}
+     * as a single search does, and searches identical by their canonical form(see {@link SearchResultCache})
+     * are executed once. A failed search does not fail the others, it is reported by its result error.
+     * Searches not completed within 'ecommerce.search.multi.timeout' are cancelled.
+     */
+    public MultiSearchResponse search(ProductMultiSearchRequest request) {
+        var budget = new Semaphore(maxConcurrent);
+        var executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            var futures = new HashMap<String, Future<SearchPagedModel<ProductSearchResponse>>>();
+            for (var search : request.searches()) {
+                var key = key(search);
+                if (futures.containsKey(key)) {
+                    deduplicated.increment();
+                    continue;
+                }
+                futures.put(key, executor.submit(() -> execute(search, budget)));
+            }
+
+            long deadline = System.nanoTime() + timeout.toNanos();
+            var results = request.searches()
+                .stream()
+                .map(search -> result(futures.get(key(search)), deadline))
+                .toList();
+
+            return new MultiSearchResponse(results);
+        } finally {
+            // Interrupts searches still running or waiting for the budget after the timeout
+            executor.shutdownNow();
+        }
+    }
+
+    private SearchPagedModel<ProductSearchResponse> execute(ProductMultiSearchRequest.Search search, Semaphore budget) throws InterruptedException {
+        budget.acquire();
+        try {
+            return search.filter() != null
+                ? searchConcurrencyLimiter.execute("multi", () -> productSearchService.search(search.filter()))
+                : searchConcurrencyLimiter.execute("multi", () -> productSearchService.search(search.fullText()));
+        } finally {
+            budget.release();
+        }
+    }
+
+    private static MultiSearchResponse.Result result(Future<SearchPagedModel<ProductSearchResponse>> future, long deadline) {
+        try {
+            return new MultiSearchResponse.Result(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS), null);
+        } catch (TimeoutException | CancellationException e) {
+            future.cancel(true);
+            return error(HttpStatus.GATEWAY_TIMEOUT, "Search timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return error(HttpStatus.SERVICE_UNAVAILABLE, "Search interrupted");
+        } catch (ExecutionException e) {
+            return switch (e.getCause()) {
+                case InvalidFilterException cause -> error(HttpStatus.BAD_REQUEST, cause.getMessage());
+                case SearchOverloadedException cause -> error(HttpStatus.SERVICE_UNAVAILABLE, cause.getMessage());
+                case Throwable cause -> {
+                    log.warn("Multi search failed: {}", cause.getMessage(), cause);
+                    yield error(HttpStatus.INTERNAL_SERVER_ERROR, "Search failed");
+                }
+            };
+        }
+    }
+
+    private String key(ProductMultiSearchRequest.Search search) {
+        return search.filter() != null ? searchResultCache.canonical(search.filter()) : searchResultCache.canonical(search.fullText());
+    }
+
+    private static MultiSearchResponse.Result error(HttpStatus status, String detail) {
+        return new MultiSearchResponse.Result(null, ProblemDetail.forStatusAndDetail(status, detail));
+    }
+}
@@ -0,0 +1,219 @@
+package com.github.ggruzdov.ecommerce.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ggruzdov.ecommerce.component.QueryShape;
+import com.github.ggruzdov.ecommerce.component.SearchMetrics;
+import com.github.ggruzdov.ecommerce.config.SearchProperties;
+import com.github.ggruzdov.ecommerce.config.SearchProperties.ResultMapping;
+import com.github.ggruzdov.ecommerce.model.Product;
+import com.github.ggruzdov.ecommerce.response.ProductSearchResponse;
+import com.github.ggruzdov.ecommerce.response.RawJsonAttributes;
+import jakarta.persistence.EntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Executes search queries and maps result rows to {@link ProductSearchResponse} according to {@link ResultMapping}.
+ * Reading rows and building responses of them are timed as 'query' and 'hydration' search stages, see {@link SearchMetrics}.
+ */
+@Component
+public class ProductResultReader {
+
+    private static final String RESPONSE_COLUMNS = "SELECT p.id, p.name, p.brand, p.description, p.price, p.weight, p.attributes, p.created_at";
+    private static final TypeReference<Map<String, Object>> ATTRIBUTES_TYPE = new TypeReference<>() {};
+
+    private final EntityManager entityManager;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final SearchMetrics searchMetrics;
+    private final ResultMapping mapping;
+
+    public ProductResultReader(
+        EntityManager entityManager,
+        NamedParameterJdbcTemplate jdbcTemplate,
+        DataSource dataSource,
+        ObjectMapper objectMapper,
+        SearchMetrics searchMetrics,
+        SearchProperties searchProperties
+    ) {
+        // Postgres driver reads rows by portions of fetch size(server-side cursor) only inside a transaction
+        var streamingTemplate = new JdbcTemplate(dataSource);
+        streamingTemplate.setFetchSize(searchProperties.stream().fetchSize());
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(streamingTemplate);
+        this.objectMapper = objectMapper;
+        this.searchMetrics = searchMetrics;
+        this.mapping = searchProperties.results().mapping();
+    }
+
+    /**
+     * @param sql        search query with sorting, must start with 'SELECT *'.
+     * @param params     named query parameters.
+     * @param offset     amount of rows to skip.
+     * @param maxResults max amount of rows to read.
+     * @param shape      shape of the search query for stage timers.
+     */
+    public List<ProductSearchResponse> read(String sql, Map<String, Object> params, int offset, int maxResults, QueryShape shape) {
+        return read(sql, params, offset, maxResults, mapping, shape);
+    }
+
+    List<ProductSearchResponse> read(String sql, Map<String, Object> params, int offset, int maxResults, ResultMapping mapping, QueryShape shape) {
+        return switch (mapping) {
+            case ENTITY -> readEntities(sql, params, offset, maxResults, shape);
+            case PROJECTION -> readRows(sql, params, offset, maxResults, this::parseAttributes, shape);
+            case RAW_JSON -> readRows(sql, params, offset, maxResults, this::rawAttributes, shape);
+        };
+    }
+
+    /**
+     * Passes every row of the query to the consumer without collecting them, so memory usage does not depend
+     * on the amount of rows. Rows are fetched from a server-side cursor by portions of 'ecommerce.search.stream.fetch-size',
+     * the next portion is not fetched until the consumer handles the current one.
+     * An exception thrown by the consumer, e.g. on client disconnect, stops the query and closes the cursor.
+     *
+     * @param sql      search query with sorting, must start with 'SELECT *'.
+     * @param params   named query parameters.
+     * @param consumer handles rows one by one.
+     */
+    @Transactional(readOnly = true)
+    public void stream(String sql, Map<String, Object> params, Consumer<ProductSearchResponse> consumer) {
+        AttributesMapper attributesMapper = mapping == ResultMapping.RAW_JSON ? this::rawAttributes : this::parseAttributes;
+        streamingJdbcTemplate.query(
+            sql.replaceFirst("SELECT \\*", RESPONSE_COLUMNS),
+            params,
+            (RowCallbackHandler) rs -> consumer.accept(ProductRow.of(rs).toResponse(attributesMapper))
+        );
+    }
+
+    /**
+     * Hibernate materializes managed entities while it reads rows, so the 'query' stage includes them,
+     * and 'hydration' is the conversion of entities to responses.
+     */
+    @SuppressWarnings("unchecked")
+    private List<ProductSearchResponse> readEntities(String sql, Map<String, Object> params, int offset, int maxResults, QueryShape shape) {
+        var query = entityManager.createNativeQuery(sql, Product.class);
+        params.forEach(query::setParameter);
+        query.setFirstResult(offset);
+        query.setMaxResults(maxResults);
+
+        var products = searchMetrics.timeQuery(
+            "query",
+            shape,
+            sql + " OFFSET " + offset + " ROWS FETCH NEXT " + maxResults + " ROWS ONLY",
+            params,
+            () -> (List<Product>) query.getResultList()
+        );
+
+        return searchMetrics.time("hydration", shape, () -> products.stream()
+            .map(ProductSearchResponse::from)
+            .toList()
+        );
+    }
+
+    /**
+     * Rows are read by plain JDBC, so there are neither managed entities nor persistence context snapshots.
+     * Column values are read as they are, responses(including attributes JSON mapping) are built once all rows are read.
+     * <p>
+     * The query might look like:
+     * SELECT p.id, p.name, p.brand, p.description, p.price, p.weight, p.attributes, p.created_at
+     * FROM products p WHERE p.category_id = 2
+     * ORDER BY p.price asc, p.id asc
+     * OFFSET :offset ROWS FETCH NEXT :limit ROWS ONLY
+     */
+    private List<ProductSearchResponse> readRows(
+        String sql,
+        Map<String, Object> params,
+        int offset,
+        int maxResults,
+        AttributesMapper attributesMapper,
+        QueryShape shape
+    ) {
+        var projectionSql = sql.replaceFirst("SELECT \\*", RESPONSE_COLUMNS) + " OFFSET :offset ROWS FETCH NEXT :limit ROWS ONLY";
+        var projectionParams = new HashMap<>(params);
+        projectionParams.put("offset", offset);
+        projectionParams.put("limit", maxResults);
+
+        var rows = searchMetrics.timeQuery("query", shape, projectionSql, projectionParams, () ->
+            jdbcTemplate.query(projectionSql, projectionParams, (rs, rowNum) -> ProductRow.of(rs))
+        );
+
+        return searchMetrics.time("hydration", shape, () -> rows.stream()
+            .map(row -> row.toResponse(attributesMapper))
+            .toList()
+        );
+    }
+
+    private Map<String, Object> rawAttributes(String json) {
+        return new RawJsonAttributes(json, objectMapper);
+    }
+
+    private Map<String, Object> parseAttributes(String json) {
+        try {
+            return objectMapper.readValue(json, ATTRIBUTES_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Invalid attributes JSON: " + json, e);
+        }
+    }
+
+    private record ProductRow(
+        int id,
+        String name,
+        String brand,
+        String description,
+        int price,
+        BigDecimal weight,
+        String attributes,
+        LocalDateTime createdAt
+    ) {
+
+        static ProductRow of(ResultSet rs) throws SQLException {
+            return new ProductRow(
+                rs.getInt("id"),
+                rs.getString("name"),
+                rs.getString("brand"),
+                rs.getString("description"),
+                rs.getInt("price"),
+                rs.getBigDecimal("weight"),
+                rs.getString("attributes"),
+                rs.getObject("created_at", LocalDateTime.class)
+            );
+        }
+
+        ProductSearchResponse toResponse(AttributesMapper attributesMapper) {
+            return new ProductSearchResponse(
+                id,
+                name,
+                brand,
+                description,
+                BigDecimal.valueOf(price, 2),
+                weight,
+                attributesMapper.map(attributes),
+                // The column is 'timestamp without time zone' which is treated as UTC, the same as Hibernate does
+                createdAt.toInstant(ZoneOffset.UTC)
+            );
+        }
+    }
+
+    @FunctionalInterface
+    private interface AttributesMapper {
+        Map<String, Object> map(String json);
+    }
+}
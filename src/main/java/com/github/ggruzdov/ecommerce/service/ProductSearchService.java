@@ -1,205 +1,596 @@
 package com.github.ggruzdov.ecommerce.service;
 
-import com.github.ggruzdov.ecommerce.component.FilterConditionValidator;
-import com.github.ggruzdov.ecommerce.component.Operators;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ggruzdov.ecommerce.component.CategoryTree;
+import com.github.ggruzdov.ecommerce.component.AttributeFilter;
+import com.github.ggruzdov.ecommerce.component.FilterOperator;
+import com.github.ggruzdov.ecommerce.component.FilterPlan;
+import com.github.ggruzdov.ecommerce.component.ProductBitmapEngine;
+import com.github.ggruzdov.ecommerce.component.PromotedAttributeManager;
+import com.github.ggruzdov.ecommerce.component.QueryShape;
+import com.github.ggruzdov.ecommerce.component.SearchMetrics;
+import com.github.ggruzdov.ecommerce.component.SearchCursor;
+import com.github.ggruzdov.ecommerce.request.CountStrategy;
 import com.github.ggruzdov.ecommerce.request.Pagination;
 import com.github.ggruzdov.ecommerce.request.ProductFilterSearchRequest;
 import com.github.ggruzdov.ecommerce.request.ProductFullTextSearchRequest;
+import com.github.ggruzdov.ecommerce.response.CursorPagedModel;
 import com.github.ggruzdov.ecommerce.response.ProductSearchResponse;
+import com.github.ggruzdov.ecommerce.response.SearchPagedModel;
+import com.github.ggruzdov.ecommerce.service.FilterQueryShapeCache.AttributeShape;
+import com.github.ggruzdov.ecommerce.service.FilterQueryShapeCache.FilterShape;
+import com.github.ggruzdov.ecommerce.service.FilterQueryShapeCache.FilterTemplate;
 import com.github.ggruzdov.ecommerce.request.SortCriteria;
-import com.github.ggruzdov.ecommerce.model.Product;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.Query;
-import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
-import org.springframework.data.web.PagedModel;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
+/**
+ * Searches are read-only transactions, so with read replicas enabled(see ReadReplicaConfiguration)
+ * all queries of a search go to the same replica. The exception is a search answered by {@link ProductBitmapEngine},
+ * its products are read from the primary the engine is in sync with, see {@link #searchInMemory}.
+ */
 @Service
-@RequiredArgsConstructor
 public class ProductSearchService {
 
-    private final FilterConditionValidator filterConditionValidator;
+    static final String FULL_TEXT_SEARCH_QUERY =
+        "SELECT * FROM products p WHERE p.search_vector @@ websearch_to_tsquery('english', :phrase)";
+
+    private static final String RELEVANCE_ORDER_EXPRESSION =
+        "ts_rank(p.search_vector, websearch_to_tsquery('english', :phrase))";
+
+    // The category condition prunes partitions which cannot contain the products
+    static final String PRODUCTS_BY_IDS_QUERY =
+        "SELECT * FROM products p WHERE p.id = ANY(cast(:ids as integer[])) AND p.category_id = ANY(cast(:categoryIds as integer[]))";
+
+    private final PromotedAttributeManager promotedAttributeManager;
+    private final CategoryTree categoryTree;
     private final AttributeDefinitionService attributeDefinitionService;
-    private final EntityManager entityManager;
+    private final ProductCountService productCountService;
+    private final ProductFacetService productFacetService;
+    private final FilterQueryShapeCache filterQueryShapeCache;
+    private final SearchResultCache searchResultCache;
+    private final SearchMetrics searchMetrics;
+    private final ProductResultReader productResultReader;
+    private final ProductBitmapEngine productBitmapEngine;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+
+    public ProductSearchService(
+        PromotedAttributeManager promotedAttributeManager,
+        CategoryTree categoryTree,
+        AttributeDefinitionService attributeDefinitionService,
+        ProductCountService productCountService,
+        ProductFacetService productFacetService,
+        FilterQueryShapeCache filterQueryShapeCache,
+        SearchResultCache searchResultCache,
+        SearchMetrics searchMetrics,
+        ProductResultReader productResultReader,
+        ProductBitmapEngine productBitmapEngine,
+        PlatformTransactionManager transactionManager,
+        ObjectMapper objectMapper
+    ) {
+        this.promotedAttributeManager = promotedAttributeManager;
+        this.categoryTree = categoryTree;
+        this.attributeDefinitionService = attributeDefinitionService;
+        this.productCountService = productCountService;
+        this.productFacetService = productFacetService;
+        this.filterQueryShapeCache = filterQueryShapeCache;
+        this.searchResultCache = searchResultCache;
+        this.searchMetrics = searchMetrics;
+        this.productResultReader = productResultReader;
+        this.productBitmapEngine = productBitmapEngine;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
 
     /**
-     * Products full text search based on product description field.
+     * Products full text search based on product name, brand and description.
      * Since the method uses Postgres 'websearch_to_tsquery' function
      * there is not any phrase pre-cleaning operations as the function handles it.
      * <p>
+     * The query goes against the stored 'search_vector' column(see V1.04 migration), so it is served by
+     * the 'idx_product_search_vector' GIN index. Name matches weigh more than brand and description ones,
+     * which is taken into account by 'relevance' sorting.
+     * <p>
      * The result query might look like:
      * SELECT * FROM products p
-     * WHERE p.description @@ websearch_to_tsquery('Asus Intel i7')
-     * ORDER BY p.created_at desc
+     * WHERE p.search_vector @@ websearch_to_tsquery('english', 'Asus Intel i7')
+     * ORDER BY ts_rank(p.search_vector, websearch_to_tsquery('english', 'Asus Intel i7')) desc
      * FETCH FIRST 20 ROWS ONLY;
      * <p>
      * NOTE: there are actually two queries: one for total amount of rows(without sorting and pagination)
-     *       and the second is a paginated 'real' query.
+     *       and the second is a paginated 'real' query. The first one depends on the request count strategy,
+     *       see {@link ProductCountService}. Results are cached, see {@link SearchResultCache}.
      *
      * @param request contains user search phrase, e.g. "Asus Intel i7".
      * @return paginated list of products corresponding to the search phrase.
      */
-    public PagedModel<ProductSearchResponse> search(ProductFullTextSearchRequest request) {
-        var queryBuilder = new StringBuilder(
-            "SELECT * FROM products p WHERE p.description @@ websearch_to_tsquery(:phrase)"
+    @Transactional(readOnly = true)
+    public SearchPagedModel<ProductSearchResponse> search(ProductFullTextSearchRequest request) {
+        return searchResultCache.get(
+            request,
+            () -> createQueryAndExecute(buildFullTextQuery(request), request.pagination(), request.countStrategy())
         );
-        var params = Map.<String, Object>of("phrase", request.phrase());
+    }
 
-        return createQueryAndExecute(queryBuilder, params, request.sort(), request.pagination());
+    /**
+     * The same as {@link #search(ProductFullTextSearchRequest)} but with keyset pagination,
+     * see {@link #searchWithCursor(ProductFilterSearchRequest)}.
+     */
+    @Transactional(readOnly = true)
+    public CursorPagedModel<ProductSearchResponse> searchWithCursor(ProductFullTextSearchRequest request) {
+        return createCursorQueryAndExecute(buildFullTextQuery(request), request.pagination());
     }
 
     /**
      * Products search by set of filters.
      * Method dynamically builds an SQL query depending on specified filters.
+     * The category covers all its descendants, e.g. 'p.category_id IN (1, 2, 5)', see {@link CategoryTree},
+     * and only attributes common to the subtree can be filtered by, see {@link AttributeDefinitionService}.
      * <p>
      * The result query might look like:
      * SELECT * FROM products p
-     * WHERE p.category_id = ?
+     * WHERE p.category_id = 2
      *   AND (p.attributes->>'processor') ILIKE '%intel%'
      *   AND (p.attributes->>'screen_size')::NUMERIC BETWEEN 14.0 AND 15.6
      *   AND (p.attributes->>'RAM')::NUMERIC >= 16
-     *   AND (p.attributes->>'storage_type') IN ('SSD')
+     *   AND p.attributes @@ '$."storage_type" == "SSD"'
+     *   AND p.attributes @> '{"storage_capacity": 512}'
      *   ORDER BY p.price ASC
      *   OFFSET 100 ROWS
      *   FETCH NEXT 20 ROWS ONLY;
      * <p>
+     * All filter values are bound as parameters, so requests of the same filter shape share the same SQL,
+     * see {@link FilterQueryShapeCache}.
+     * <p>
      * NOTE: there are actually two queries: one for total amount of rows(without sorting and pagination)
-     *       and the second is a paginated 'real' query.
+     *       and the second is a paginated 'real' query. The first one depends on the request count strategy,
+     *       see {@link ProductCountService}. If facets are requested, there is one more aggregated query,
+     *       see {@link ProductFacetService}. Results are cached, see {@link SearchResultCache}.
+     *       Without facets the search is answered by in-memory bitmap index once it is warm, see {@link #searchInMemory}.
      *
      * @param request set of attributes to filter products.
      * @return paginated list of products corresponding to the set of filters.
      */
-    public PagedModel<ProductSearchResponse> search(ProductFilterSearchRequest request) {
-        var queryBuilder = new StringBuilder("SELECT * FROM products p WHERE p.category_id = :categoryId");
+    public SearchPagedModel<ProductSearchResponse> search(ProductFilterSearchRequest request) {
+        return searchResultCache.get(request, () -> searchUncached(request));
+    }
+
+    private SearchPagedModel<ProductSearchResponse> searchUncached(ProductFilterSearchRequest request) {
+        return !request.includeFacets() && productBitmapEngine.isWarm()
+            ? searchInMemory(request)
+            : readOnlyTransaction.execute(status -> searchWithSql(request));
+    }
+
+    SearchPagedModel<ProductSearchResponse> searchWithSql(ProductFilterSearchRequest request) {
+        var searchQuery = buildFilterQuery(request);
+        // Facets go first as the search query SQL is extended by sorting and pagination afterward
+        var facets = request.includeFacets()
+            ? productFacetService.calculate(
+                searchQuery.facetConditions(),
+                searchQuery.params(),
+                attributeDefinitionService.getAttributes(request.categoryId()),
+                searchQuery.shape()
+            )
+            : null;
+
+        var result = createQueryAndExecute(searchQuery, request.pagination(), request.countStrategy());
+        return facets == null ? result : result.withFacets(facets);
+    }
+
+    /**
+     * The same as {@link #searchWithSql(ProductFilterSearchRequest)} but filters are matched and sorted by
+     * {@link ProductBitmapEngine}, which makes the total exact whatever the count strategy is.
+     * Only products of the page are read from the database by their ids, e.g.
+     * SELECT * FROM products p WHERE p.id = ANY('{734,12,98}') AND p.category_id = ANY('{1,2,5}')
+     * <p>
+     * The engine is in sync with the primary, so products are read outside a read-only transaction, i.e. from the primary too.
+     * A lagging replica would miss new products of the page and return changed ones in their old state.
+     */
+    SearchPagedModel<ProductSearchResponse> searchInMemory(ProductFilterSearchRequest request) {
+        if (request.sort().isRelevance()) {
+            throw new IllegalArgumentException("Relevance sort is supported by full-text search only");
+        }
+
+        var shape = QueryShape.of(request);
+        var categoryAttributes = searchMetrics.time("attributes", shape, () -> attributeDefinitionService.getAttributes(request.categoryId()));
+        var plan = FilterPlan.of(request, categoryAttributes);
+        var pagination = request.pagination();
+        int offset = (pagination.page() - 1) * pagination.limit();
+        var categoryIds = categoryTree.getSubtree(request.categoryId());
+        var match = searchMetrics.time("bitmap", shape, () ->
+            productBitmapEngine.search(categoryIds, plan, request.sort(), offset, pagination.limit())
+        );
+
+        var products = List.<ProductSearchResponse>of();
+        if (!match.ids().isEmpty()) {
+            var params = Map.<String, Object>of("ids", toArray(match.ids()), "categoryIds", toArray(categoryIds));
+            var rows = productResultReader.read(PRODUCTS_BY_IDS_QUERY, params, 0, match.ids().size(), shape);
+            // Rows come in no particular order, products changed since the match keep their matched position
+            var byId = rows.stream().collect(Collectors.toMap(ProductSearchResponse::id, product -> product));
+            products = match.ids().stream().map(byId::get).filter(Objects::nonNull).toList();
+        }
+
+        return pagedModel(products, pagination, request.sort(), match.total(), true);
+    }
+
+    /**
+     * Products search by set of filters with keyset(seek) pagination.
+     * Instead of skipping (page - 1) * limit rows the query seeks right after the last row of the previous page,
+     * which is passed as an opaque cursor. Together with (sort field, id) indexes of category partitions
+     * it makes any page as cheap as the first one. There is no total count query in this mode.
+     * <p>
+     * The result query might look like:
+     * SELECT * FROM products p
+     * WHERE p.category_id = 2
+     *   AND (p.attributes->>'RAM')::NUMERIC >= 16
+     *   AND (p.price, p.id) > (125000, 734)
+     *   ORDER BY p.price ASC, p.id ASC
+     *   FETCH FIRST 21 ROWS ONLY;
+     * <p>
+     * One extra row is fetched to find out whether there is a next page.
+     *
+     * @param request set of attributes to filter products, 'pagination.cursor' is the previous page 'nextCursor'.
+     * @return list of products corresponding to the set of filters and the cursor of the next page.
+     */
+    @Transactional(readOnly = true)
+    public CursorPagedModel<ProductSearchResponse> searchWithCursor(ProductFilterSearchRequest request) {
+        return createCursorQueryAndExecute(buildFilterQuery(request), request.pagination());
+    }
+
+    private SearchQuery buildFullTextQuery(ProductFullTextSearchRequest request) {
+        var queryBuilder = new StringBuilder(FULL_TEXT_SEARCH_QUERY);
         var params = new HashMap<String, Object>();
-        params.put("categoryId", request.categoryId());
+        params.put("phrase", request.phrase());
+        var sort = request.sort();
+        var orderExpression = sort.isRelevance() ? RELEVANCE_ORDER_EXPRESSION : "p." + sort.field();
+
+        return new SearchQuery(queryBuilder, params, orderExpression, sort, null, QueryShape.of(request));
+    }
 
-        if (request.brand() != null) {
-            queryBuilder.append(" AND brand = :brand");
-            params.put("brand", request.brand());
+    SearchQuery buildFilterQuery(ProductFilterSearchRequest request) {
+        if (request.sort().isRelevance()) {
+            throw new IllegalArgumentException("Relevance sort is supported by full-text search only");
         }
 
-        // Price range filter
-        if (request.price() != null) {
-            if (request.price().min() != null) {
-                queryBuilder.append(" AND p.price >= :minPrice");
-                params.put("minPrice", request.price().min());
-            }
-            if (request.price().max() != null) {
-                queryBuilder.append(" AND p.price <= :maxPrice");
-                params.put("maxPrice", request.price().max());
+        var shape = QueryShape.of(request);
+        return searchMetrics.time("build", shape, () -> buildFilterQuery(request, shape));
+    }
+
+    /**
+     * Parses filters into {@link FilterPlan} and binds their values, the SQL itself is taken from {@link FilterQueryShapeCache}.
+     * Values are bound as they are typed by the plan, i.e. numeric ones as NUMERIC parameters.
+     */
+    private SearchQuery buildFilterQuery(ProductFilterSearchRequest request, QueryShape shape) {
+        var categoryAttributes = searchMetrics.time("attributes", shape, () -> attributeDefinitionService.getAttributes(request.categoryId()));
+        var plan = FilterPlan.of(request, categoryAttributes);
+
+        var params = new HashMap<String, Object>();
+        if (plan.brand() != null) {
+            params.put("brand", plan.brand());
+        }
+        if (plan.minPrice() != null) {
+            params.put("minPrice", plan.minPrice());
+        }
+        if (plan.maxPrice() != null) {
+            params.put("maxPrice", plan.maxPrice());
+        }
+
+        var attributeShapes = new ArrayList<AttributeShape>(plan.attributes().size());
+        // Parameters are named by attribute position, e.g. 'f0', so they do not depend on attribute names
+        for (var filter : plan.attributes()) {
+            var attribute = filter.attribute();
+            var paramName = "f" + attributeShapes.size();
+            // 'contains' is served by JSONB trigram indexes, see AttributeIndexManager
+            boolean promoted = attribute.promoted()
+                && promotedAttributeManager.isMaterialized(attribute.id())
+                && !(filter instanceof AttributeFilter.Contains);
+            if (promoted) {
+                bindPromotedFilter(params, paramName, filter);
+            } else {
+                bindFilter(params, paramName, filter);
             }
+            attributeShapes.add(new AttributeShape(attribute.name(), filter.operator(), promoted ? attribute.id() : null, attribute.type().isNumeric()));
         }
 
-        var categoryAttributeNames = attributeDefinitionService.getAttributeNames(request.categoryId());
-        request.filters().forEach((attribute, condition) -> {
-            if (!categoryAttributeNames.contains(attribute)) {
-                throw new IllegalArgumentException("Invalid attribute name: " + attribute);
+        var filterShape = new FilterShape(
+            categoryTree.getSubtree(request.categoryId()),
+            plan.brand() != null,
+            plan.minPrice() != null,
+            plan.maxPrice() != null,
+            List.copyOf(attributeShapes)
+        );
+        var template = filterQueryShapeCache.get(filterShape, ProductSearchService::compileFilterQuery);
+
+        return new SearchQuery(new StringBuilder(template.sql()), params, "p." + request.sort().field(), request.sort(), template.facetConditions(), shape);
+    }
+
+    private void bindFilter(Map<String, Object> params, String paramName, AttributeFilter filter) {
+        switch (filter) {
+            // JSONB containment is served by GIN index and compares values by type, e.g. 14 matches 14.0
+            case AttributeFilter.Equality equality when equality.operator() == FilterOperator.EQ ->
+                params.put(paramName, toJson(Map.of(equality.attribute().name(), equality.value())));
+            case AttributeFilter.Equality equality -> params.put(paramName, equality.value());
+            case AttributeFilter.Range range -> params.put(paramName, range.value());
+            case AttributeFilter.Between between -> {
+                params.put(paramName + "_from", between.from());
+                params.put(paramName + "_to", between.to());
             }
+            case AttributeFilter.In in -> {
+                // Single JSON path parameter whatever amount of values, served by GIN index as well as 'eq',
+                // e.g. $."storage_type" == "SSD" || $."storage_type" == "NVMe"
+                var key = "$." + toJson(in.attribute().name()) + " == ";
+                params.put(paramName, in.values().stream().map(value -> key + toJson(value)).collect(Collectors.joining(" || ")));
+            }
+            // The value is matched literally, so LIKE wildcards are escaped
+            case AttributeFilter.Contains contains -> params.put(paramName, "%" + contains.value().replaceAll("([\\\\%_])", "\\\\$1") + "%");
+        }
+    }
 
-            if (!filterConditionValidator.isValidCondition(condition)) {
-                throw new IllegalArgumentException("Invalid value for condition: " + condition);
+    /**
+     * Promoted attribute values are compared as they are stored in typed columns:
+     * NUMERIC for numeric types and TEXT otherwise.
+     */
+    private static void bindPromotedFilter(Map<String, Object> params, String paramName, AttributeFilter filter) {
+        switch (filter) {
+            case AttributeFilter.Equality equality -> params.put(paramName, equality.value());
+            case AttributeFilter.Range range -> params.put(paramName, range.value());
+            case AttributeFilter.Between between -> {
+                params.put(paramName + "_from", between.from());
+                params.put(paramName + "_to", between.to());
             }
+            // Single array parameter whatever amount of values, e.g. {"SSD","NVMe"}
+            case AttributeFilter.In in -> params.put(paramName, in.values()
+                .stream()
+                .map(value -> "\"" + value.toString().replace("\\", "\\\\").replace("\"", "\\\"") + "\"")
+                .collect(Collectors.joining(",", "{", "}")));
+            case AttributeFilter.Contains contains -> throw new IllegalStateException("Promoted columns do not serve 'contains': " + contains);
+        }
+    }
+
+    /**
+     * Builds filter query SQL of the shape, parameters are bound by {@link #buildFilterQuery(ProductFilterSearchRequest)}.
+     * <p>
+     * Numeric attributes are compared as NUMERIC, which matches their expression indexes(see AttributeIndexManager),
+     * others as text. Promoted attributes are filtered by their typed columns instead of JSONB, e.g. p.attr_2 >= :f0,
+     * see {@link PromotedAttributeManager}.
+     */
+    private static FilterTemplate compileFilterQuery(FilterShape shape) {
+        // Category ids are inlined, so partitions of other categories are pruned at planning time(see V1.14 migration),
+        // even for a generic plan of a prepared statement, and only indexes of the scanned partitions are considered
+        var categoryIds = shape.categoryIds();
+        var categoryCondition = categoryIds.size() == 1
+            ? "p.category_id = " + categoryIds.getFirst()
+            : "p.category_id IN (" + categoryIds.stream().map(String::valueOf).collect(Collectors.joining(", ")) + ")";
+        var queryBuilder = new StringBuilder("SELECT * FROM products p WHERE ").append(categoryCondition);
+        var brandCondition = shape.brand() ? " AND p.brand = :brand" : "";
+        var priceCondition = (shape.minPrice() ? " AND p.price >= :minPrice" : "") + (shape.maxPrice() ? " AND p.price <= :maxPrice" : "");
 
-            queryBuilder.append(" AND (p.attributes->>'");
-            String operator = condition.operator();
-            String paramName = operator + "_" + attribute;
-            switch (operator) {
-                case "eq", "ne" -> {
-                    var operatorSign = Operators.getSign(operator);
-                    queryBuilder.append(attribute).append("') ").append(operatorSign).append(" cast(:").append(paramName).append(" as text)");
-                    params.put(paramName, condition.value());
-                }
-                case "gt", "lt", "gte", "lte" -> {
-                    var operatorSign = Operators.getSign(operator);
-                    queryBuilder.append(attribute).append("')::NUMERIC ").append(operatorSign).append(" :").append(paramName);
-                    params.put(paramName, condition.value());
-                }
-                case "in" -> {
-                    List<String> values = condition.values();
-                    // Create separate parameter for each value
-                    List<String> paramNames = new ArrayList<>();
-                    for (int i = 0; i < values.size(); i++) {
-                        String inParamName = paramName + "_" + i;
-                        paramNames.add(":" + inParamName);
-                        params.put(inParamName, values.get(i));
-                    }
-
-                    queryBuilder.append(attribute)
-                        .append("') IN (")
-                        .append(String.join(",", paramNames))
-                        .append(")");
-                }
-                case "between" -> {
-                    String fromParamName = "between_from_" + attribute;
-                    String toParamName = "between_to_" + attribute;
-
-                    queryBuilder.append(attribute)
-                        .append("')::NUMERIC BETWEEN :")
-                        .append(fromParamName)
-                        .append(" AND :")
-                        .append(toParamName);
-
-                    params.put(fromParamName, condition.fromValue());
-                    params.put(toParamName, condition.toValue());
-                }
-                case "contains" -> {
-                    queryBuilder.append(attribute)
-                        .append("') ILIKE :")
-                        .append(paramName);
-
-                    params.put(paramName, "%" + condition.value() + "%");
-                }
-                default -> throw new IllegalArgumentException("Unsupported operator: " + operator);
+        var attributeConditions = new LinkedHashMap<String, String>();
+        for (int i = 0; i < shape.attributes().size(); i++) {
+            var attribute = shape.attributes().get(i);
+            var paramName = "f" + i;
+            if (attribute.promotedId() != null) {
+                attributeConditions.put(attribute.attribute(), promotedCondition(attribute, paramName));
+                continue;
             }
-        });
 
-        return createQueryAndExecute(queryBuilder, params, request.sort(), request.pagination());
+            var text = "(p.attributes->>'" + attribute.attribute() + "')";
+            var value = attribute.numeric() ? text + "::NUMERIC" : text;
+            var condition = switch (attribute.operator()) {
+                case EQ -> " AND p.attributes @> cast(:" + paramName + " as jsonb)";
+                case NE, GT, LT, GTE, LTE -> " AND " + value + " " + attribute.operator().sign() + " :" + paramName;
+                case IN -> " AND p.attributes @@ cast(:" + paramName + " as jsonpath)";
+                case BETWEEN -> " AND " + value + " BETWEEN :" + paramName + "_from AND :" + paramName + "_to";
+                case CONTAINS -> " AND " + text + " ILIKE :" + paramName;
+            };
+            attributeConditions.put(attribute.attribute(), condition);
+        }
+
+        queryBuilder.append(brandCondition).append(priceCondition);
+        attributeConditions.values().forEach(queryBuilder::append);
+
+        return new FilterTemplate(
+            queryBuilder.toString(),
+            new FacetConditions(categoryCondition, brandCondition, priceCondition, Collections.unmodifiableMap(attributeConditions))
+        );
     }
 
-    private PagedModel<ProductSearchResponse> createQueryAndExecute(
-        StringBuilder queryBuilder,
-        Map<String, Object> params,
-        SortCriteria sort,
-        Pagination pagination
+    private static String promotedCondition(AttributeShape attribute, String paramName) {
+        var column = "p." + PromotedAttributeManager.columnName(attribute.promotedId());
+        return switch (attribute.operator()) {
+            case EQ, NE, GT, LT, GTE, LTE -> " AND " + column + " " + attribute.operator().sign() + " :" + paramName;
+            case IN -> " AND " + column + " = ANY(cast(:" + paramName + " as " + (attribute.numeric() ? "numeric[]" : "text[]") + "))";
+            case BETWEEN -> " AND " + column + " BETWEEN :" + paramName + "_from AND :" + paramName + "_to";
+            case CONTAINS -> throw new IllegalStateException("Promoted columns do not serve 'contains': " + attribute.attribute());
+        };
+    }
+
+    private SearchPagedModel<ProductSearchResponse> createQueryAndExecute(
+        SearchQuery searchQuery,
+        Pagination pagination,
+        CountStrategy countStrategy
     ) {
+        var queryBuilder = searchQuery.sql();
+        var params = searchQuery.params();
+        var sort = searchQuery.sort();
+
         // Fetch total count for pagination result
-        var countSql = queryBuilder.toString().replaceFirst("SELECT \\*", "SELECT COUNT(1)");
-        var countQuery = entityManager.createNativeQuery(countSql, Long.class);
-        params.forEach(countQuery::setParameter);
-        long total = (long) countQuery.getSingleResult();
+        var shape = searchQuery.shape();
+        var countSql = queryBuilder.toString();
+        var total = countStrategy == CountStrategy.NONE
+            ? null
+            : searchMetrics.timeQuery("count", shape, productCountService.countSql(countSql, countStrategy), params,
+                () -> productCountService.count(countSql, params, countStrategy)
+            );
 
-        // Sorting
-        queryBuilder.append(" ORDER BY p.").append(sort.field()).append(" ").append(sort.order());
+        // Sorting(id makes the order deterministic for equal sort values)
+        queryBuilder.append(" ORDER BY ").append(searchQuery.orderExpression()).append(" ").append(sort.order())
+            .append(", p.id ").append(sort.order());
 
-        // Create query
-        Query query = entityManager.createNativeQuery(queryBuilder.toString(), Product.class);
-        params.forEach(query::setParameter);
+        // Query limit offset(without count one extra row tells whether there is a next page)
+        int offset = (pagination.page() - 1) * pagination.limit();
+        int maxResults = total == null ? pagination.limit() + 1 : pagination.limit();
+        var sql = queryBuilder.toString();
+        var products = productResultReader.read(sql, params, offset, maxResults, shape);
+        boolean hasNext = products.size() > pagination.limit();
+        var result = hasNext ? products.subList(0, pagination.limit()) : products;
+
+        // Without count the total is a lower bound unless the last page is reached.
+        // An empty page past the end tells nothing about how many products precede it.
+        if (total == null) {
+            total = result.isEmpty() && offset > 0
+                ? new ProductCountService.Total(0, false)
+                : new ProductCountService.Total(offset + result.size() + (hasNext ? 1 : 0), !hasNext);
+        }
 
-        // Query limit offset
-        query.setFirstResult((pagination.page() - 1) * pagination.limit());
-        query.setMaxResults(pagination.limit());
+        return pagedModel(result, pagination, sort, total.value(), total.exact());
+    }
 
-        @SuppressWarnings("unchecked")
-        var result = ((List<Product>) query.getResultList())
-            .stream()
-            .map(ProductSearchResponse::from)
-            .toList();
+    /**
+     * @return Postgres array literal bound as text, e.g. '{1,2,5}'.
+     */
+    private static String toArray(List<Integer> values) {
+        return values.stream().map(String::valueOf).collect(Collectors.joining(",", "{", "}"));
+    }
 
+    private static SearchPagedModel<ProductSearchResponse> pagedModel(
+        List<ProductSearchResponse> products,
+        Pagination pagination,
+        SortCriteria sort,
+        long total,
+        boolean totalExact
+    ) {
         var page = PageRequest.of(
             pagination.page() - 1,
             pagination.limit(),
             Sort.Direction.fromString(sort.order()), sort.field()
         );
 
-        return new PagedModel<>(new PageImpl<>(result, page, total));
+        return new SearchPagedModel<>(new PageImpl<>(products, page, total), totalExact);
+    }
+
+    private CursorPagedModel<ProductSearchResponse> createCursorQueryAndExecute(SearchQuery searchQuery, Pagination pagination) {
+        var queryBuilder = searchQuery.sql();
+        var params = searchQuery.params();
+        var sort = searchQuery.sort();
+        if (sort.isRelevance()) {
+            throw new IllegalArgumentException("Relevance sort is not supported by cursor pagination");
+        }
+
+        // Seek right after the last row of the previous page
+        var order = sort.order().toLowerCase();
+        if (pagination.cursor() != null) {
+            var cursor = SearchCursor.decode(pagination.cursor());
+            if (!cursor.field().equals(sort.field()) || !cursor.order().equals(order)) {
+                throw new IllegalArgumentException("Cursor does not match sort criteria: " + sort);
+            }
+
+            queryBuilder.append(" AND (").append(searchQuery.orderExpression()).append(", p.id) ")
+                .append("asc".equals(order) ? ">" : "<")
+                .append(" (:cursorValue, :cursorId)");
+            params.put("cursorValue", parseCursorValue(sort.field(), cursor.value()));
+            params.put("cursorId", cursor.id());
+        }
+
+        queryBuilder.append(" ORDER BY ").append(searchQuery.orderExpression()).append(" ").append(order)
+            .append(", p.id ").append(order);
+
+        var sql = queryBuilder.toString();
+        int maxResults = pagination.limit() + 1;
+        var products = productResultReader.read(sql, params, 0, maxResults, searchQuery.shape());
+
+        String nextCursor = null;
+        if (products.size() > pagination.limit()) {
+            products = products.subList(0, pagination.limit());
+            var last = products.getLast();
+            nextCursor = new SearchCursor(sort.field(), order, cursorValueOf(sort.field(), last), last.id()).encode();
+        }
+
+        return new CursorPagedModel<>(products, new CursorPagedModel.CursorMetadata(pagination.limit(), nextCursor));
+    }
+
+    private static String cursorValueOf(String field, ProductSearchResponse product) {
+        return switch (field) {
+            // Price is stored in cents
+            case SortCriteria.PRICE -> product.price().movePointRight(2).toBigInteger().toString();
+            case SortCriteria.CREATED_AT -> product.createdAt().toString();
+            default -> throw new IllegalArgumentException("Unsupported cursor sort field: " + field);
+        };
+    }
+
+    private static Object parseCursorValue(String field, String value) {
+        try {
+            return switch (field) {
+                case SortCriteria.PRICE -> Integer.valueOf(value);
+                // Timestamps are stored in UTC without time zone
+                case SortCriteria.CREATED_AT -> LocalDateTime.ofInstant(Instant.parse(value), ZoneOffset.UTC);
+                default -> throw new IllegalArgumentException("Unsupported cursor sort field: " + field);
+            };
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor value: " + value, e);
+        }
+    }
+
+    /**
+     * Query without sorting and pagination.
+     *
+     * @param sql             query with WHERE clause, might be extended by keyset condition.
+     * @param params          named query parameters.
+     * @param orderExpression SQL expression of the sort field.
+     * @param sort            requested sort criteria.
+     * @param facetConditions filter conditions split by facets, null for full-text search.
+     * @param shape           metrics tags of the query.
+     */
+    record SearchQuery(
+        StringBuilder sql,
+        Map<String, Object> params,
+        String orderExpression,
+        SortCriteria sort,
+        FacetConditions facetConditions,
+        QueryShape shape
+    ) {
+    }
+
+    /**
+     * Each facet value is a chain of ' AND ...' conditions, empty if there is no filter on the facet.
+     *
+     * @param category   category subtree condition, e.g. 'p.category_id IN (1, 2, 5)'.
+     * @param attributes conditions by attribute name.
+     */
+    record FacetConditions(
+        String category,
+        String brand,
+        String price,
+        Map<String, String> attributes
+    ) {
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Value cannot be converted to JSON: " + value, e);
+        }
     }
 }
@@ -0,0 +1,133 @@
+package com.github.ggruzdov.ecommerce.service;
+
+import com.github.ggruzdov.ecommerce.component.QueryShape;
+import com.github.ggruzdov.ecommerce.component.SearchMetrics;
+import com.github.ggruzdov.ecommerce.component.SuggestionDictionary;
+import com.github.ggruzdov.ecommerce.config.SearchProperties;
+import com.github.ggruzdov.ecommerce.response.SuggestionResponse;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class ProductSuggestionService {
+
+    /**
+     * Distinct names in index order, so the scan stops after 'limit' names, see V1.11 migration.
+     * The range is compared by pattern operators as the 'text_pattern_ops' index is.
+     */
+    static final String NAME_PREFIX_QUERY = """
+        SELECT DISTINCT ON (lower(p.name)) p.id, p.name, p.category_id FROM products p
+        WHERE lower(p.name) ~>=~ :prefix AND lower(p.name) ~<~ :prefixEnd
+        ORDER BY lower(p.name) USING ~<~
+        LIMIT :limit""";
+
+    /**
+     * Nearest names by word similarity to the query, i.e. how well the query matches any part of a name,
+     * served by the trigram GiST index as a KNN scan.
+     */
+    static final String NAME_SIMILARITY_QUERY = """
+        SELECT s.id, s.name, s.category_id FROM (
+            SELECT p.id, p.name, p.category_id, :query <<-> lower(p.name) AS distance FROM products p
+            ORDER BY :query <<-> lower(p.name)
+            LIMIT :candidates
+        ) s
+        WHERE s.distance <= :maxDistance
+        ORDER BY s.distance""";
+
+    private static final QueryShape SHAPE = new QueryShape("none", "suggestions", "none");
+
+    // Products share names, so the nearest rows are fetched with a margin to get enough distinct ones
+    private static final int SIMILARITY_CANDIDATES_FACTOR = 10;
+
+    private static final RowMapper<SuggestionResponse> PRODUCT_MAPPER = (rs, rowNum) -> new SuggestionResponse(
+        rs.getString("name"),
+        SuggestionResponse.Type.PRODUCT,
+        rs.getInt("category_id"),
+        null,
+        rs.getInt("id")
+    );
+
+    private final SuggestionDictionary suggestionDictionary;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final SearchMetrics searchMetrics;
+
+    private final double minSimilarity;
+    private final int fuzzyMinLength;
+
+    public ProductSuggestionService(
+        SuggestionDictionary suggestionDictionary,
+        NamedParameterJdbcTemplate jdbcTemplate,
+        SearchMetrics searchMetrics,
+        SearchProperties searchProperties
+    ) {
+        var suggestions = searchProperties.suggestions();
+        this.suggestionDictionary = suggestionDictionary;
+        this.jdbcTemplate = jdbcTemplate;
+        this.searchMetrics = searchMetrics;
+        this.minSimilarity = suggestions.minSimilarity();
+        this.fuzzyMinLength = suggestions.fuzzyMinLength();
+    }
+
+    /**
+     * Search box suggestions, meant to be requested on every keystroke, so there is no count query
+     * and every lookup is an index range or KNN scan limited by the amount of suggestions.
+     * <p>
+     * Brands and attribute values matching the query prefix go first and take at most half of the limit,
+     * see {@link SuggestionDictionary}. The rest are distinct product names starting with the query.
+     * If there are not enough of them and the query is long enough to be a typo rather than an incomplete word,
+     * they are completed by product names similar to the query, e.g. 'lenvo' suggests 'Lenovo ThinkPad'.
+     *
+     * @param query text typed so far, case and extra whitespaces are ignored.
+     * @param limit max amount of suggestions.
+     */
+    public List<SuggestionResponse> suggest(String query, int limit) {
+        var prefix = SuggestionDictionary.normalize(query);
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+
+        var suggestions = new ArrayList<>(searchMetrics.time("dictionary", SHAPE, () -> suggestionDictionary.find(prefix, (limit + 1) / 2)));
+        int productLimit = limit - suggestions.size();
+
+        var params = Map.<String, Object>of("prefix", prefix, "prefixEnd", prefixEnd(prefix), "limit", productLimit);
+        var products = searchMetrics.timeQuery("prefix", SHAPE, NAME_PREFIX_QUERY, params,
+            () -> jdbcTemplate.query(NAME_PREFIX_QUERY, params, PRODUCT_MAPPER)
+        );
+        suggestions.addAll(products);
+
+        if (products.size() < productLimit && prefix.length() >= fuzzyMinLength) {
+            // Names are distinct case-insensitively as the prefix query has them
+            var names = new HashSet<String>();
+            products.forEach(product -> names.add(SuggestionDictionary.normalize(product.text())));
+            var similarityParams = Map.<String, Object>of(
+                "query", prefix,
+                "candidates", productLimit * SIMILARITY_CANDIDATES_FACTOR,
+                "maxDistance", 1 - minSimilarity
+            );
+            var similar = searchMetrics.timeQuery("similar", SHAPE, NAME_SIMILARITY_QUERY, similarityParams,
+                () -> jdbcTemplate.query(NAME_SIMILARITY_QUERY, similarityParams, PRODUCT_MAPPER)
+            );
+            similar.stream()
+                .filter(product -> names.add(SuggestionDictionary.normalize(product.text())))
+                .limit(productLimit - products.size())
+                .forEach(suggestions::add);
+        }
+
+        return suggestions;
+    }
+
+    /**
+     * @return the least string greater than all strings starting with the prefix,
+     *         code point order is the byte order of UTF-8 the pattern operators compare by.
+     */
+    static String prefixEnd(String prefix) {
+        int last = prefix.codePointBefore(prefix.length());
+        return prefix.substring(0, prefix.length() - Character.charCount(last)) + Character.toString(last + 1);
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.ggruzdov.ecommerce.service;
+
+import com.github.ggruzdov.ecommerce.component.CategoryVersionRegistry;
+import com.github.ggruzdov.ecommerce.config.SearchProperties;
+import com.github.ggruzdov.ecommerce.request.ProductFilterSearchRequest;
+import com.github.ggruzdov.ecommerce.request.ProductFullTextSearchRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * HTTP validators of search responses. An ETag is a weak hash of the endpoint, the canonical request(see {@link SearchResultCache})
+ * with its cursor and the version of the searched categories(see {@link CategoryVersionRegistry}), so it changes once products
+ * of the category subtree, or of any category for full-text search, are changed. It is computed in memory before the search,
+ * so a request matching 'If-None-Match' is answered with 304 without taking a search permit and running any SQL,
+ * and an ETag is never newer than the response it is sent with.
+ * <p>
+ * Searches are safe despite being POST requests, so a match is answered with 304 rather than 412 which RFC 9110
+ * prescribes for other methods. 'Cache-Control' of every endpoint is set by 'ecommerce.search.http-cache.cache-control'.
+ * <p>
+ * Metrics: 'search.not-modified' counter by endpoint.
+ */
+@Component
+public class SearchHttpCache {
+
+    private final SearchProperties.HttpCache properties;
+    private final CategoryVersionRegistry categoryVersionRegistry;
+    private final SearchResultCache searchResultCache;
+    private final MeterRegistry meterRegistry;
+
+    public SearchHttpCache(
+        SearchProperties searchProperties,
+        CategoryVersionRegistry categoryVersionRegistry,
+        SearchResultCache searchResultCache,
+        MeterRegistry meterRegistry
+    ) {
+        this.properties = searchProperties.httpCache();
+        this.categoryVersionRegistry = categoryVersionRegistry;
+        this.searchResultCache = searchResultCache;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> ResponseEntity<T> respond(String endpoint, ProductFilterSearchRequest request, String ifNoneMatch, Supplier<T> search) {
+        return respond(
+            endpoint,
+            searchResultCache.canonical(request) + "|" + request.pagination().cursor(),
+            categoryVersionRegistry.getVersion(request.categoryId()),
+            ifNoneMatch,
+            search
+        );
+    }
+
+    public <T> ResponseEntity<T> respond(String endpoint, ProductFullTextSearchRequest request, String ifNoneMatch, Supplier<T> search) {
+        return respond(
+            endpoint,
+            searchResultCache.canonical(request) + "|" + request.pagination().cursor(),
+            categoryVersionRegistry.getCatalogVersion(),
+            ifNoneMatch,
+            search
+        );
+    }
+
+    private <T> ResponseEntity<T> respond(String endpoint, String request, String version, String ifNoneMatch, Supplier<T> search) {
+        var cacheControl = properties.cacheControl().get(endpoint);
+        if (!properties.etags()) {
+            return withCacheControl(ResponseEntity.ok(), cacheControl).body(search.get());
+        }
+
+        var etag = new ETag(hash(endpoint + "|" + request + "|" + version), true);
+        if (ifNoneMatch != null && matches(ifNoneMatch, etag)) {
+            meterRegistry.counter("search.not-modified", "endpoint", endpoint).increment();
+            return withCacheControl(ResponseEntity.status(HttpStatus.NOT_MODIFIED), cacheControl)
+                .eTag(etag.formattedTag())
+                .build();
+        }
+
+        return withCacheControl(ResponseEntity.ok(), cacheControl)
+            .eTag(etag.formattedTag())
+            .body(search.get());
+    }
+
+    /**
+     * Weak comparison, as the ETags are weak ones.
+     */
+    private static boolean matches(String ifNoneMatch, ETag etag) {
+        return ETag.parse(ifNoneMatch).stream().anyMatch(candidate -> candidate.isWildcard() || candidate.compare(etag, false));
+    }
+
+    private static ResponseEntity.BodyBuilder withCacheControl(ResponseEntity.BodyBuilder response, String cacheControl) {
+        return cacheControl == null ? response : response.header(HttpHeaders.CACHE_CONTROL, cacheControl);
+    }
+
+    private static String hash(String value) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            // 128 bits are plenty to tell responses apart
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.github.ggruzdov.ecommerce.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.ggruzdov.ecommerce.component.CategoryTree;
+import com.github.ggruzdov.ecommerce.component.CategoryTreeRefreshedEvent;
+import com.github.ggruzdov.ecommerce.component.CategoryVersionRegistry;
+import com.github.ggruzdov.ecommerce.component.ProductsChangedEvent;
+import com.github.ggruzdov.ecommerce.config.SearchProperties;
+import com.github.ggruzdov.ecommerce.model.AttributeMetadata;
+import com.github.ggruzdov.ecommerce.model.AttributeType;
+import com.github.ggruzdov.ecommerce.request.FilterCondition;
+import com.github.ggruzdov.ecommerce.request.ProductFilterSearchRequest;
+import com.github.ggruzdov.ecommerce.request.ProductFullTextSearchRequest;
+import com.github.ggruzdov.ecommerce.response.ProductSearchResponse;
+import com.github.ggruzdov.ecommerce.response.RawJsonAttributes;
+import com.github.ggruzdov.ecommerce.response.SearchPagedModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Offset search results cache: local Caffeine cache in front of an optional shared {@link SearchResultStore}.
+ * <p>
+ * Keys are canonical requests, so requests differing only in filters order, number format of numeric attributes(16 vs 16.0),
+ * 'in' values order or phrase case/spaces share the same entry. Local entries are evicted by estimated size
+ * in bytes and TTL. Once products are changed(see {@link ProductsChangedEvent}) results of their categories
+ * with all ancestors and all full-text results are evicted from both levels. Keys include the version of the searched
+ * categories(see {@link CategoryVersionRegistry}), so other instances miss entries of changed categories as soon as
+ * their versions are reloaded, and a cached result is never older than the ETag it is served with.
+ * <p>
+ * Local cache stats are exposed as 'cache.*' metrics with 'cache=search.results' tag.
+ */
+@Slf4j
+@Component
+public class SearchResultCache {
+
+    // Rough size of a product response without text fields
+    private static final int PRODUCT_BASE_WEIGHT = 256;
+
+    private final boolean enabled;
+    private final Duration ttl;
+    private final Cache<Key, SearchPagedModel<ProductSearchResponse>> localCache;
+    private final SearchResultStore sharedStore;
+    private final CategoryTree categoryTree;
+    private final CategoryVersionRegistry categoryVersionRegistry;
+    private final AttributeDefinitionService attributeDefinitionService;
+
+    public SearchResultCache(
+        SearchProperties searchProperties,
+        ObjectProvider<SearchResultStore> sharedStore,
+        CategoryTree categoryTree,
+        CategoryVersionRegistry categoryVersionRegistry,
+        AttributeDefinitionService attributeDefinitionService,
+        MeterRegistry meterRegistry
+    ) {
+        this.categoryTree = categoryTree;
+        this.categoryVersionRegistry = categoryVersionRegistry;
+        this.attributeDefinitionService = attributeDefinitionService;
+        var properties = searchProperties.resultCache();
+        this.enabled = properties.enabled();
+        this.ttl = properties.ttl();
+        this.localCache = Caffeine.newBuilder()
+            .maximumWeight(properties.maxWeight().toBytes())
+            .weigher((Key key, SearchPagedModel<ProductSearchResponse> result) -> weigh(result))
+            .expireAfterWrite(properties.ttl())
+            .recordStats()
+            .build();
+        this.sharedStore = sharedStore.getIfAvailable();
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "search.results");
+    }
+
+    public SearchPagedModel<ProductSearchResponse> get(ProductFilterSearchRequest request, Supplier<SearchPagedModel<ProductSearchResponse>> search) {
+        return get(new Key(request.categoryId(), canonical(request), categoryVersionRegistry.getVersion(request.categoryId())), search);
+    }
+
+    public SearchPagedModel<ProductSearchResponse> get(ProductFullTextSearchRequest request, Supplier<SearchPagedModel<ProductSearchResponse>> search) {
+        return get(new Key(null, canonical(request), categoryVersionRegistry.getCatalogVersion()), search);
+    }
+
+    private SearchPagedModel<ProductSearchResponse> get(Key key, Supplier<SearchPagedModel<ProductSearchResponse>> search) {
+        if (!enabled) {
+            return search.get();
+        }
+
+        // Not computed under the cache lock, as searches are slow compared to the cache operations
+        var result = localCache.getIfPresent(key);
+        if (result != null) {
+            return result;
+        }
+
+        result = sharedStore == null ? null : sharedStore.get(key);
+        if (result == null) {
+            result = search.get();
+            if (sharedStore != null) {
+                sharedStore.put(key, result, ttl);
+            }
+        }
+        localCache.put(key, result);
+
+        return result;
+    }
+
+    @EventListener
+    public void onProductsChanged(ProductsChangedEvent event) {
+        // Results of ancestor categories include products of their descendants
+        var categoryIds = categoryTree.withAncestors(event.categoryIds());
+        // Full-text results(no category) might contain products of any category
+        localCache.asMap().keySet().removeIf(key -> key.categoryId() == null || categoryIds.contains(key.categoryId()));
+        if (sharedStore != null) {
+            sharedStore.evictCategories(categoryIds);
+        }
+        log.debug("Search results evicted: categoryIds = {}", categoryIds);
+    }
+
+    /**
+     * Subtrees might have changed, so do filter results. Shared store entries expire by TTL.
+     */
+    @EventListener
+    public void onCategoryTreeRefreshed(CategoryTreeRefreshedEvent event) {
+        localCache.invalidateAll();
+    }
+
+    void invalidateLocal() {
+        localCache.invalidateAll();
+    }
+
+    /**
+     * Filter values are in the form they are coerced to by their attribute type(see {@link AttributeType#coerce}),
+     * e.g. 16 and 16.0 are the same value of a numeric attribute, but not of a VARCHAR one.
+     */
+    public String canonical(ProductFilterSearchRequest request) {
+        var price = request.price();
+        var attributes = attributeDefinitionService.getAttributes(request.categoryId());
+        var filters = new TreeMap<>(request.filters())
+            .entrySet()
+            .stream()
+            .map(filter -> filter.getKey() + ":" + canonical(filter.getValue(), attributes.get(filter.getKey())))
+            .collect(Collectors.joining(","));
+
+        return "filter|" + request.categoryId()
+            + "|" + request.brand()
+            + "|" + (price == null ? null : price.min()) + "-" + (price == null ? null : price.max())
+            + "|" + filters
+            + "|" + request.sort().field() + " " + request.sort().order().toLowerCase(Locale.ROOT)
+            + "|" + request.pagination().page() + "x" + request.pagination().limit()
+            + "|" + request.countStrategy()
+            + "|" + request.includeFacets();
+    }
+
+    /**
+     * The phrase is case-insensitive and whitespace-insensitive for 'websearch_to_tsquery'.
+     */
+    public String canonical(ProductFullTextSearchRequest request) {
+        var phrase = request.phrase() == null ? null : request.phrase().strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+
+        return "full-text|" + phrase
+            + "|" + request.sort().field() + " " + request.sort().order().toLowerCase(Locale.ROOT)
+            + "|" + request.pagination().page() + "x" + request.pagination().limit()
+            + "|" + request.countStrategy();
+    }
+
+    /**
+     * @param attribute null if the category has no such attribute, the search fails then.
+     */
+    private static String canonical(FilterCondition condition, AttributeMetadata attribute) {
+        if (condition == null) {
+            return null;
+        }
+
+        var values = condition.values() == null
+            ? null
+            : condition.values().stream().map(value -> canonical(value, attribute)).sorted().toList();
+
+        return condition.operator()
+            + "(" + canonical(condition.value(), attribute)
+            + "," + values
+            + "," + canonical(condition.fromValue(), attribute)
+            + "," + canonical(condition.toValue(), attribute) + ")";
+    }
+
+    private static String canonical(Object value, AttributeMetadata attribute) {
+        if (value instanceof Number number && attribute != null && attribute.type().isNumeric()) {
+            try {
+                return new BigDecimal(number.toString()).stripTrailingZeros().toPlainString();
+            } catch (NumberFormatException e) {
+                // NaN or Infinity
+                return number.toString();
+            }
+        }
+
+        return String.valueOf(value);
+    }
+
+    private static int weigh(SearchPagedModel<ProductSearchResponse> result) {
+        long weight = PRODUCT_BASE_WEIGHT;
+        for (var product : result.getContent()) {
+            weight += PRODUCT_BASE_WEIGHT;
+            weight += 2L * (product.name().length() + product.description().length());
+            weight += 2L * (product.attributes() instanceof RawJsonAttributes raw ? raw.json().length() : 1024);
+        }
+
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param categoryId null for full-text search.
+     * @param request    canonical request.
+     * @param version    version of the searched categories read before the search.
+     */
+    public record Key(
+        Integer categoryId,
+        String request,
+        String version
+    ) {
+    }
+}
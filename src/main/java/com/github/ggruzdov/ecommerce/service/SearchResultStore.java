@@ -0,0 +1,26 @@
+package com.github.ggruzdov.ecommerce.service;
+
+import com.github.ggruzdov.ecommerce.response.ProductSearchResponse;
+import com.github.ggruzdov.ecommerce.response.SearchPagedModel;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Second level of {@link SearchResultCache} shared between application instances, e.g. Redis.
+ * It is optional, the cache works with the local level only if there is no such bean.
+ */
+public interface SearchResultStore {
+
+    /**
+     * @return cached result or null.
+     */
+    SearchPagedModel<ProductSearchResponse> get(SearchResultCache.Key key);
+
+    void put(SearchResultCache.Key key, SearchPagedModel<ProductSearchResponse> result, Duration ttl);
+
+    /**
+     * Evicts results of the categories and all full-text search results.
+     */
+    void evictCategories(Set<Integer> categoryIds);
+}
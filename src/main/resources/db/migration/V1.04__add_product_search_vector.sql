@@ -0,0 +1,14 @@
+-- Weighted document for full-text search: name matches rank above brand, brand above description.
+-- The column is generated and stored so the GIN index below is always used by 'search_vector @@ ...' queries.
+ALTER TABLE products
+    ADD COLUMN search_vector TSVECTOR GENERATED ALWAYS AS (
+        setweight(to_tsvector('english', name), 'A') ||
+        setweight(to_tsvector('english', brand), 'B') ||
+        setweight(to_tsvector('english', description), 'C')
+    ) STORED;
+
+DROP INDEX idx_product_description_text_search;
+
+CREATE INDEX idx_product_search_vector
+ON products
+USING gin (search_vector);
@@ -0,0 +1,9 @@
+-- Keyset pagination seeks by (sort field, id) tuple, so both sortable fields get a composite index
+-- prefixed by category_id. Such an index serves 'WHERE category_id = ? AND (price, id) > (?, ?) ORDER BY price, id'
+-- with an index range scan, i.e. page N costs the same as page 1.
+ALTER TABLE products ALTER COLUMN created_at SET NOT NULL;
+
+DROP INDEX idx_product_category_price;
+
+CREATE INDEX idx_product_category_price_id ON products (category_id, price, id);
+CREATE INDEX idx_product_category_created_at_id ON products (category_id, created_at, id);
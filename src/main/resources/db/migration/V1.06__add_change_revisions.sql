@@ -0,0 +1,20 @@
+-- Monotonic revision per table, bumped by any statement changing the table.
+-- Application caches poll it to find out whether they have to be reloaded.
+CREATE TABLE change_revisions(
+    name        VARCHAR(50) NOT NULL,
+    revision    BIGINT      NOT NULL DEFAULT 0,
+    CONSTRAINT pk_change_revisions PRIMARY KEY (name)
+);
+
+CREATE FUNCTION bump_change_revision() RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE change_revisions SET revision = revision + 1 WHERE name = TG_ARGV[0];
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+INSERT INTO change_revisions(name) VALUES ('attribute_definitions');
+
+CREATE TRIGGER trg_attribute_definitions_revision
+AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON attribute_definitions
+FOR EACH STATEMENT EXECUTE FUNCTION bump_change_revision('attribute_definitions');
@@ -0,0 +1,9 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Filterable attributes get typed expression or trigram indexes per category, see AttributeIndexManager
+ALTER TABLE attribute_definitions ADD COLUMN is_filterable BOOLEAN NOT NULL DEFAULT false;
+
+UPDATE attribute_definitions SET is_filterable = true WHERE category_id = 2;
+
+-- Serves 'eq' and 'in' filters rewritten as 'attributes @> ...' and 'attributes @@ ...' of any attribute
+CREATE INDEX idx_product_attributes ON products USING gin (attributes jsonb_path_ops);
@@ -0,0 +1,4 @@
+-- Bulk ingest upserts products by SKU, see ProductIngestService
+ALTER TABLE products ADD CONSTRAINT uq_products_sku UNIQUE (sku);
+
+ALTER TABLE products ADD CONSTRAINT fk_products_category FOREIGN KEY (category_id) REFERENCES categories (id);
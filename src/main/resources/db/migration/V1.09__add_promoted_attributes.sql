@@ -0,0 +1,7 @@
+-- Promoted attributes are materialized into typed generated columns of products, see PromotedAttributeManager
+ALTER TABLE attribute_definitions ADD COLUMN is_promoted BOOLEAN NOT NULL DEFAULT false;
+
+-- Laptop numeric attributes are the most used range filters
+UPDATE attribute_definitions
+SET is_promoted = true
+WHERE category_id = 2 AND name IN ('screen_size', 'RAM', 'storage_capacity');
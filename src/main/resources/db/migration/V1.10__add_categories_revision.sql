@@ -0,0 +1,9 @@
+-- Category tree is cached in memory, see CategoryTree
+INSERT INTO change_revisions(name) VALUES ('categories');
+
+CREATE TRIGGER trg_categories_revision
+AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON categories
+FOR EACH STATEMENT EXECUTE FUNCTION bump_change_revision('categories');
+
+-- Desktops make 'Digital equipment' a category with several children
+INSERT INTO categories(name, parent_id) VALUES ('Desktops', 1);
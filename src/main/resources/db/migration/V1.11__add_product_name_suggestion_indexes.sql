@@ -0,0 +1,7 @@
+-- Search box suggestions by product name, see ProductSuggestionService.
+-- Prefix lookup is a range scan of lowercased names compared byte-wise(text_pattern_ops),
+-- which does not depend on the database collation and works with generic plans of prepared statements.
+CREATE INDEX idx_product_name_prefix ON products (lower(name) text_pattern_ops);
+
+-- Typo tolerant fallback, GiST serves nearest neighbours by word similarity('<<->' operator)
+CREATE INDEX idx_product_name_trgm ON products USING gist (lower(name) gist_trgm_ops);
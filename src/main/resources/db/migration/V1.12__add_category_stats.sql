@@ -0,0 +1,128 @@
+-- Per category aggregates for range sliders and price widgets, served from memory by CategoryStatsRegistry.
+-- Both tables are maintained incrementally by statement level triggers of products: rows changed by a statement
+-- are read from transition tables and aggregated into deltas, so a bulk statement costs one upsert per touched
+-- category/attribute value rather than one per product row.
+CREATE TABLE category_stats(
+    category_id INTEGER NOT NULL,
+    products    BIGINT  NOT NULL,
+    min_price   INTEGER,
+    max_price   INTEGER,
+    CONSTRAINT pk_category_stats PRIMARY KEY (category_id)
+);
+
+-- Amount of products per attribute value, values are stored as text of JSONB ones(e.g. '16', 'SSD').
+-- All attribute keys are counted, attribute definitions are applied on read, so they can change without a rebuild.
+CREATE TABLE category_attribute_stats(
+    category_id INTEGER      NOT NULL,
+    attribute   VARCHAR(100) NOT NULL,
+    value       TEXT         NOT NULL,
+    products    BIGINT       NOT NULL,
+    CONSTRAINT pk_category_attribute_stats PRIMARY KEY (category_id, attribute, value)
+);
+
+CREATE FUNCTION update_category_stats() RETURNS TRIGGER AS $$
+DECLARE
+    changes TEXT;
+BEGIN
+    IF TG_OP = 'TRUNCATE' THEN
+        TRUNCATE category_stats, category_attribute_stats;
+        RETURN NULL;
+    END IF;
+
+    -- Transition tables are visible to dynamic SQL only if they are defined for the trigger event
+    changes := CASE TG_OP
+        WHEN 'INSERT' THEN 'SELECT category_id, price, attributes, 1 AS delta FROM new_rows'
+        WHEN 'DELETE' THEN 'SELECT category_id, price, attributes, -1 AS delta FROM old_rows'
+        ELSE 'SELECT category_id, price, attributes, 1 AS delta FROM new_rows
+              UNION ALL
+              SELECT category_id, price, attributes, -1 AS delta FROM old_rows'
+    END;
+
+    -- Rows are upserted in key order, so concurrent statements lock them in the same order and do not deadlock
+    EXECUTE format($sql$
+        INSERT INTO category_stats AS s (category_id, products, min_price, max_price)
+        SELECT category_id, SUM(delta), MIN(price) FILTER (WHERE delta > 0), MAX(price) FILTER (WHERE delta > 0)
+        FROM (%s) c
+        GROUP BY category_id
+        ORDER BY category_id
+        ON CONFLICT (category_id) DO UPDATE SET
+            products = s.products + excluded.products,
+            min_price = LEAST(s.min_price, excluded.min_price),
+            max_price = GREATEST(s.max_price, excluded.max_price)
+        $sql$, changes);
+
+    -- A removed price might have been the category extreme, which is then looked up by (category_id, price) index
+    IF TG_OP <> 'INSERT' THEN
+        EXECUTE format($sql$
+            UPDATE category_stats s SET
+                min_price = (SELECT MIN(p.price) FROM products p WHERE p.category_id = s.category_id),
+                max_price = (SELECT MAX(p.price) FROM products p WHERE p.category_id = s.category_id)
+            WHERE s.category_id IN (
+                SELECT c.category_id
+                FROM (%s) c
+                JOIN category_stats cs ON cs.category_id = c.category_id
+                WHERE c.delta < 0 AND (c.price <= cs.min_price OR c.price >= cs.max_price)
+            )
+            $sql$, changes);
+    END IF;
+
+    EXECUTE format($sql$
+        INSERT INTO category_attribute_stats AS s (category_id, attribute, value, products)
+        SELECT c.category_id, a.key, a.value, SUM(c.delta)
+        FROM (%s) c
+        -- Products without attributes object are not counted by any attribute
+        CROSS JOIN LATERAL jsonb_each_text(CASE WHEN jsonb_typeof(c.attributes) = 'object' THEN c.attributes END) a
+        WHERE a.value IS NOT NULL
+        GROUP BY c.category_id, a.key, a.value
+        ORDER BY c.category_id, a.key, a.value
+        ON CONFLICT (category_id, attribute, value) DO UPDATE SET
+            products = s.products + excluded.products
+        $sql$, changes);
+
+    -- Categories and values without products are removed, so the tables do not grow by values that are gone
+    IF TG_OP <> 'INSERT' THEN
+        EXECUTE format($sql$
+            DELETE FROM category_attribute_stats
+            WHERE products <= 0 AND category_id IN (SELECT category_id FROM (%s) c)
+            $sql$, changes);
+        EXECUTE format($sql$
+            DELETE FROM category_stats
+            WHERE products <= 0 AND category_id IN (SELECT category_id FROM (%s) c)
+            $sql$, changes);
+    END IF;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Transition tables cannot be defined for a trigger of several events
+CREATE TRIGGER trg_products_stats_insert
+AFTER INSERT ON products
+REFERENCING NEW TABLE AS new_rows
+FOR EACH STATEMENT EXECUTE FUNCTION update_category_stats();
+
+CREATE TRIGGER trg_products_stats_update
+AFTER UPDATE ON products
+REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+FOR EACH STATEMENT EXECUTE FUNCTION update_category_stats();
+
+CREATE TRIGGER trg_products_stats_delete
+AFTER DELETE ON products
+REFERENCING OLD TABLE AS old_rows
+FOR EACH STATEMENT EXECUTE FUNCTION update_category_stats();
+
+CREATE TRIGGER trg_products_stats_truncate
+AFTER TRUNCATE ON products
+FOR EACH STATEMENT EXECUTE FUNCTION update_category_stats();
+
+INSERT INTO category_stats(category_id, products, min_price, max_price)
+SELECT category_id, COUNT(1), MIN(price), MAX(price)
+FROM products
+GROUP BY category_id;
+
+INSERT INTO category_attribute_stats(category_id, attribute, value, products)
+SELECT p.category_id, a.key, a.value, COUNT(1)
+FROM products p
+CROSS JOIN LATERAL jsonb_each_text(CASE WHEN jsonb_typeof(p.attributes) = 'object' THEN p.attributes END) a
+WHERE a.value IS NOT NULL
+GROUP BY p.category_id, a.key, a.value;
@@ -0,0 +1,48 @@
+-- Change feed of products for in-memory search indexes, see ProductBitmapEngine.
+-- A row per changed product and statement, the product itself is read from products by the consumer,
+-- so rows are tiny and applying one twice is harmless. NULL product_id means all products are gone(TRUNCATE).
+-- Readers take rows of transactions not finished at their previous poll by 'xid', so a row is never missed
+-- because of a transaction committing out of id order.
+CREATE TABLE product_changes(
+    id          BIGINT    GENERATED ALWAYS AS IDENTITY NOT NULL,
+    product_id  INTEGER,
+    xid         XID8      NOT NULL DEFAULT pg_current_xact_id(),
+    changed_at  TIMESTAMP NOT NULL DEFAULT now(),
+    CONSTRAINT pk_product_changes PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_product_changes_xid ON product_changes (xid);
+CREATE INDEX idx_product_changes_changed_at ON product_changes (changed_at);
+
+CREATE FUNCTION log_product_changes() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'TRUNCATE' THEN
+        INSERT INTO product_changes(product_id) VALUES (NULL);
+    ELSIF TG_OP = 'INSERT' THEN
+        INSERT INTO product_changes(product_id) SELECT id FROM new_rows;
+    ELSE
+        -- Deleted and updated rows, id of a product is never updated
+        INSERT INTO product_changes(product_id) SELECT id FROM old_rows;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_products_changes_insert
+AFTER INSERT ON products
+REFERENCING NEW TABLE AS new_rows
+FOR EACH STATEMENT EXECUTE FUNCTION log_product_changes();
+
+CREATE TRIGGER trg_products_changes_update
+AFTER UPDATE ON products
+REFERENCING OLD TABLE AS old_rows
+FOR EACH STATEMENT EXECUTE FUNCTION log_product_changes();
+
+CREATE TRIGGER trg_products_changes_delete
+AFTER DELETE ON products
+REFERENCING OLD TABLE AS old_rows
+FOR EACH STATEMENT EXECUTE FUNCTION log_product_changes();
+
+CREATE TRIGGER trg_products_changes_truncate
+AFTER TRUNCATE ON products
+FOR EACH STATEMENT EXECUTE FUNCTION log_product_changes();
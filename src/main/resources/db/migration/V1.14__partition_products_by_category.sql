@@ -0,0 +1,197 @@
+-- Products are list-partitioned by category: a partition per category named 'products_<category id>'.
+-- Every search is scoped by inlined category ids, so the planner prunes partitions of other categories at planning time,
+-- and scans, attribute indexes(see AttributeIndexManager) and vacuum of a category do not depend on the size of others.
+--
+-- Partitioned tables do not support constraints without the partition key, hence:
+-- * the primary key is (id, category_id), ids are still unique as they come from the identity sequence only;
+-- * SKU is unique per category by constraint, and across categories by the statement triggers below.
+-- Generated promoted attribute columns are not copied, PromotedAttributeManager adds them back on startup.
+
+-- Names of the constraints and indexes are taken by the new table
+ALTER TABLE products RENAME TO products_unpartitioned;
+ALTER SEQUENCE products_id_seq RENAME TO products_unpartitioned_id_seq;
+ALTER TABLE products_unpartitioned
+    DROP CONSTRAINT pk_products,
+    DROP CONSTRAINT uq_products_sku,
+    DROP CONSTRAINT fk_products_category;
+DROP INDEX idx_product_brand, idx_product_search_vector, idx_product_category_price_id, idx_product_category_created_at_id,
+    idx_product_attributes, idx_product_name_prefix, idx_product_name_trgm;
+
+CREATE TABLE products(
+    id            INTEGER GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    sku           VARCHAR(50)  NOT NULL,
+    name          VARCHAR(100) NOT NULL,
+    category_id   INTEGER      NOT NULL,
+    brand         VARCHAR(50)  NOT NULL DEFAULT 'Other',
+    price         INTEGER      NOT NULL,
+    weight        DECIMAL      NOT NULL,
+    description   TEXT         NOT NULL,
+    attributes    JSONB        NOT NULL,
+    created_at    TIMESTAMP    NOT NULL DEFAULT clock_timestamp(),
+    updated_at    TIMESTAMP,
+    search_vector TSVECTOR GENERATED ALWAYS AS (
+        setweight(to_tsvector('english', name), 'A') ||
+        setweight(to_tsvector('english', brand), 'B') ||
+        setweight(to_tsvector('english', description), 'C')
+    ) STORED
+) PARTITION BY LIST (category_id);
+
+-- Indexes of a partition are named after their parent ones, e.g. idx_product_search_vector_2,
+-- rather than generated names, so query plans tell which index is used
+CREATE FUNCTION name_products_partition_indexes(category INTEGER) RETURNS VOID AS $$
+DECLARE
+    idx RECORD;
+BEGIN
+    FOR idx IN
+        SELECT child.relname AS name, parent.relname || '_' || category AS parent_name
+        FROM pg_index x
+        JOIN pg_class child ON child.oid = x.indexrelid
+        JOIN pg_inherits i ON i.inhrelid = x.indexrelid
+        JOIN pg_class parent ON parent.oid = i.inhparent
+        WHERE x.indrelid = format('products_%s', category)::regclass AND child.relname <> parent.relname || '_' || category
+    LOOP
+        EXECUTE format('ALTER INDEX %I RENAME TO %I', idx.name, idx.parent_name);
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+-- The partition gets all indexes of the parent table
+CREATE FUNCTION create_products_partition(category INTEGER) RETURNS VOID AS $$
+BEGIN
+    EXECUTE format('CREATE TABLE IF NOT EXISTS products_%s PARTITION OF products FOR VALUES IN (%s)', category, category);
+    PERFORM name_products_partition_indexes(category);
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT create_products_partition(id) FROM categories ORDER BY id;
+
+-- Loaded before indexes are built, which is faster than maintaining them row by row
+INSERT INTO products(id, sku, name, category_id, brand, price, weight, description, attributes, created_at, updated_at)
+SELECT id, sku, name, category_id, brand, price, weight, description, attributes, created_at, updated_at
+FROM products_unpartitioned;
+
+SELECT setval(pg_get_serial_sequence('products', 'id'), COALESCE(MAX(id), 0) + 1, false) FROM products;
+
+DROP TABLE products_unpartitioned;
+
+ALTER TABLE products
+    ADD CONSTRAINT pk_products PRIMARY KEY (id, category_id),
+    ADD CONSTRAINT uq_products_sku UNIQUE (sku, category_id),
+    ADD CONSTRAINT fk_products_category FOREIGN KEY (category_id) REFERENCES categories (id);
+
+CREATE INDEX idx_product_brand ON products (brand);
+CREATE INDEX idx_product_search_vector ON products USING gin (search_vector);
+-- The category is the same within a partition, so keyset indexes are not prefixed by it anymore,
+-- and a subtree search sorted by price is a merge of partition index scans
+CREATE INDEX idx_product_price_id ON products (price, id);
+CREATE INDEX idx_product_created_at_id ON products (created_at, id);
+CREATE INDEX idx_product_attributes ON products USING gin (attributes jsonb_path_ops);
+CREATE INDEX idx_product_name_prefix ON products (lower(name) text_pattern_ops);
+CREATE INDEX idx_product_name_trgm ON products USING gist (lower(name) gist_trgm_ops);
+
+SELECT name_products_partition_indexes(id) FROM categories ORDER BY id;
+
+-- New categories get their partitions right away, a category can be deleted only without products,
+-- so its partition is empty. Both take an exclusive lock of products for a moment.
+CREATE FUNCTION sync_category_products_partition() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        PERFORM create_products_partition(NEW.id);
+    ELSE
+        EXECUTE format('DROP TABLE IF EXISTS products_%s', OLD.id);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_categories_products_partition
+AFTER INSERT OR DELETE ON categories
+FOR EACH ROW EXECUTE FUNCTION sync_category_products_partition();
+
+-- Partitions have no global unique index, so SKUs of inserted products, as well as of updated ones with a changed SKU
+-- or category, are looked up after the statement by the (sku, category_id) index of every partition.
+-- A product moved to another category does not collide with itself, as it is not in the old partition anymore.
+CREATE FUNCTION check_product_sku_unique() RETURNS TRIGGER AS $$
+DECLARE
+    duplicate TEXT;
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        SELECT p.sku INTO duplicate
+        FROM products p
+        WHERE p.sku IN (SELECT sku FROM new_rows)
+        GROUP BY p.sku
+        HAVING COUNT(1) > 1
+        LIMIT 1;
+    ELSE
+        SELECT p.sku INTO duplicate
+        FROM products p
+        WHERE p.sku IN (
+            SELECT n.sku FROM new_rows n
+            JOIN old_rows o ON o.id = n.id
+            WHERE o.sku <> n.sku OR o.category_id <> n.category_id
+        )
+        GROUP BY p.sku
+        HAVING COUNT(1) > 1
+        LIMIT 1;
+    END IF;
+
+    IF duplicate IS NOT NULL THEN
+        RAISE EXCEPTION 'duplicate key value violates unique constraint "uq_products_sku"'
+            USING ERRCODE = 'unique_violation', DETAIL = format('Key (sku)=(%s) already exists.', duplicate);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_products_sku_insert
+AFTER INSERT ON products
+REFERENCING NEW TABLE AS new_rows
+FOR EACH STATEMENT EXECUTE FUNCTION check_product_sku_unique();
+
+CREATE TRIGGER trg_products_sku_update
+AFTER UPDATE ON products
+REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+FOR EACH STATEMENT EXECUTE FUNCTION check_product_sku_unique();
+
+-- Triggers of V1.12 and V1.13 migrations were dropped together with the previous table,
+-- the stats and the change feed are up to date as the products are the same
+CREATE TRIGGER trg_products_stats_insert
+AFTER INSERT ON products
+REFERENCING NEW TABLE AS new_rows
+FOR EACH STATEMENT EXECUTE FUNCTION update_category_stats();
+
+CREATE TRIGGER trg_products_stats_update
+AFTER UPDATE ON products
+REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+FOR EACH STATEMENT EXECUTE FUNCTION update_category_stats();
+
+CREATE TRIGGER trg_products_stats_delete
+AFTER DELETE ON products
+REFERENCING OLD TABLE AS old_rows
+FOR EACH STATEMENT EXECUTE FUNCTION update_category_stats();
+
+CREATE TRIGGER trg_products_stats_truncate
+AFTER TRUNCATE ON products
+FOR EACH STATEMENT EXECUTE FUNCTION update_category_stats();
+
+CREATE TRIGGER trg_products_changes_insert
+AFTER INSERT ON products
+REFERENCING NEW TABLE AS new_rows
+FOR EACH STATEMENT EXECUTE FUNCTION log_product_changes();
+
+CREATE TRIGGER trg_products_changes_update
+AFTER UPDATE ON products
+REFERENCING OLD TABLE AS old_rows
+FOR EACH STATEMENT EXECUTE FUNCTION log_product_changes();
+
+CREATE TRIGGER trg_products_changes_delete
+AFTER DELETE ON products
+REFERENCING OLD TABLE AS old_rows
+FOR EACH STATEMENT EXECUTE FUNCTION log_product_changes();
+
+CREATE TRIGGER trg_products_changes_truncate
+AFTER TRUNCATE ON products
+FOR EACH STATEMENT EXECUTE FUNCTION log_product_changes();
+
+-- Autovacuum analyzes partitions only, statistics of the parent are used by plans over several partitions
+ANALYZE products;
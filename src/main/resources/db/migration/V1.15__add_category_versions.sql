@@ -0,0 +1,55 @@
+-- Catalog version per category for ETags of search responses, served from memory by CategoryVersionRegistry.
+-- Bumped once per products statement and touched category(both old and new one of a moved product), a category
+-- without a row has not changed since the migration, i.e. its version is 0. The rows are locked by the same writers
+-- as 'category_stats' ones, so concurrent writers do not serialize more than they already do.
+CREATE TABLE category_versions(
+    category_id INTEGER NOT NULL,
+    version     BIGINT  NOT NULL,
+    CONSTRAINT pk_category_versions PRIMARY KEY (category_id)
+);
+
+CREATE FUNCTION bump_category_versions() RETURNS TRIGGER AS $$
+DECLARE
+    changes TEXT;
+BEGIN
+    -- Transition tables are visible to dynamic SQL only if they are defined for the trigger event
+    changes := CASE TG_OP
+        WHEN 'TRUNCATE' THEN 'SELECT id AS category_id FROM categories'
+        WHEN 'INSERT' THEN 'SELECT category_id FROM new_rows'
+        WHEN 'DELETE' THEN 'SELECT category_id FROM old_rows'
+        ELSE 'SELECT category_id FROM new_rows UNION SELECT category_id FROM old_rows'
+    END;
+
+    -- Rows are upserted in key order, so concurrent statements lock them in the same order and do not deadlock
+    EXECUTE format($sql$
+        INSERT INTO category_versions AS v (category_id, version)
+        SELECT DISTINCT category_id, 1
+        FROM (%s) c
+        ORDER BY category_id
+        ON CONFLICT (category_id) DO UPDATE SET
+            version = v.version + 1
+        $sql$, changes);
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Transition tables cannot be defined for a trigger of several events
+CREATE TRIGGER trg_products_versions_insert
+AFTER INSERT ON products
+REFERENCING NEW TABLE AS new_rows
+FOR EACH STATEMENT EXECUTE FUNCTION bump_category_versions();
+
+CREATE TRIGGER trg_products_versions_update
+AFTER UPDATE ON products
+REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+FOR EACH STATEMENT EXECUTE FUNCTION bump_category_versions();
+
+CREATE TRIGGER trg_products_versions_delete
+AFTER DELETE ON products
+REFERENCING OLD TABLE AS old_rows
+FOR EACH STATEMENT EXECUTE FUNCTION bump_category_versions();
+
+CREATE TRIGGER trg_products_versions_truncate
+AFTER TRUNCATE ON products
+FOR EACH STATEMENT EXECUTE FUNCTION bump_category_versions();
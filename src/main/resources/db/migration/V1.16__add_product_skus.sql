@@ -0,0 +1,60 @@
+-- SKUs across category partitions were checked by V1.14 statement triggers counting the rows they can see,
+-- which misses a SKU inserted into another category by a concurrent uncommitted transaction. Instead, every SKU
+-- has a row in 'product_skus' kept in sync by statement triggers, so its primary key makes a concurrent writer
+-- of the same SKU wait for the first one and fail with a unique violation once it commits.
+DROP TRIGGER trg_products_sku_insert ON products;
+DROP TRIGGER trg_products_sku_update ON products;
+DROP FUNCTION check_product_sku_unique();
+
+CREATE TABLE product_skus(
+    sku        VARCHAR(50) NOT NULL,
+    product_id INTEGER     NOT NULL,
+    CONSTRAINT pk_product_skus PRIMARY KEY (sku)
+);
+
+INSERT INTO product_skus(sku, product_id) SELECT sku, id FROM products;
+
+-- A product moved to another category keeps its SKU and id, so only changed SKUs are touched.
+-- Old SKUs are released before new ones are taken, so SKUs swapped by one statement do not collide.
+CREATE FUNCTION sync_product_skus() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'TRUNCATE' THEN
+        TRUNCATE product_skus;
+    ELSIF TG_OP = 'INSERT' THEN
+        INSERT INTO product_skus(sku, product_id) SELECT sku, id FROM new_rows;
+    ELSIF TG_OP = 'DELETE' THEN
+        DELETE FROM product_skus s USING old_rows o WHERE s.sku = o.sku;
+    ELSE
+        DELETE FROM product_skus s
+        USING old_rows o
+        JOIN new_rows n ON n.id = o.id
+        WHERE s.sku = o.sku AND o.sku <> n.sku;
+
+        INSERT INTO product_skus(sku, product_id)
+        SELECT n.sku, n.id
+        FROM new_rows n
+        JOIN old_rows o ON o.id = n.id
+        WHERE o.sku <> n.sku;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_products_skus_insert
+AFTER INSERT ON products
+REFERENCING NEW TABLE AS new_rows
+FOR EACH STATEMENT EXECUTE FUNCTION sync_product_skus();
+
+CREATE TRIGGER trg_products_skus_update
+AFTER UPDATE ON products
+REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+FOR EACH STATEMENT EXECUTE FUNCTION sync_product_skus();
+
+CREATE TRIGGER trg_products_skus_delete
+AFTER DELETE ON products
+REFERENCING OLD TABLE AS old_rows
+FOR EACH STATEMENT EXECUTE FUNCTION sync_product_skus();
+
+CREATE TRIGGER trg_products_skus_truncate
+AFTER TRUNCATE ON products
+FOR EACH STATEMENT EXECUTE FUNCTION sync_product_skus();
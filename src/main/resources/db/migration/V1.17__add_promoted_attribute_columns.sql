@@ -0,0 +1,62 @@
+-- Promoted attributes(see V1.09) are materialized into typed generated columns of products by migrations only,
+-- as adding a stored generated column rewrites the table under an exclusive lock. To promote or demote an attribute
+-- a migration updates 'attribute_definitions.is_promoted' and calls sync_promoted_attribute_columns().
+-- PromotedAttributeManager reads the existing columns and lets searches use the up-to-date ones.
+--
+-- A column 'attr_<attribute id>' has a B-tree index on the partition of the attribute category(see V1.14) and a comment
+-- with the attribute definition it was generated from, so a renamed or retyped attribute gets its column rebuilt.
+-- Expressions must be immutable and never fail, so numeric attributes with non-number JSON values
+-- as well as products of other categories get NULL.
+CREATE FUNCTION sync_promoted_attribute_columns() RETURNS VOID AS $$
+DECLARE
+    col RECORD;
+BEGIN
+    -- Columns of demoted or changed attributes, their indexes are dropped together with them
+    FOR col IN
+        SELECT a.attname AS column_name
+        FROM pg_attribute a
+        WHERE a.attrelid = 'products'::regclass AND a.attnum > 0 AND NOT a.attisdropped AND a.attname ~ '^attr_\d+$'
+            AND col_description(a.attrelid, a.attnum) IS DISTINCT FROM (
+                SELECT d.category_id || ':' || d.name || ':' || upper(d.type)
+                FROM attribute_definitions d
+                WHERE d.is_promoted AND 'attr_' || d.id = a.attname
+            )
+    LOOP
+        EXECUTE format('ALTER TABLE products DROP COLUMN %I', col.column_name);
+    END LOOP;
+
+    FOR col IN
+        SELECT 'attr_' || d.id AS column_name, d.category_id, d.name, upper(d.type) AS type,
+            d.category_id || ':' || d.name || ':' || upper(d.type) AS definition,
+            EXISTS (
+                SELECT 1 FROM pg_attribute a
+                WHERE a.attrelid = 'products'::regclass AND a.attname = 'attr_' || d.id AND NOT a.attisdropped
+            ) AS present
+        FROM attribute_definitions d
+        WHERE d.is_promoted
+        ORDER BY d.id
+    LOOP
+        IF NOT col.present THEN
+            IF col.type IN ('INTEGER', 'DECIMAL') THEN
+                EXECUTE format(
+                    'ALTER TABLE products ADD COLUMN %I NUMERIC GENERATED ALWAYS AS (CASE WHEN category_id = %s'
+                        || ' AND jsonb_typeof(attributes->%L) = ''number'' THEN (attributes->>%L)::NUMERIC END) STORED',
+                    col.column_name, col.category_id, col.name, col.name
+                );
+            ELSE
+                EXECUTE format(
+                    'ALTER TABLE products ADD COLUMN %I TEXT GENERATED ALWAYS AS (CASE WHEN category_id = %s THEN attributes->>%L END) STORED',
+                    col.column_name, col.category_id, col.name
+                );
+            END IF;
+            EXECUTE format('COMMENT ON COLUMN products.%I IS %L', col.column_name, col.definition);
+            -- Column statistics make filter estimates selectivity-aware right away
+            EXECUTE format('ANALYZE products (%I)', col.column_name);
+        END IF;
+        EXECUTE format('CREATE INDEX IF NOT EXISTS %I ON products_%s (%I)', 'idx_product_' || col.column_name || '_col', col.category_id, col.column_name);
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Columns of V1.09 promoted attributes, previously added by the application on startup
+SELECT sync_promoted_attribute_columns();
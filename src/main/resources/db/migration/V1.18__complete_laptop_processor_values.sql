@@ -0,0 +1,4 @@
+-- Allowed values are enforced by products ingest, while laptops seeded by V1.03 have AMD processors missing in V1.02 list
+UPDATE attribute_definitions
+SET values = values || '["AMD Ryzen 3 5300U", "AMD Ryzen 5 5500U", "AMD Ryzen 5 5600H", "AMD Ryzen 7 5700U", "AMD Ryzen 7 5800H", "AMD Ryzen 9 5900HX"]'
+WHERE category_id = 2 AND name = 'processor' AND NOT values @> '["AMD Ryzen 3 5300U"]';
@@ -1,20 +1,35 @@
 package com.github.ggruzdov.ecommerce;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ggruzdov.ecommerce.request.CountStrategy;
 import com.github.ggruzdov.ecommerce.request.FilterCondition;
 import com.github.ggruzdov.ecommerce.request.Pagination;
 import com.github.ggruzdov.ecommerce.request.ProductFilterSearchRequest;
 import com.github.ggruzdov.ecommerce.request.ProductFullTextSearchRequest;
 import com.github.ggruzdov.ecommerce.request.SortCriteria;
+import com.github.ggruzdov.ecommerce.response.ProductSearchResponse;
+import com.github.ggruzdov.ecommerce.response.SearchFacets;
+import com.github.ggruzdov.ecommerce.service.ProductExportService;
 import com.github.ggruzdov.ecommerce.service.ProductSearchService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
@@ -23,6 +38,15 @@ class ECommerceApplicationTests {
     @Autowired
     private ProductSearchService productSearchService;
 
+    @Autowired
+    private ProductExportService productExportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Test
     void searchLaptopsByAttributes() {
         // Given
@@ -50,6 +74,26 @@ class ECommerceApplicationTests {
         assertTrue(result.getFirst().price().compareTo(result.getLast().price()) < 1);
     }
 
+    @Test
+    void searchParentCategoryCoversItsSubtree() {
+        // Given
+        var filters = Map.of("RAM", new FilterCondition("gte", 32, null, null, null));
+        var laptops = new ProductFilterSearchRequest(2, null, null, filters, null, new Pagination(1, 100));
+        var digitalEquipment = new ProductFilterSearchRequest(1, null, null, filters, null, new Pagination(1, 100));
+
+        // When
+        var laptopsResult = productSearchService.search(laptops);
+        var digitalEquipmentResult = productSearchService.search(digitalEquipment);
+
+        // Then
+        assertFalse(digitalEquipmentResult.getContent().isEmpty());
+        assertEquals(laptopsResult.getContent(), digitalEquipmentResult.getContent());
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> productSearchService.search(new ProductFilterSearchRequest(3, null, null, filters, null, null))
+        );
+    }
+
     @Test
     void searchLaptopsByPhrase() {
         // Given(intentionally dummy phrase)
@@ -67,4 +111,169 @@ class ECommerceApplicationTests {
         // Check default sort by created_at desc
         assertTrue(result.getFirst().createdAt().isAfter(result.getLast().createdAt()));
     }
+
+    @Test
+    void searchLaptopsByPhraseSortedByRelevance() {
+        // Given
+        var request = new ProductFullTextSearchRequest("Gaming Asus", new SortCriteria("relevance", "desc"), null);
+
+        // When
+        var result = productSearchService.search(request).getContent();
+
+        // Then
+        assertFalse(result.isEmpty());
+        // Both words are in the name of the top ranked laptops
+        assertTrue(result.getFirst().name().contains("Gaming"));
+        assertEquals("Asus", result.getFirst().brand());
+    }
+
+    @Test
+    void searchLaptopsWithCursorWalksAllPages() {
+        // Given
+        var ids = new HashSet<Integer>();
+        var prices = new ArrayList<BigDecimal>();
+        String cursor = null;
+
+        // When
+        do {
+            var request = new ProductFilterSearchRequest(
+                2, null, null, null, new SortCriteria("price", "asc"), new Pagination(null, 100, cursor)
+            );
+            var page = productSearchService.searchWithCursor(request);
+            page.content().forEach(laptop -> {
+                ids.add(laptop.id());
+                prices.add(laptop.price());
+            });
+            cursor = page.page().nextCursor();
+        } while (cursor != null);
+
+        // Then
+        var total = productSearchService.search(new ProductFilterSearchRequest(2, null, null, null, null, null))
+            .getMetadata()
+            .totalElements();
+        assertEquals(total, ids.size());
+        assertEquals(total, prices.size());
+        for (int i = 1; i < prices.size(); i++) {
+            assertTrue(prices.get(i - 1).compareTo(prices.get(i)) <= 0);
+        }
+    }
+
+    @Test
+    void searchLaptopsWithDifferentCountStrategies() {
+        // Given
+        var filters = Map.of("RAM", new FilterCondition("gte", 16, null, null, null));
+        Function<CountStrategy, ProductFilterSearchRequest> request = countStrategy -> new ProductFilterSearchRequest(
+            2, null, null, filters, null, new Pagination(1, 10), countStrategy, false
+        );
+
+        // When
+        var exact = productSearchService.search(request.apply(CountStrategy.EXACT));
+        var estimated = productSearchService.search(request.apply(CountStrategy.ESTIMATED));
+        var none = productSearchService.search(request.apply(CountStrategy.NONE));
+        var pastEnd = productSearchService.search(new ProductFilterSearchRequest(
+            2, null, null, filters, null, new Pagination(100, 10), CountStrategy.NONE, false
+        ));
+
+        // Then
+        assertTrue(exact.isTotalExact());
+        // All laptops are below estimate threshold, so they are counted exactly
+        assertTrue(estimated.isTotalExact());
+        assertEquals(exact.getMetadata().totalElements(), estimated.getMetadata().totalElements());
+        // Without count only the fact there is a next page is known
+        assertFalse(none.isTotalExact());
+        assertEquals(11, none.getMetadata().totalElements());
+        assertEquals(exact.getContent(), none.getContent());
+        // A page past the end is not the last page
+        assertTrue(pastEnd.getContent().isEmpty());
+        assertFalse(pastEnd.isTotalExact());
+        assertEquals(0, pastEnd.getMetadata().totalElements());
+    }
+
+    @Test
+    void searchLaptopsWithFacets() {
+        // Given
+        var filters = Map.of("RAM", new FilterCondition("eq", 16, null, null, null));
+        var request = new ProductFilterSearchRequest(2, "Dell", null, filters, null, new Pagination(1, 10), null, true);
+        var allDell = new ProductFilterSearchRequest(2, "Dell", null, Map.of(), null, new Pagination(1, 10), null, false);
+        var allRam16 = new ProductFilterSearchRequest(2, null, null, filters, null, new Pagination(1, 10), null, false);
+
+        // When
+        var result = productSearchService.search(request);
+
+        // Then
+        var facets = result.getFacets();
+        long total = result.getMetadata().totalElements();
+        // A facet ignores its own filter, but respects the others
+        assertEquals(productSearchService.search(allDell).getMetadata().totalElements(), sum(facets.attributes().get("RAM")));
+        assertEquals(productSearchService.search(allRam16).getMetadata().totalElements(), sum(facets.brands()));
+        assertEquals(total, facets.prices().stream().mapToLong(SearchFacets.PriceBucket::count).sum());
+        assertEquals(total, sum(facets.attributes().get("storage_type")));
+        // Attribute values go in definition order
+        assertEquals(List.of("8", "16", "32", "64"), facets.attributes().get("RAM").stream().map(SearchFacets.FacetValue::value).toList());
+    }
+
+    @Test
+    void exportLaptopsAsNdjson() throws Exception {
+        // Given
+        var filters = Map.of("RAM", new FilterCondition("gte", 16, null, null, null));
+        var request = new ProductFilterSearchRequest(2, null, null, filters, new SortCriteria("price", "asc"), null);
+        var output = new ByteArrayOutputStream();
+
+        // When
+        productExportService.export(request).writeTo(output);
+
+        // Then
+        var lines = output.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(productSearchService.search(request).getMetadata().totalElements(), lines.size());
+        var prices = new ArrayList<BigDecimal>();
+        for (var line : lines) {
+            prices.add(objectMapper.readValue(line, ProductSearchResponse.class).price());
+        }
+        for (int i = 1; i < prices.size(); i++) {
+            assertTrue(prices.get(i - 1).compareTo(prices.get(i)) <= 0);
+        }
+    }
+
+    @Test
+    void exportStopsOnClientDisconnect() {
+        // Given
+        var request = new ProductFilterSearchRequest(2, null, null, Map.of(), null, null);
+        var disconnected = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        // When
+        var body = productExportService.export(request);
+
+        // Then
+        assertThrows(IOException.class, () -> body.writeTo(disconnected));
+    }
+
+    @Test
+    void searchStagesAreTimedByQueryShape() {
+        // Given
+        var filters = Map.of(
+            "RAM", new FilterCondition("gte", 32, null, null, null),
+            "storage_type", new FilterCondition("eq", "SSD", null, null, null)
+        );
+        var request = new ProductFilterSearchRequest(2, null, null, filters, new SortCriteria("price", "desc"), new Pagination(3, 7), CountStrategy.EXACT, true);
+
+        // When
+        productSearchService.search(request);
+
+        // Then
+        for (var stage : List.of("build", "attributes", "count", "facets", "query", "hydration")) {
+            var timer = meterRegistry.find("search.stage")
+                .tags("stage", stage, "category", "2", "operators", "eq,gte", "sort", "price_desc")
+                .timer();
+            assertTrue(timer != null && timer.count() > 0, () -> "Stage is not timed: " + stage);
+        }
+    }
+
+    private static long sum(List<SearchFacets.FacetValue> values) {
+        return values.stream().mapToLong(SearchFacets.FacetValue::count).sum();
+    }
 }
@@ -0,0 +1,62 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import com.github.ggruzdov.ecommerce.model.AttributeType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class AttributeDefinitionRegistryTests {
+
+    @Autowired
+    private AttributeDefinitionRegistry registry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM attribute_definitions WHERE name = 'capacity'");
+        registry.refresh();
+    }
+
+    @Test
+    void loadsTypedAttributesOrderedByDisplayOrder() {
+        // When
+        var laptopAttributes = registry.getCategoryAttributes(2);
+
+        // Then
+        assertEquals(
+            List.of("screen_size", "RAM", "processor", "storage_type", "storage_capacity"),
+            List.copyOf(laptopAttributes.names())
+        );
+        var ram = laptopAttributes.get("RAM");
+        assertEquals(AttributeType.INTEGER, ram.type());
+        assertEquals(List.of(8, 16, 32, 64), ram.values());
+        assertTrue(registry.getCategoryAttributes(3).isEmpty());
+    }
+
+    @Test
+    void refreshesOnAttributeDefinitionsChange() {
+        // Given
+        jdbcTemplate.update("""
+            INSERT INTO attribute_definitions(category_id, display_name, name, type, values, is_optional, display_order)
+            VALUES (4, 'Capacity', 'capacity', 'integer', '[6, 8, 10]', false, 1)
+            """);
+        assertFalse(registry.getCategoryAttributes(4).contains("capacity"));
+
+        // When
+        registry.refresh();
+
+        // Then
+        assertTrue(registry.getCategoryAttributes(4).contains("capacity"));
+    }
+}
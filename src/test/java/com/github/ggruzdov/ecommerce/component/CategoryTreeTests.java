@@ -0,0 +1,54 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class CategoryTreeTests {
+
+    @Autowired
+    private CategoryTree categoryTree;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM categories WHERE name = 'Gaming laptops'");
+        categoryTree.refresh();
+    }
+
+    @Test
+    void subtreeIncludesAllDescendants() {
+        // When
+        var digitalEquipment = categoryTree.getSubtree(1);
+
+        // Then
+        assertEquals(List.of(1, 2, 5), digitalEquipment);
+        assertEquals(List.of(2), categoryTree.getSubtree(2));
+        assertEquals(List.of(100), categoryTree.getSubtree(100));
+        assertEquals(Set.of(1, 2, 3, 4), categoryTree.withAncestors(Set.of(2, 4)));
+    }
+
+    @Test
+    void refreshesOnCategoriesChange() {
+        // Given
+        var id = jdbcTemplate.queryForObject("INSERT INTO categories(name, parent_id) VALUES ('Gaming laptops', 2) RETURNING id", Integer.class);
+        assertEquals(List.of(1, 2, 5), categoryTree.getSubtree(1));
+
+        // When
+        categoryTree.refresh();
+
+        // Then
+        assertEquals(List.of(1, 2, 5, id), categoryTree.getSubtree(1));
+        assertEquals(List.of(2, id), categoryTree.getSubtree(2));
+    }
+}
@@ -0,0 +1,105 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import com.github.ggruzdov.ecommerce.model.AttributeMetadata;
+import com.github.ggruzdov.ecommerce.model.AttributeType;
+import com.github.ggruzdov.ecommerce.model.CategoryAttributes;
+import com.github.ggruzdov.ecommerce.request.FilterCondition;
+import com.github.ggruzdov.ecommerce.request.PriceRange;
+import com.github.ggruzdov.ecommerce.request.ProductFilterSearchRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FilterPlanTests {
+
+    private static final CategoryAttributes LAPTOP_ATTRIBUTES = new CategoryAttributes(List.of(
+        new AttributeMetadata(1, "screen_size", "Screen Size", AttributeType.DECIMAL, List.of(), false, true, false, 1),
+        new AttributeMetadata(2, "RAM", "RAM", AttributeType.INTEGER, List.of(), false, true, false, 2),
+        new AttributeMetadata(4, "storage_type", "Storage Type", AttributeType.VARCHAR, List.of(), false, true, false, 4)
+    ));
+
+    @Test
+    void parsesFiltersIntoTypedPlanSortedByAttribute() {
+        // Given
+        var request = request(Map.of(
+            "storage_type", new FilterCondition("in", null, List.of("SSD", "NVMe", "SSD"), null, null),
+            "screen_size", new FilterCondition("between", null, null, 14, "15.6"),
+            "RAM", new FilterCondition("gte", "16", null, null, null)
+        ));
+
+        // When
+        var plan = FilterPlan.of(request, LAPTOP_ATTRIBUTES);
+
+        // Then
+        var ram = LAPTOP_ATTRIBUTES.get("RAM");
+        var screenSize = LAPTOP_ATTRIBUTES.get("screen_size");
+        var storageType = LAPTOP_ATTRIBUTES.get("storage_type");
+        assertEquals(
+            List.of(
+                new AttributeFilter.Range(ram, FilterOperator.GTE, new BigDecimal("16")),
+                new AttributeFilter.Between(screenSize, new BigDecimal("14"), new BigDecimal("15.6")),
+                new AttributeFilter.In(storageType, List.of("SSD", "NVMe"))
+            ),
+            plan.attributes()
+        );
+    }
+
+    static Stream<Arguments> invalidFilters() {
+        return Stream.of(
+            Arguments.of("RAM", new FilterCondition("like", 16, null, null, null),
+                "Invalid filter of attribute 'RAM': Unknown operator 'like', expected one of [between, contains, eq, gt, gte, in, lt, lte, ne]"),
+            Arguments.of("storage_type", new FilterCondition("gte", "SSD", null, null, null),
+                "Invalid 'gte' filter of attribute 'storage_type': operator is not applicable to varchar attribute"),
+            Arguments.of("RAM", new FilterCondition("contains", "16", null, null, null),
+                "Invalid 'contains' filter of attribute 'RAM': operator is not applicable to integer attribute"),
+            Arguments.of("RAM", new FilterCondition("eq", 16.5, null, null, null),
+                "Invalid 'eq' filter of attribute 'RAM': Integer value expected: 16.5"),
+            Arguments.of("screen_size", new FilterCondition("between", null, null, 15.6, null),
+                "Invalid 'between' filter of attribute 'screen_size': 'toValue' is required"),
+            Arguments.of("screen_size", new FilterCondition("between", null, null, 15.6, 14),
+                "Invalid 'between' filter of attribute 'screen_size': 'fromValue' 15.6 is greater than 'toValue' 14"),
+            Arguments.of("storage_type", new FilterCondition("in", null, List.of(), null, null),
+                "Invalid 'in' filter of attribute 'storage_type': 'values' must not be empty"),
+            Arguments.of("weight", new FilterCondition("eq", 2, null, null, null),
+                "Unknown attribute 'weight' of category 2")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("invalidFilters")
+    void rejectsInvalidFilterWithPreciseMessage(String attribute, FilterCondition condition, String message) {
+        // Given
+        var request = request(Map.of(attribute, condition));
+
+        // When
+        var exception = assertThrows(InvalidFilterException.class, () -> FilterPlan.of(request, LAPTOP_ATTRIBUTES));
+
+        // Then
+        assertEquals(message, exception.getMessage());
+    }
+
+    @Test
+    void rejectsInvertedPriceRange() {
+        // Given
+        var request = new ProductFilterSearchRequest(2, null, new PriceRange(2000, 1000), Map.of(), null, null);
+
+        // When
+        var exception = assertThrows(InvalidFilterException.class, () -> FilterPlan.of(request, LAPTOP_ATTRIBUTES));
+
+        // Then
+        assertEquals("Invalid price range: min 2000 is greater than max 1000", exception.getMessage());
+    }
+
+    private static ProductFilterSearchRequest request(Map<String, FilterCondition> filters) {
+        return new ProductFilterSearchRequest(2, null, null, filters, null, null);
+    }
+}
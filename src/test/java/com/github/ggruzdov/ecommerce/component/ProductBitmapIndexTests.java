@@ -0,0 +1,201 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ggruzdov.ecommerce.model.AttributeMetadata;
+import com.github.ggruzdov.ecommerce.model.AttributeType;
+import com.github.ggruzdov.ecommerce.model.CategoryAttributes;
+import com.github.ggruzdov.ecommerce.request.FilterCondition;
+import com.github.ggruzdov.ecommerce.request.PriceRange;
+import com.github.ggruzdov.ecommerce.request.ProductFilterSearchRequest;
+import com.github.ggruzdov.ecommerce.request.SortCriteria;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductBitmapIndexTests {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final CategoryAttributes LAPTOP_ATTRIBUTES = new CategoryAttributes(List.of(
+        new AttributeMetadata(1, "screen_size", "Screen Size", AttributeType.DECIMAL, List.of(), false, true, false, 1),
+        new AttributeMetadata(2, "RAM", "RAM", AttributeType.INTEGER, List.of(), false, true, false, 2),
+        new AttributeMetadata(3, "processor", "Processor", AttributeType.VARCHAR, List.of(), false, true, false, 3)
+    ));
+
+    private static final ProductBitmapIndex INDEX = new ProductBitmapIndex.Builder()
+        .add(1, 2, "Dell", 100000, 1, json("{\"screen_size\": 14.0, \"RAM\": 16, \"processor\": \"Intel Core i7\"}"))
+        .add(2, 2, "Dell", 90000, 2, json("{\"screen_size\": 15.6, \"RAM\": \"32\", \"processor\": \"AMD Ryzen 7\"}"))
+        .add(3, 2, "Asus", 100000, 3, json("{\"screen_size\": 14, \"RAM\": 8, \"processor\": null}"))
+        .add(4, 5, "Asus", 150000, 4, json("{\"RAM\": 16}"))
+        .add(5, 4, "LG", 50000, 5, json("{\"RAM\": 16}"))
+        .build();
+
+    static Stream<Arguments> filters() {
+        return Stream.of(
+            // JSON values are compared by type: 14 matches 14.0, string "32" does not match 32
+            Arguments.of(Map.of("screen_size", new FilterCondition("eq", 14, null, null, null)), List.of(1, 3)),
+            Arguments.of(Map.of("RAM", new FilterCondition("in", null, List.of("16", "32"), null, null)), List.of(1, 4)),
+            // Numeric comparisons take numeric strings as '::NUMERIC' cast does
+            Arguments.of(Map.of("RAM", new FilterCondition("gte", 16, null, null, null)), List.of(1, 2, 4)),
+            Arguments.of(Map.of("RAM", new FilterCondition("ne", 16, null, null, null)), List.of(2, 3)),
+            Arguments.of(Map.of("RAM", new FilterCondition("lt", 16, null, null, null)), List.of(3)),
+            Arguments.of(Map.of("screen_size", new FilterCondition("between", null, null, 14, "15.6")), List.of(1, 2, 3)),
+            Arguments.of(Map.of("screen_size", new FilterCondition("gt", 14, null, null, null)), List.of(2)),
+            // Null values have no text, so they are neither equal nor not equal to anything
+            Arguments.of(Map.of("processor", new FilterCondition("ne", "AMD Ryzen 7", null, null, null)), List.of(1)),
+            Arguments.of(Map.of("processor", new FilterCondition("contains", "ryZEN", null, null, null)), List.of(2)),
+            Arguments.of(Map.of("processor", new FilterCondition("eq", "Apple M3", null, null, null)), List.of())
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("filters")
+    void matchesFiltersAsFilterQuery(Map<String, FilterCondition> filters, List<Integer> expected) {
+        // When
+        var matches = INDEX.match(List.of(2, 5), FilterPlan.of(request(null, null, filters), LAPTOP_ATTRIBUTES));
+
+        // Then
+        assertEquals(expected, ids(matches));
+    }
+
+    @Test
+    void matchesCategorySubtreeBrandAndPrice() {
+        // When
+        var asus = INDEX.match(List.of(2, 5), FilterPlan.of(request("Asus", null, Map.of()), LAPTOP_ATTRIBUTES));
+        var priced = INDEX.match(List.of(2, 5), FilterPlan.of(request(null, new PriceRange(90000, 100000), Map.of()), LAPTOP_ATTRIBUTES));
+
+        // Then
+        assertEquals(List.of(3, 4), ids(asus));
+        assertEquals(List.of(1, 2, 3), ids(priced));
+    }
+
+    @Test
+    void pagesBySortFieldWithIdAsTiebreaker() {
+        // Given
+        var matches = INDEX.match(List.of(2, 5), FilterPlan.of(request(null, null, Map.of()), LAPTOP_ATTRIBUTES));
+
+        // When
+        var cheapest = INDEX.page(matches, new SortCriteria(SortCriteria.PRICE, "asc"), 0, 3);
+        var mostExpensive = INDEX.page(matches, new SortCriteria(SortCriteria.PRICE, "DESC"), 1, 2);
+        var newest = INDEX.page(matches, SortCriteria.DEFAULT, 0, 10);
+
+        // Then
+        assertEquals(List.of(2, 1, 3), cheapest);
+        assertEquals(List.of(3, 1), mostExpensive);
+        assertEquals(List.of(4, 3, 2, 1), newest);
+    }
+
+    @Test
+    void appliedChangesReplacePreviousProductsState() {
+        // Given
+        var changed = RoaringBitmap.bitmapOf(1, 3, 6);
+        var delta = new ProductBitmapIndex.Builder()
+            .add(1, 2, "Dell", 200000, 1, json("{\"screen_size\": 15.6, \"RAM\": 64, \"processor\": \"Intel Core i9\"}"))
+            .add(6, 2, "HP", 80000, 6, json("{\"screen_size\": 14.0, \"RAM\": 16}"))
+            .build();
+
+        // When
+        var index = INDEX.apply(changed, delta);
+
+        // Then
+        assertEquals(5, index.size());
+        var all = index.match(List.of(2), FilterPlan.of(request(null, null, Map.of()), LAPTOP_ATTRIBUTES));
+        assertEquals(List.of(6, 2, 1), index.page(all, new SortCriteria(SortCriteria.PRICE, "asc"), 0, 10));
+        var ram16 = index.match(List.of(2, 5), FilterPlan.of(request(null, null, Map.of("RAM", new FilterCondition("eq", 16, null, null, null))), LAPTOP_ATTRIBUTES));
+        assertEquals(List.of(4, 6), ids(ram16));
+        var asus = index.match(List.of(2, 5), FilterPlan.of(request("Asus", null, Map.of()), LAPTOP_ATTRIBUTES));
+        assertEquals(List.of(4), ids(asus));
+        // The original index is not changed
+        assertEquals(5, INDEX.size());
+        assertEquals(List.of(1, 3), ids(INDEX.match(List.of(2), FilterPlan.of(request(null, null, Map.of("screen_size", new FilterCondition("eq", 14, null, null, null))), LAPTOP_ATTRIBUTES))));
+    }
+
+    @Test
+    void incrementallyUpdatedIndexMatchesRebuiltOne() {
+        // Given
+        var random = new Random(7);
+        var state = new TreeMap<Integer, String>();
+        for (int id = 1; id <= 500; id++) {
+            state.put(id, randomLaptop(random));
+        }
+        var index = build(state);
+
+        // When
+        for (int batch = 0; batch < 20; batch++) {
+            var changed = new RoaringBitmap();
+            var delta = new ProductBitmapIndex.Builder();
+            for (int i = 0; i < 5; i++) {
+                int id = 1 + random.nextInt(520);
+                changed.add(id);
+                if (random.nextInt(4) == 0) {
+                    state.remove(id);
+                } else {
+                    state.put(id, randomLaptop(random));
+                    add(delta, id, state.get(id));
+                }
+            }
+            index = index.apply(changed, delta.build());
+        }
+
+        // Then
+        var rebuilt = build(state);
+        var request = new ProductFilterSearchRequest(2, null, new PriceRange(60000, 250000), Map.of(
+            "RAM", new FilterCondition("gte", 16, null, null, null),
+            "screen_size", new FilterCondition("lt", 16, null, null, null)
+        ), null, null);
+        var plan = FilterPlan.of(request, LAPTOP_ATTRIBUTES);
+        var matches = index.match(List.of(2), plan);
+        assertEquals(ids(rebuilt.match(List.of(2), plan)), ids(matches));
+        for (var sort : List.of(new SortCriteria(SortCriteria.PRICE, "asc"), new SortCriteria(SortCriteria.PRICE, "desc"), SortCriteria.DEFAULT)) {
+            assertEquals(rebuilt.page(matches, sort, 10, 50), index.page(matches, sort, 10, 50));
+        }
+    }
+
+    private static String randomLaptop(Random random) {
+        return "{\"price\": " + (50000 + random.nextInt(200000))
+            + ", \"screen_size\": " + List.of("13.3", "14.0", "15.6", "16.0").get(random.nextInt(4))
+            + ", \"RAM\": " + (8 << random.nextInt(4)) + "}";
+    }
+
+    private static ProductBitmapIndex build(Map<Integer, String> products) {
+        var builder = new ProductBitmapIndex.Builder();
+        products.forEach((id, laptop) -> add(builder, id, laptop));
+        return builder.build();
+    }
+
+    /**
+     * Price is taken from the 'price' attribute of the laptop JSON, creation time is the id.
+     */
+    private static void add(ProductBitmapIndex.Builder builder, int id, String laptop) {
+        var attributes = json(laptop);
+        builder.add(id, 2, "Dell", attributes.get("price").intValue(), id, attributes);
+    }
+
+    private static ProductFilterSearchRequest request(String brand, PriceRange price, Map<String, FilterCondition> filters) {
+        return new ProductFilterSearchRequest(2, brand, price, filters, null, null);
+    }
+
+    private static List<Integer> ids(RoaringBitmap bitmap) {
+        return bitmap.stream().boxed().toList();
+    }
+
+    private static JsonNode json(String json) {
+        try {
+            return OBJECT_MAPPER.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
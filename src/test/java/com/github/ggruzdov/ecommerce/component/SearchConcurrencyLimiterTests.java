@@ -0,0 +1,70 @@
+package com.github.ggruzdov.ecommerce.component;
+
+import com.github.ggruzdov.ecommerce.config.SearchProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SearchConcurrencyLimiterTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final SearchConcurrencyLimiter limiter = new SearchConcurrencyLimiter(
+        null,
+        new Binder(new MapConfigurationPropertySource(Map.of(
+            "ecommerce.search.concurrency.max-concurrent", "1",
+            "ecommerce.search.concurrency.max-concurrent-exports", "1",
+            "ecommerce.search.concurrency.max-queue-wait", "10ms",
+            "ecommerce.search.concurrency.retry-after", "2s"
+        ))).bindOrCreate("ecommerce.search", SearchProperties.class),
+        meterRegistry
+    );
+
+    @Test
+    void rejectsSearchWhenAllPermitsAreTaken() {
+        // Given
+        var permit = limiter.acquire("stream");
+
+        // When
+        var exception = assertThrows(SearchOverloadedException.class, () -> limiter.execute("search", () -> "result"));
+
+        // Then
+        assertEquals(Duration.ofSeconds(2), exception.getRetryAfter());
+        assertEquals(1, meterRegistry.counter("search.rejected", "endpoint", "search").count());
+
+        // Released permit is available again
+        permit.close();
+        permit.close();
+        assertEquals("result", limiter.execute("search", () -> "result"));
+        assertEquals(1, meterRegistry.timer("search.execution", "endpoint", "search").count());
+        assertEquals(2, meterRegistry.timer("search.queue.wait", "endpoint", "search").count());
+    }
+
+    @Test
+    void exportsDoNotTakeSearchPermits() {
+        // Given
+        var export = limiter.acquireExport("stream");
+
+        // When
+        var exception = assertThrows(SearchOverloadedException.class, () -> limiter.acquireExport("stream"));
+        var search = limiter.execute("search", () -> "result");
+
+        // Then
+        assertEquals(Duration.ofSeconds(2), exception.getRetryAfter());
+        assertEquals("result", search);
+
+        // Closed by both the response writer and the request completion, released once
+        export.close();
+        export.close();
+        var next = limiter.acquireExport("stream");
+        assertThrows(SearchOverloadedException.class, () -> limiter.acquireExport("stream"));
+        next.close();
+    }
+}
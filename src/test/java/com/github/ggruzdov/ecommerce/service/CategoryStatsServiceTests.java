@@ -0,0 +1,100 @@
+package com.github.ggruzdov.ecommerce.service;
+
+import com.github.ggruzdov.ecommerce.component.CategoryStatsRegistry;
+import com.github.ggruzdov.ecommerce.response.CategoryStatsResponse.ValueCount;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class CategoryStatsServiceTests {
+
+    private static final String INSERT_PRODUCT = """
+        INSERT INTO products(sku, name, category_id, brand, price, weight, description, attributes)
+        VALUES (?, 'Stats laptop', 2, 'Dell', ?, 1500, 'Stats laptop', ?::JSONB)""";
+
+    @Autowired
+    private CategoryStatsService categoryStatsService;
+
+    @Autowired
+    private CategoryStatsRegistry categoryStatsRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM products WHERE sku LIKE 'TEST-STATS-%'");
+        categoryStatsRegistry.refresh();
+    }
+
+    @Test
+    void subtreeStatsMatchProductsAggregates() {
+        // Given
+        var expected = jdbcTemplate.queryForMap("SELECT COUNT(1) AS products, MIN(price) AS min_price, MAX(price) AS max_price FROM products");
+        var ramCounts = jdbcTemplate.query(
+            "SELECT (attributes->>'RAM')::NUMERIC AS ram, COUNT(1) AS products FROM products WHERE category_id = 2 GROUP BY 1 ORDER BY 1",
+            (rs, rowNum) -> new ValueCount(rs.getBigDecimal("ram"), rs.getLong("products"))
+        );
+
+        // When
+        var digitalEquipment = categoryStatsService.getStats(1);
+
+        // Then
+        assertEquals(((Number) expected.get("products")).longValue(), digitalEquipment.products());
+        assertEquals(BigDecimal.valueOf((Integer) expected.get("min_price"), 2), digitalEquipment.minPrice());
+        assertEquals(BigDecimal.valueOf((Integer) expected.get("max_price"), 2), digitalEquipment.maxPrice());
+
+        var laptops = categoryStatsService.getStats(2);
+        assertEquals(List.of("screen_size", "RAM", "processor", "storage_type", "storage_capacity"), List.copyOf(laptops.attributes().keySet()));
+        var ram = laptops.attributes().get("RAM");
+        assertEquals(ramCounts, ram.values());
+        assertEquals(ramCounts.getFirst().value(), ram.min());
+        assertEquals(ramCounts.getLast().value(), ram.max());
+
+        var storageTypes = laptops.attributes().get("storage_type");
+        assertNull(storageTypes.min());
+        for (int i = 1; i < storageTypes.values().size(); i++) {
+            assertTrue(storageTypes.values().get(i - 1).count() >= storageTypes.values().get(i).count());
+        }
+    }
+
+    @Test
+    void statsFollowProductsChanges() {
+        // Given
+        var before = categoryStatsService.getStats(2);
+
+        // When
+        jdbcTemplate.update(INSERT_PRODUCT, "TEST-STATS-1", 1, "{\"RAM\": 256, \"storage_type\": \"Tape\"}");
+        jdbcTemplate.update(INSERT_PRODUCT, "TEST-STATS-2", 999999999, "{\"RAM\": 256.0}");
+        categoryStatsRegistry.refresh();
+        var inserted = categoryStatsService.getStats(2);
+
+        jdbcTemplate.update("UPDATE products SET price = 2, attributes = '{\"RAM\": 512}' WHERE sku = 'TEST-STATS-2'");
+        jdbcTemplate.update("DELETE FROM products WHERE sku = 'TEST-STATS-1'");
+        categoryStatsRegistry.refresh();
+        var changed = categoryStatsService.getStats(2);
+
+        // Then
+        assertEquals(before.products() + 2, inserted.products());
+        assertEquals(new BigDecimal("0.01"), inserted.minPrice());
+        assertEquals(new BigDecimal("9999999.99"), inserted.maxPrice());
+        assertEquals(new ValueCount(new BigDecimal(256), 2), inserted.attributes().get("RAM").values().getLast());
+        assertTrue(inserted.attributes().get("storage_type").values().contains(new ValueCount("Tape", 1)));
+
+        assertEquals(before.products() + 1, changed.products());
+        assertEquals(new BigDecimal("0.02"), changed.minPrice());
+        assertEquals(before.maxPrice(), changed.maxPrice());
+        assertEquals(new ValueCount(new BigDecimal(512), 1), changed.attributes().get("RAM").values().getLast());
+        assertEquals(before.attributes().get("storage_type"), changed.attributes().get("storage_type"));
+    }
+}
@@ -0,0 +1,169 @@
+package com.github.ggruzdov.ecommerce.service;
+
+import com.github.ggruzdov.ecommerce.component.CategoryVersionRegistry;
+import com.github.ggruzdov.ecommerce.component.ProductBitmapEngine;
+import com.github.ggruzdov.ecommerce.request.FilterCondition;
+import com.github.ggruzdov.ecommerce.request.Pagination;
+import com.github.ggruzdov.ecommerce.request.PriceRange;
+import com.github.ggruzdov.ecommerce.request.ProductFilterSearchRequest;
+import com.github.ggruzdov.ecommerce.request.SortCriteria;
+import com.github.ggruzdov.ecommerce.response.ProductSearchResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Scheduled polls and versions reloads are far apart, so tests run them explicitly
+@SpringBootTest(properties = {
+    "ecommerce.search.bitmap-engine.enabled=true",
+    "ecommerce.search.bitmap-engine.poll-interval=1h",
+    "ecommerce.search.category-versions.refresh-interval=1h"
+})
+class ProductBitmapSearchTests {
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private ProductBitmapEngine productBitmapEngine;
+
+    @Autowired
+    private CategoryVersionRegistry categoryVersionRegistry;
+
+    @Autowired
+    private SearchHttpCache searchHttpCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        productBitmapEngine.poll();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM products WHERE sku LIKE 'TEST-BITMAP-%'");
+        productBitmapEngine.poll();
+    }
+
+    static Stream<Arguments> requests() {
+        return Stream.of(
+            Arguments.of(request(1, null, null, Map.of(), SortCriteria.DEFAULT, 3)),
+            Arguments.of(request(2, "Dell", new PriceRange(100000, 250000), Map.of(), new SortCriteria(SortCriteria.PRICE, "asc"), 1)),
+            Arguments.of(request(2, null, null, Map.of(
+                "RAM", new FilterCondition("gte", 16, null, null, null),
+                "storage_type", new FilterCondition("in", null, List.of("SSD", "NVMe"), null, null),
+                "screen_size", new FilterCondition("between", null, null, "14", 15.6)
+            ), new SortCriteria(SortCriteria.PRICE, "desc"), 2)),
+            Arguments.of(request(2, null, null, Map.of(
+                "processor", new FilterCondition("contains", "ryzen 7", null, null, null),
+                "storage_capacity", new FilterCondition("ne", 512, null, null, null)
+            ), new SortCriteria(SortCriteria.CREATED_AT, "asc"), 1)),
+            Arguments.of(request(2, null, null, Map.of(
+                "screen_size", new FilterCondition("eq", 14, null, null, null),
+                "storage_type", new FilterCondition("ne", "SSD", null, null, null)
+            ), SortCriteria.DEFAULT, 1)),
+            Arguments.of(request(4, null, null, Map.of(), SortCriteria.DEFAULT, 1))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("requests")
+    void inMemorySearchMatchesSqlSearch(ProductFilterSearchRequest request) {
+        // When
+        var inMemory = productSearchService.searchInMemory(request);
+        var sql = productSearchService.searchWithSql(request);
+
+        // Then
+        assertEquals(ids(sql.getContent()), ids(inMemory.getContent()));
+        assertEquals(sql.getMetadata(), inMemory.getMetadata());
+        assertTrue(inMemory.isTotalExact());
+    }
+
+    @Test
+    void followsProductsChanges() {
+        // Given
+        var request = request(2, "Dell", null, Map.of("RAM", new FilterCondition("eq", 128, null, null, null)), SortCriteria.DEFAULT, 1);
+        var insert = """
+            INSERT INTO products(sku, name, category_id, brand, price, weight, description, attributes)
+            VALUES (?, 'Bitmap laptop', 2, 'Dell', 150000, 1500, 'Bitmap laptop', '{"RAM": 128}')
+            RETURNING id""";
+
+        // When
+        var firstId = jdbcTemplate.queryForObject(insert, Integer.class, "TEST-BITMAP-1");
+        var secondId = jdbcTemplate.queryForObject(insert, Integer.class, "TEST-BITMAP-2");
+        productBitmapEngine.poll();
+        var inserted = productSearchService.searchInMemory(request);
+
+        jdbcTemplate.update("UPDATE products SET brand = 'HP' WHERE id = ?", secondId);
+        productBitmapEngine.poll();
+        var updated = productSearchService.searchInMemory(request);
+
+        jdbcTemplate.update("DELETE FROM products WHERE id = ?", firstId);
+        productBitmapEngine.poll();
+        var deleted = productSearchService.searchInMemory(request);
+
+        // Then
+        assertTrue(productBitmapEngine.isWarm());
+        assertEquals(List.of(secondId, firstId), ids(inserted.getContent()));
+        assertEquals(List.of(firstId), ids(updated.getContent()));
+        assertEquals(0, deleted.getMetadata().totalElements());
+    }
+
+    @Test
+    void etagIsNotNewerThanInMemoryResults() {
+        // Given
+        var request = request(2, "Dell", null, Map.of("RAM", new FilterCondition("eq", 128, null, null, null)), SortCriteria.DEFAULT, 1);
+        categoryVersionRegistry.refresh();
+        var before = searchHttpCache.respond("search", request, null, () -> productSearchService.search(request));
+        jdbcTemplate.update("""
+            INSERT INTO products(sku, name, category_id, brand, price, weight, description, attributes)
+            VALUES ('TEST-BITMAP-ETAG', 'Bitmap laptop', 2, 'Dell', 150000, 1500, 'Bitmap laptop', '{"RAM": 128}')
+            """);
+
+        // When
+        // The version of the change is read, while the index has not caught up with it
+        categoryVersionRegistry.refresh();
+        var beforePoll = searchHttpCache.respond("search", request, null, () -> productSearchService.search(request));
+        productBitmapEngine.poll();
+        categoryVersionRegistry.refresh();
+        var afterPoll = searchHttpCache.respond("search", request, null, () -> productSearchService.search(request));
+
+        // Then
+        assertTrue(productBitmapEngine.isWarm());
+        assertEquals(0, before.getBody().getMetadata().totalElements());
+        assertEquals(before.getHeaders().getETag(), beforePoll.getHeaders().getETag());
+        assertEquals(0, beforePoll.getBody().getMetadata().totalElements());
+        assertNotEquals(before.getHeaders().getETag(), afterPoll.getHeaders().getETag());
+        assertEquals(1, afterPoll.getBody().getMetadata().totalElements());
+    }
+
+    private static ProductFilterSearchRequest request(
+        Integer categoryId,
+        String brand,
+        PriceRange price,
+        Map<String, FilterCondition> filters,
+        SortCriteria sort,
+        int page
+    ) {
+        return new ProductFilterSearchRequest(categoryId, brand, price, filters, sort, new Pagination(page, 20, null));
+    }
+
+    private static List<Integer> ids(List<ProductSearchResponse> products) {
+        return products.stream().map(ProductSearchResponse::id).toList();
+    }
+}
@@ -0,0 +1,239 @@
+package com.github.ggruzdov.ecommerce.service;
+
+import com.github.ggruzdov.ecommerce.model.Product;
+import com.github.ggruzdov.ecommerce.repository.ProductRepository;
+import com.github.ggruzdov.ecommerce.request.ProductIngestItem;
+import com.github.ggruzdov.ecommerce.response.ProductIngestResponse.RowError;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Slf4j
+@SpringBootTest
+class ProductIngestServiceTests {
+
+    @Autowired
+    private ProductIngestService productIngestService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM products WHERE sku LIKE 'TEST-%'");
+    }
+
+    @Test
+    void ingestUpsertsValidProductsAndReportsInvalidOnes() {
+        // Given
+        var products = List.of(
+            laptop("TEST-1", 100000, Map.of()),
+            laptop("TEST-2", 120000, Map.of("RAM", "sixteen")),
+            laptop("TEST-3", 130000, Map.of("color", "black")),
+            laptop("TEST-1", 140000, Map.of())
+        );
+
+        // When
+        var result = productIngestService.ingest(products);
+        var update = productIngestService.ingest(List.of(laptop("TEST-1", 90000, Map.of("RAM", 32))));
+
+        // Then
+        assertEquals(4, result.received());
+        assertEquals(1, result.upserted());
+        assertEquals(List.of(1, 2, 3), result.errors().stream().map(RowError::index).toList());
+        assertTrue(result.errors().get(0).message().contains("Numeric value expected"));
+        assertTrue(result.errors().get(1).message().contains("Unknown attribute"));
+        assertTrue(result.errors().get(2).message().contains("Duplicate SKU"));
+
+        assertEquals(1, update.upserted());
+        var stored = jdbcTemplate.queryForMap("SELECT price, attributes->>'RAM' AS ram FROM products WHERE sku = 'TEST-1'");
+        assertEquals(90000, stored.get("price"));
+        assertEquals("32", stored.get("ram"));
+    }
+
+    @Test
+    void ingestRejectsValuesNotAllowedByDefinitionAndNullProducts() {
+        // Given
+        var products = Arrays.asList(
+            laptop("TEST-1", 100000, Map.of("RAM", 12)),
+            laptop("TEST-2", 100000, Map.of("storage_type", "HDD")),
+            null,
+            // Allowed values are compared as numbers
+            laptop("TEST-3", 100000, Map.of("RAM", "32.0", "screen_size", 14))
+        );
+
+        // When
+        var result = productIngestService.ingest(products);
+
+        // Then
+        assertEquals(1, result.upserted());
+        assertEquals(List.of(0, 1, 2), result.errors().stream().map(RowError::index).toList());
+        assertTrue(result.errors().get(0).message().contains("Value is not allowed for attribute RAM"));
+        assertTrue(result.errors().get(1).message().contains("Value is not allowed for attribute storage_type"));
+        assertEquals(new RowError(2, null, "Product is required"), result.errors().get(2));
+    }
+
+    @Test
+    void ingestAcceptsSeededAmdLaptop() {
+        // Given
+        var id = jdbcTemplate.queryForObject(
+            "SELECT id FROM products WHERE category_id = 2 AND attributes->>'processor' LIKE 'AMD%' LIMIT 1",
+            Integer.class
+        );
+        var seeded = productRepository.findById(id).orElseThrow();
+        // The same product under a test SKU, so the seeded one stays intact
+        var product = new ProductIngestItem(
+            "TEST-AMD", seeded.getName(), seeded.getCategoryId(), seeded.getBrand(), seeded.getDescription(),
+            seeded.getPrice(), seeded.getWeight(), seeded.getAttributes()
+        );
+
+        // When
+        var result = productIngestService.ingest(List.of(product));
+
+        // Then
+        assertEquals(List.of(), result.errors());
+        assertEquals(1, result.upserted());
+    }
+
+    @Test
+    void ingestMovesProductToAnotherCategoryKeepingSkuUnique() {
+        // Given
+        productIngestService.ingest(List.of(laptop("TEST-MOVE", 100000, Map.of())));
+        var id = jdbcTemplate.queryForObject("SELECT id FROM products WHERE sku = 'TEST-MOVE'", Integer.class);
+        // Desktops have no attributes
+        var desktop = new ProductIngestItem("TEST-MOVE", "Dell Test Desktop", 5, "Dell", "Test desktop", 120000, new BigDecimal("8"), Map.of());
+
+        // When
+        var result = productIngestService.ingest(List.of(desktop));
+
+        // Then
+        assertEquals(1, result.upserted());
+        var stored = jdbcTemplate.queryForMap("SELECT id, category_id, price FROM products WHERE sku = 'TEST-MOVE'");
+        assertEquals(Map.of("id", id, "category_id", 5, "price", 120000), stored);
+        // SKU is unique across category partitions
+        assertThrows(DuplicateKeyException.class, () -> jdbcTemplate.update("""
+            INSERT INTO products(sku, name, category_id, brand, price, weight, description, attributes)
+            VALUES ('TEST-MOVE', 'Duplicate', 2, 'Dell', 100000, 1.8, 'Duplicate', '{}')
+            """));
+    }
+
+    @Test
+    void concurrentTransactionsCannotInsertSameSkuIntoDifferentCategories() throws Exception {
+        // Given
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        var inserted = new CountDownLatch(1);
+        var commit = new CountDownLatch(1);
+
+        try (var executor = Executors.newFixedThreadPool(2)) {
+            // When
+            var first = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                insertProduct("TEST-RACE", 2);
+                inserted.countDown();
+                try {
+                    commit.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+            assertTrue(inserted.await(10, TimeUnit.SECONDS));
+            var second = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> insertProduct("TEST-RACE", 5)));
+
+            // Then
+            // The second transaction waits for the uncommitted SKU of the first one
+            assertThrows(TimeoutException.class, () -> second.get(500, TimeUnit.MILLISECONDS));
+            commit.countDown();
+            first.get(10, TimeUnit.SECONDS);
+            var e = assertThrows(ExecutionException.class, () -> second.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(DuplicateKeyException.class, e.getCause());
+        }
+
+        var stored = jdbcTemplate.queryForList("SELECT category_id FROM products WHERE sku = 'TEST-RACE'", Integer.class);
+        assertEquals(List.of(2), stored);
+    }
+
+    /**
+     * Throughput comparison of bulk ingest and one-entity-at-a-time JPA saves,
+     * run with '-Dbenchmark=true', see benchmark/product-ingest.md.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void compareIngestWithJpaSaves() {
+        int rows = 20_000;
+        var products = IntStream.range(0, rows)
+            .mapToObj(i -> laptop("TEST-BULK-" + i, 50000 + i, Map.of()))
+            .toList();
+
+        long startedAt = System.nanoTime();
+        productIngestService.ingest(products);
+        double bulkSeconds = (System.nanoTime() - startedAt) / 1e9;
+
+        startedAt = System.nanoTime();
+        for (int i = 0; i < rows; i++) {
+            var item = laptop("TEST-JPA-" + i, 50000 + i, Map.of());
+            var product = new Product();
+            product.setSku(item.sku());
+            product.setName(item.name());
+            product.setCategoryId(item.categoryId());
+            product.setBrand(item.brand());
+            product.setDescription(item.description());
+            product.setPrice(item.price());
+            product.setWeight(item.weight());
+            product.setAttributes(item.attributes());
+            productRepository.save(product);
+        }
+        double jpaSeconds = (System.nanoTime() - startedAt) / 1e9;
+
+        log.info("bulk ingest: {} rows in {} s, {} rows/s", rows, "%.2f".formatted(bulkSeconds), "%.0f".formatted(rows / bulkSeconds));
+        log.info("JPA saves:   {} rows in {} s, {} rows/s", rows, "%.2f".formatted(jpaSeconds), "%.0f".formatted(rows / jpaSeconds));
+    }
+
+    private void insertProduct(String sku, int categoryId) {
+        jdbcTemplate.update("""
+            INSERT INTO products(sku, name, category_id, brand, price, weight, description, attributes)
+            VALUES (?, 'Race', ?, 'Dell', 100000, 1.8, 'Race', '{}')
+            """, sku, categoryId);
+    }
+
+    private static ProductIngestItem laptop(String sku, int price, Map<String, Object> overrides) {
+        var attributes = new HashMap<String, Object>(Map.of(
+            "screen_size", 15.6,
+            "RAM", 16,
+            "processor", "Intel i7-12700H",
+            "storage_type", "SSD",
+            "storage_capacity", 512
+        ));
+        attributes.putAll(overrides);
+
+        return new ProductIngestItem(sku, "Dell Test " + sku, 2, "Dell", "Test laptop", price, new BigDecimal("1.8"), attributes);
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.ggruzdov.ecommerce.service;
+
+import com.github.ggruzdov.ecommerce.request.FilterCondition;
+import com.github.ggruzdov.ecommerce.request.Pagination;
+import com.github.ggruzdov.ecommerce.request.PriceRange;
+import com.github.ggruzdov.ecommerce.request.ProductFilterSearchRequest;
+import com.github.ggruzdov.ecommerce.request.ProductFullTextSearchRequest;
+import com.github.ggruzdov.ecommerce.request.ProductMultiSearchRequest;
+import com.github.ggruzdov.ecommerce.request.SortCriteria;
+import com.github.ggruzdov.ecommerce.response.ProductSearchResponse;
+import com.github.ggruzdov.ecommerce.response.SearchPagedModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+class ProductMultiSearchServiceTests {
+
+    @Autowired
+    private ProductMultiSearchService productMultiSearchService;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void returnsResultsInRequestOrderAndDeduplicatesSearches() {
+        // Given
+        var cheapLaptops = new ProductFilterSearchRequest(2, null, new PriceRange(null, 100000), Map.of(), new SortCriteria(SortCriteria.PRICE, "asc"), new Pagination(1, 5));
+        // The same search with filters in another form
+        var newLaptops = new ProductFilterSearchRequest(2, null, null, Map.of("RAM", new FilterCondition("gte", 16, null, null, null)), null, new Pagination(1, 5));
+        var sameNewLaptops = new ProductFilterSearchRequest(2, null, null, Map.of("RAM", new FilterCondition("gte", 16.0, null, null, null)), null, new Pagination(1, 5));
+        var gaming = new ProductFullTextSearchRequest("gaming laptop", null, new Pagination(1, 5));
+        var request = new ProductMultiSearchRequest(List.of(
+            new ProductMultiSearchRequest.Search(cheapLaptops, null),
+            new ProductMultiSearchRequest.Search(newLaptops, null),
+            new ProductMultiSearchRequest.Search(null, gaming),
+            new ProductMultiSearchRequest.Search(sameNewLaptops, null)
+        ));
+        double deduplicated = meterRegistry.counter("search.multi.deduplicated").count();
+
+        // When
+        var results = productMultiSearchService.search(request).results();
+
+        // Then
+        assertEquals(4, results.size());
+        results.forEach(result -> assertNull(result.error()));
+        assertEquals(ids(productSearchService.search(cheapLaptops)), ids(results.get(0).page()));
+        assertEquals(ids(productSearchService.search(newLaptops)), ids(results.get(1).page()));
+        assertEquals(ids(productSearchService.search(gaming)), ids(results.get(2).page()));
+        assertEquals(ids(results.get(1).page()), ids(results.get(3).page()));
+        assertEquals(deduplicated + 1, meterRegistry.counter("search.multi.deduplicated").count());
+    }
+
+    @Test
+    void reportsFailedSearchWithoutFailingOthers() {
+        // Given
+        var unknownAttribute = new ProductFilterSearchRequest(2, null, null, Map.of("color", new FilterCondition("eq", "red", null, null, null)), null, null);
+        var laptops = new ProductFilterSearchRequest(2, null, null, Map.of(), null, new Pagination(1, 5));
+        var request = new ProductMultiSearchRequest(List.of(
+            new ProductMultiSearchRequest.Search(unknownAttribute, null),
+            new ProductMultiSearchRequest.Search(laptops, null)
+        ));
+
+        // When
+        var results = productMultiSearchService.search(request).results();
+
+        // Then
+        assertNull(results.get(0).page());
+        assertEquals(400, results.get(0).error().getStatus());
+        assertEquals("Unknown attribute 'color' of category 2", results.get(0).error().getDetail());
+        assertNull(results.get(1).error());
+        assertEquals(5, results.get(1).page().getContent().size());
+    }
+
+    private static List<Integer> ids(SearchPagedModel<ProductSearchResponse> page) {
+        return page.getContent().stream().map(ProductSearchResponse::id).toList();
+    }
+}
@@ -0,0 +1,99 @@
+package com.github.ggruzdov.ecommerce.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ggruzdov.ecommerce.component.QueryShape;
+import com.github.ggruzdov.ecommerce.config.SearchProperties.ResultMapping;
+import com.github.ggruzdov.ecommerce.request.ProductFilterSearchRequest;
+import com.github.ggruzdov.ecommerce.request.SortCriteria;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@Slf4j
+@SpringBootTest
+class ProductResultReaderTests {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Autowired
+    private ProductResultReader productResultReader;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void allMappingsReadTheSameResponses() throws Exception {
+        // Given
+        var query = laptopsByPrice();
+
+        // When
+        var entities = productResultReader.read(query.sql(), query.params(), 10, PAGE_SIZE, ResultMapping.ENTITY, query.shape());
+        var projections = productResultReader.read(query.sql(), query.params(), 10, PAGE_SIZE, ResultMapping.PROJECTION, query.shape());
+        var rawJson = productResultReader.read(query.sql(), query.params(), 10, PAGE_SIZE, ResultMapping.RAW_JSON, query.shape());
+
+        // Then
+        assertFalse(entities.isEmpty());
+        assertEquals(entities, projections);
+        assertEquals(entities, rawJson);
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(entities)), objectMapper.readTree(objectMapper.writeValueAsString(rawJson)));
+    }
+
+    /**
+     * Allocation comparison of the mappings, run with '-Dbenchmark=true', see benchmark/result-mapping.md.
+     * A page is read and serialized to JSON as the controller does.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void compareMappingAllocations() throws Exception {
+        var query = laptopsByPrice();
+        var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int iterations = 2000;
+
+        for (var mapping : ResultMapping.values()) {
+            // Warm up
+            for (int i = 0; i < iterations; i++) {
+                objectMapper.writeValueAsBytes(productResultReader.read(query.sql(), query.params(), 0, PAGE_SIZE, mapping, query.shape()));
+            }
+
+            long allocatedBefore = threadBean.getCurrentThreadAllocatedBytes();
+            long startedAt = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                objectMapper.writeValueAsBytes(productResultReader.read(query.sql(), query.params(), 0, PAGE_SIZE, mapping, query.shape()));
+            }
+            long elapsed = System.nanoTime() - startedAt;
+            long allocated = threadBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+            log.info(
+                "{} {} KB/page {} ms/page",
+                "%-10s".formatted(mapping),
+                "%8d".formatted(allocated / iterations / 1024),
+                "%8.3f".formatted(elapsed / 1_000_000.0 / iterations)
+            );
+        }
+    }
+
+    private SqlWithParams laptopsByPrice() {
+        var request = new ProductFilterSearchRequest(2, null, null, Map.of(), new SortCriteria("price", "asc"), null);
+        var query = productSearchService.buildFilterQuery(request);
+
+        return new SqlWithParams(query.sql() + " ORDER BY p.price asc, p.id asc", query.params(), query.shape());
+    }
+
+    private record SqlWithParams(
+        String sql,
+        Map<String, Object> params,
+        QueryShape shape
+    ) {
+    }
+}
@@ -0,0 +1,220 @@
+package com.github.ggruzdov.ecommerce.service;
+
+import com.github.ggruzdov.ecommerce.component.AttributeIndexManager;
+import com.github.ggruzdov.ecommerce.request.FilterCondition;
+import com.github.ggruzdov.ecommerce.request.ProductFilterSearchRequest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Guards search queries against silently losing their indexes.
+ * Sequential scans are disabled for the test transaction, so the planner falls back to them
+ * only when the query expression does not match any index.
+ */
+@SpringBootTest
+@Transactional
+class ProductSearchQueryPlanTests {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    /**
+     * Attribute indexes are built in the background after startup, outside of test transactions.
+     */
+    @BeforeAll
+    static void awaitAttributeIndexes(@Autowired AttributeIndexManager attributeIndexManager) throws Exception {
+        attributeIndexManager.lastSync().get(1, TimeUnit.MINUTES);
+    }
+
+    @BeforeEach
+    void disableSeqScan() {
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+    }
+
+    @Test
+    void fullTextSearchUsesSearchVectorIndex() {
+        // Given
+        var sql = ProductSearchService.FULL_TEXT_SEARCH_QUERY;
+
+        // When
+        var plan = explain(sql, Map.of("phrase", "Dell Intel i7"));
+
+        // Then
+        assertTrue(plan.contains("idx_product_search_vector"), () -> "Full-text search does not use GIN index:\n" + plan);
+    }
+
+    @Test
+    void suggestionsUseProductNameIndexes() {
+        // When
+        var prefixPlan = explain(ProductSuggestionService.NAME_PREFIX_QUERY, Map.of("prefix", "dell", "prefixEnd", "delm", "limit", 10));
+        var similarityPlan = explain(ProductSuggestionService.NAME_SIMILARITY_QUERY, Map.of("query", "lenvo", "candidates", 100, "maxDistance", 0.6));
+
+        // Then
+        assertTrue(prefixPlan.contains("idx_product_name_prefix"), () -> "Prefix suggestions do not use btree index:\n" + prefixPlan);
+        // Index scans of partitions are merged in order('Merge Append' with 'Sort Key'), there is no 'Sort' node
+        assertFalse(prefixPlan.contains("Sort  ("), () -> "Prefix suggestions are sorted after the index scan:\n" + prefixPlan);
+        assertTrue(similarityPlan.contains("idx_product_name_trgm"), () -> "Similar suggestions do not use GiST index:\n" + similarityPlan);
+    }
+
+    static Stream<Arguments> attributeFilters() {
+        return Stream.of(
+            Arguments.of("storage_type", new FilterCondition("eq", "SSD", null, null, null), "idx_product_attributes"),
+            Arguments.of("storage_type", new FilterCondition("in", null, List.of("SSD", "NVMe"), null, null), "idx_product_attributes"),
+            // A value shorter than a trigram is not looked up by the index, the partition is scanned then
+            Arguments.of("processor", new FilterCondition("contains", "ryzen", null, null, null), "idx_product_attr_"),
+            // Promoted attributes, see V1.09 migration
+            Arguments.of("RAM", new FilterCondition("eq", 16, null, null, null), "idx_product_attr_2_col"),
+            Arguments.of("RAM", new FilterCondition("gte", 32, null, null, null), "idx_product_attr_2_col"),
+            Arguments.of("screen_size", new FilterCondition("between", null, null, 14.0, 15.6), "idx_product_attr_1_col"),
+            Arguments.of("storage_capacity", new FilterCondition("in", null, List.of("512", "1024"), null, null), "idx_product_attr_5_col")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("attributeFilters")
+    void attributeFilterUsesIndex(String attribute, FilterCondition condition, String index) {
+        // Given
+        var request = new ProductFilterSearchRequest(2, null, null, Map.of(attribute, condition), null, null);
+        var query = productSearchService.buildFilterQuery(request);
+
+        // When
+        var plan = explain(query.sql().toString(), query.params());
+
+        // Then
+        assertTrue(plan.contains(index), () -> "Filter " + condition + " does not use " + index + " index:\n" + plan);
+    }
+
+    @Test
+    void filterSearchScansOnlyPartitionsOfCategorySubtree() {
+        // Given
+        var laptops = productSearchService.buildFilterQuery(new ProductFilterSearchRequest(2, null, null, Map.of(), null, null));
+        // Digital equipment with laptops and desktops
+        var digitalEquipment = productSearchService.buildFilterQuery(new ProductFilterSearchRequest(1, null, null, Map.of(), null, null));
+
+        // When
+        var laptopsPlan = explain(laptops.sql().toString(), laptops.params());
+        var digitalEquipmentPlan = explain(digitalEquipment.sql().toString(), digitalEquipment.params());
+
+        // Then
+        assertEquals(Set.of("products_2"), scannedPartitions(laptopsPlan), laptopsPlan);
+        assertEquals(Set.of("products_1", "products_2", "products_5"), scannedPartitions(digitalEquipmentPlan), digitalEquipmentPlan);
+    }
+
+    @Test
+    void productsByIdsQueryScansOnlyPartitionsOfCategorySubtree() {
+        // Given
+        var sql = ProductSearchService.PRODUCTS_BY_IDS_QUERY;
+        var ids = jdbcTemplate.queryForList("SELECT id FROM products WHERE category_id = 2 LIMIT 3", Integer.class)
+            .stream()
+            .map(String::valueOf)
+            .collect(Collectors.joining(",", "{", "}"));
+
+        // When
+        var laptopsPlan = explain(sql, Map.of("ids", ids, "categoryIds", "{2}"));
+        var digitalEquipmentPlan = explain(sql, Map.of("ids", ids, "categoryIds", "{1,2,5}"));
+
+        // Then
+        assertEquals(Set.of("products_2"), scannedPartitions(laptopsPlan), laptopsPlan);
+        assertEquals(Set.of("products_1", "products_2", "products_5"), scannedPartitions(digitalEquipmentPlan), digitalEquipmentPlan);
+    }
+
+    @Test
+    void sameFilterShapeProducesSameSql() {
+        // Given
+        var first = new ProductFilterSearchRequest(2, "Dell", null, Map.of(
+            "RAM", new FilterCondition("gte", 16, null, null, null),
+            "storage_type", new FilterCondition("in", null, List.of("SSD"), null, null)
+        ), null, null);
+        var second = new ProductFilterSearchRequest(2, "Asus", null, Map.of(
+            "RAM", new FilterCondition("gte", 32, null, null, null),
+            "storage_type", new FilterCondition("in", null, List.of("SSD", "NVMe"), null, null)
+        ), null, null);
+
+        // When
+        var firstQuery = productSearchService.buildFilterQuery(first);
+        var secondQuery = productSearchService.buildFilterQuery(second);
+
+        // Then
+        assertEquals(firstQuery.sql().toString(), secondQuery.sql().toString());
+        assertEquals(firstQuery.params().keySet(), secondQuery.params().keySet());
+        assertNotEquals(firstQuery.params(), secondQuery.params());
+    }
+
+    @Test
+    void filterValuesAreBoundAsTypedByAttributes() {
+        // Given
+        var request = new ProductFilterSearchRequest(2, null, null, Map.of(
+            "RAM", new FilterCondition("gte", "16", null, null, null),
+            "processor", new FilterCondition("contains", "i7_100%", null, null, null)
+        ), null, null);
+
+        // When
+        var query = productSearchService.buildFilterQuery(request);
+
+        // Then
+        assertEquals(Map.of("f0", new BigDecimal("16"), "f1", "%i7\\_100\\%%"), query.params());
+    }
+
+    @Test
+    void promotedAttributeFilterMatchesJsonbFilter() {
+        // Given
+        var request = new ProductFilterSearchRequest(2, null, null, Map.of(
+            "RAM", new FilterCondition("gte", 16, null, null, null),
+            "screen_size", new FilterCondition("between", null, null, 14.0, 15.6),
+            "storage_capacity", new FilterCondition("in", null, List.of("512", "1024"), null, null)
+        ), null, null);
+        var query = productSearchService.buildFilterQuery(request);
+
+        // When
+        var promotedIds = namedParameterJdbcTemplate.queryForList(query.sql().toString().replace("SELECT *", "SELECT p.id"), query.params(), Integer.class);
+        var jsonbIds = jdbcTemplate.queryForList("""
+            SELECT p.id FROM products p
+            WHERE p.category_id = 2
+              AND (p.attributes->>'RAM')::NUMERIC >= 16
+              AND (p.attributes->>'screen_size')::NUMERIC BETWEEN 14.0 AND 15.6
+              AND (p.attributes->>'storage_capacity')::NUMERIC IN (512, 1024)
+            """, Integer.class);
+
+        // Then
+        assertTrue(query.sql().toString().contains("p.attr_2 >= :f0"), query.sql()::toString);
+        assertFalse(jsonbIds.isEmpty());
+        assertEquals(Set.copyOf(jsonbIds), Set.copyOf(promotedIds));
+    }
+
+    private static Set<String> scannedPartitions(String plan) {
+        return Pattern.compile(" on (products_\\d+)").matcher(plan).results().map(match -> match.group(1)).collect(Collectors.toSet());
+    }
+
+    private String explain(String sql, Map<String, ?> params) {
+        return String.join("\n", namedParameterJdbcTemplate.queryForList("EXPLAIN " + sql, params, String.class));
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.ggruzdov.ecommerce.service;
+
+import com.github.ggruzdov.ecommerce.response.SuggestionResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ProductSuggestionServiceTests {
+
+    @Autowired
+    private ProductSuggestionService productSuggestionService;
+
+    @Test
+    void suggestsBrandFirstAndThenDistinctProductNamesByPrefix() {
+        // When
+        var suggestions = productSuggestionService.suggest("  DEL ", 4);
+
+        // Then
+        assertEquals(new SuggestionResponse("Dell", SuggestionResponse.Type.BRAND, null, null, null), suggestions.getFirst());
+        assertEquals(
+            List.of("Dell Elite 13.3\"", "Dell Elite 14.0\"", "Dell Elite 15.6\""),
+            suggestions.subList(1, suggestions.size()).stream().map(SuggestionResponse::text).toList()
+        );
+        suggestions.subList(1, suggestions.size()).forEach(suggestion -> {
+            assertEquals(SuggestionResponse.Type.PRODUCT, suggestion.type());
+            assertEquals(2, suggestion.categoryId());
+        });
+    }
+
+    @Test
+    void suggestsAttributeValuesByPrefix() {
+        // When
+        var suggestions = productSuggestionService.suggest("nvm", 2);
+
+        // Then
+        assertEquals(new SuggestionResponse("NVMe", SuggestionResponse.Type.ATTRIBUTE, 2, "storage_type", null), suggestions.getFirst());
+    }
+
+    @Test
+    void suggestsSimilarProductNamesOfMistypedQuery() {
+        // When
+        var suggestions = productSuggestionService.suggest("lenvo flex", 3);
+
+        // Then
+        assertEquals(3, suggestions.size());
+        suggestions.forEach(suggestion -> assertTrue(suggestion.text().startsWith("Lenovo Flex"), suggestion::text));
+        assertEquals(3, suggestions.stream().map(SuggestionResponse::text).distinct().count());
+    }
+
+    @Test
+    void prefixEndIsTheNextStringAfterAllPrefixed() {
+        assertEquals("dem", ProductSuggestionService.prefixEnd("del"));
+        assertEquals("ab😂", ProductSuggestionService.prefixEnd("ab😁"));
+    }
+}
@@ -0,0 +1,130 @@
+package com.github.ggruzdov.ecommerce.service;
+
+import com.github.ggruzdov.ecommerce.component.ProductBitmapEngine;
+import com.github.ggruzdov.ecommerce.component.ReadReplicaDataSource;
+import com.github.ggruzdov.ecommerce.request.Pagination;
+import com.github.ggruzdov.ecommerce.request.ProductFilterSearchRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Both "replicas" are the test database itself told apart by the connection application name,
+ * the second one is not reachable. The in-memory filter search is enabled, its scheduled polls are far apart.
+ */
+@SpringBootTest(properties = {
+    "ecommerce.search.bitmap-engine.enabled=true",
+    "ecommerce.search.bitmap-engine.poll-interval=1h",
+    "ecommerce.read-replicas.enabled=true",
+    "ecommerce.read-replicas.replicas[0].name=replica-1",
+    "ecommerce.read-replicas.replicas[0].url=jdbc:postgresql://${POSTGRES_HOST:localhost}:5432/ecommerce?ApplicationName=replica-1",
+    "ecommerce.read-replicas.replicas[1].name=replica-2",
+    "ecommerce.read-replicas.replicas[1].url=jdbc:postgresql://${POSTGRES_HOST:localhost}:1/ecommerce?ApplicationName=replica-2"
+})
+class ReadReplicaRoutingTests {
+
+    private static final String PRIMARY_APPLICATION_NAME = "PostgreSQL JDBC Driver";
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private ReadReplicaDataSource readReplicaDataSource;
+
+    @Autowired
+    private ProductBitmapEngine productBitmapEngine;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void routesReadOnlyTransactionsToAvailableReplica() {
+        // Given
+        var readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        var readWrite = new TransactionTemplate(transactionManager);
+        double replicaRoutes = routes("replica-1");
+
+        // When
+        var readOnlyNames = readOnly.execute(status -> applicationName() + "," + applicationName());
+        var readWriteName = readWrite.execute(status -> applicationName());
+        var page = productSearchService.searchWithCursor(new ProductFilterSearchRequest(2, null, null, Map.of(), null, new Pagination(1, 5)));
+
+        // Then
+        assertEquals("replica-1,replica-1", readOnlyNames);
+        assertEquals(PRIMARY_APPLICATION_NAME, readWriteName);
+        assertEquals(PRIMARY_APPLICATION_NAME, applicationName());
+        assertEquals(5, page.content().size());
+        // A connection per transaction
+        assertEquals(replicaRoutes + 2, routes("replica-1"));
+        assertEquals(0, routes("replica-2"));
+        assertEquals(0, meterRegistry.get("datasource.replica.available").tag("replica", "replica-2").gauge().value());
+    }
+
+    @Test
+    void readsProductsOfInMemorySearchFromPrimary() {
+        // Given
+        productBitmapEngine.poll();
+        var inMemory = new ProductFilterSearchRequest(2, null, null, Map.of(), null, new Pagination(1, 7), null, false);
+        var withFacets = new ProductFilterSearchRequest(2, null, null, Map.of(), null, new Pagination(1, 7), null, true);
+        double replicaRoutes = routes("replica-1");
+
+        // When
+        var inMemoryPage = productSearchService.search(inMemory);
+        double inMemoryRoutes = routes("replica-1");
+        var sqlPage = productSearchService.search(withFacets);
+
+        // Then
+        assertTrue(productBitmapEngine.isWarm());
+        // The engine is in sync with the primary, a lagging replica would miss or have stale products of its page
+        assertEquals(replicaRoutes, inMemoryRoutes);
+        assertEquals(replicaRoutes + 1, routes("replica-1"));
+        assertEquals(sqlPage.getContent(), inMemoryPage.getContent());
+        assertEquals(sqlPage.getMetadata().totalElements(), inMemoryPage.getMetadata().totalElements());
+    }
+
+    @Test
+    @DirtiesContext
+    void fallsBackToPrimaryWithoutAvailableReplicas() {
+        // Given
+        var readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readReplicaDataSource.close();
+        double primaryRoutes = routes("primary");
+
+        // When
+        var name = readOnly.execute(status -> applicationName());
+        readReplicaDataSource.checkLag();
+
+        // Then
+        assertEquals(PRIMARY_APPLICATION_NAME, name);
+        assertEquals(primaryRoutes + 1, routes("primary"));
+        assertEquals(0, meterRegistry.get("datasource.replica.available").tag("replica", "replica-1").gauge().value());
+        assertFalse(Double.isFinite(meterRegistry.get("datasource.replica.lag").tag("replica", "replica-1").gauge().value()));
+    }
+
+    private String applicationName() {
+        return jdbcTemplate.queryForObject("SELECT current_setting('application_name')", String.class);
+    }
+
+    private double routes(String route) {
+        return meterRegistry.counter("datasource.route", "route", route).count();
+    }
+}
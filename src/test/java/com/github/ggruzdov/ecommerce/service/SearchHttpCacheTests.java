@@ -0,0 +1,105 @@
+package com.github.ggruzdov.ecommerce.service;
+
+import com.github.ggruzdov.ecommerce.request.ProductFilterSearchRequest;
+import com.github.ggruzdov.ecommerce.request.ProductFullTextSearchRequest;
+import com.github.ggruzdov.ecommerce.request.ProductIngestItem;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class SearchHttpCacheTests {
+
+    @Autowired
+    private SearchHttpCache searchHttpCache;
+
+    @Autowired
+    private ProductIngestService productIngestService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM products WHERE sku LIKE 'TEST-%'");
+    }
+
+    @Test
+    void matchingRequestIsNotModifiedWithoutSearch() {
+        // Given
+        var request = new ProductFilterSearchRequest(2, "Dell", null, Map.of(), null, null);
+        var searches = new AtomicInteger();
+        var first = searchHttpCache.respond("search", request, null, () -> "result " + searches.incrementAndGet());
+        var etag = first.getHeaders().getETag();
+        double notModified = meterRegistry.counter("search.not-modified", "endpoint", "search").count();
+
+        // When
+        var second = searchHttpCache.respond("search", request, "\"other\", " + etag, () -> "result " + searches.incrementAndGet());
+        var otherEndpoint = searchHttpCache.respond("cursor", request, etag, () -> "result " + searches.incrementAndGet());
+
+        // Then
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertTrue(etag.startsWith("W/\""));
+        assertEquals("no-cache", first.getHeaders().getCacheControl());
+
+        assertEquals(HttpStatus.NOT_MODIFIED, second.getStatusCode());
+        assertNull(second.getBody());
+        assertEquals(etag, second.getHeaders().getETag());
+        assertEquals("no-cache", second.getHeaders().getCacheControl());
+        assertEquals(notModified + 1, meterRegistry.counter("search.not-modified", "endpoint", "search").count());
+
+        // The same request of another endpoint has another response
+        assertEquals(HttpStatus.OK, otherEndpoint.getStatusCode());
+        assertEquals(2, searches.get());
+    }
+
+    @Test
+    void etagChangesOnceProductsOfSearchedCategoriesChange() {
+        // Given
+        var washingMachines = new ProductFilterSearchRequest(4, null, null, Map.of(), null, null);
+        var homeAppliances = new ProductFilterSearchRequest(3, null, null, Map.of(), null, null);
+        var laptops = new ProductFilterSearchRequest(2, null, null, Map.of(), null, null);
+        var fullText = new ProductFullTextSearchRequest("bosch", null, null);
+        var before = List.of(etag(washingMachines), etag(homeAppliances), etag(laptops), etag(fullText));
+
+        // When
+        var result = productIngestService.ingest(List.of(
+            new ProductIngestItem("TEST-ETAG", "Bosch Test Washer", 4, "Bosch", "Test washing machine", 50000, new BigDecimal("60"), Map.of())
+        ));
+        var after = List.of(etag(washingMachines), etag(homeAppliances), etag(laptops), etag(fullText));
+
+        // Then
+        assertEquals(1, result.upserted());
+        assertNotEquals(before.get(0), after.get(0));
+        // Results of the parent category include its subtree
+        assertNotEquals(before.get(1), after.get(1));
+        assertEquals(before.get(2), after.get(2));
+        assertNotEquals(before.get(3), after.get(3));
+    }
+
+    private String etag(ProductFilterSearchRequest request) {
+        return searchHttpCache.respond("search", request, null, () -> "result").getHeaders().getFirst(HttpHeaders.ETAG);
+    }
+
+    private String etag(ProductFullTextSearchRequest request) {
+        return searchHttpCache.respond("full-text", request, null, () -> "result").getHeaders().getFirst(HttpHeaders.ETAG);
+    }
+}
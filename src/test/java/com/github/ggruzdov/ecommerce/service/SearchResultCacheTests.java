@@ -0,0 +1,173 @@
+package com.github.ggruzdov.ecommerce.service;
+
+import com.github.ggruzdov.ecommerce.component.ProductsChangedEvent;
+import com.github.ggruzdov.ecommerce.request.FilterCondition;
+import com.github.ggruzdov.ecommerce.request.ProductFilterSearchRequest;
+import com.github.ggruzdov.ecommerce.request.ProductFullTextSearchRequest;
+import com.github.ggruzdov.ecommerce.response.ProductSearchResponse;
+import com.github.ggruzdov.ecommerce.response.SearchPagedModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Import(SearchResultCacheTests.InMemoryStoreConfiguration.class)
+class SearchResultCacheTests {
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Autowired
+    private InMemorySearchResultStore sharedStore;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void clearCaches() {
+        searchResultCache.invalidateLocal();
+        sharedStore.results.clear();
+    }
+
+    @Test
+    void canonicalRequestsShareCachedResult() {
+        // Given
+        var first = new ProductFilterSearchRequest(2, null, null, Map.of(
+            "RAM", new FilterCondition("gte", 16, null, null, null),
+            "storage_type", new FilterCondition("in", null, List.of("SSD", "NVMe"), null, null)
+        ), null, null);
+        var second = new ProductFilterSearchRequest(2, null, null, Map.of(
+            "storage_type", new FilterCondition("in", null, List.of("NVMe", "SSD"), null, null),
+            "RAM", new FilterCondition("gte", 16.0, null, null, null)
+        ), null, null);
+        double hitsBefore = localHits();
+
+        // When
+        var firstResult = productSearchService.search(first);
+        var secondResult = productSearchService.search(second);
+
+        // Then
+        assertSame(firstResult, secondResult);
+        assertEquals(1, localHits() - hitsBefore);
+        assertEquals(1, sharedStore.results.size());
+    }
+
+    @Test
+    void numbersOfVarcharAttributesAreNotNormalized() {
+        // Given
+        // 'contains' 12 matches "Intel i7-12700H", while 12.0 is compared as text and matches nothing
+        var integer = new ProductFilterSearchRequest(2, null, null, Map.of(
+            "processor", new FilterCondition("contains", 12, null, null, null)
+        ), null, null);
+        var decimal = new ProductFilterSearchRequest(2, null, null, Map.of(
+            "processor", new FilterCondition("contains", 12.0, null, null, null)
+        ), null, null);
+
+        // When
+        var integerResult = productSearchService.search(integer);
+        var decimalResult = productSearchService.search(decimal);
+
+        // Then
+        assertNotEquals(searchResultCache.canonical(integer), searchResultCache.canonical(decimal));
+        assertNotSame(integerResult, decimalResult);
+        assertTrue(integerResult.getMetadata().totalElements() > 0);
+        assertEquals(0, decimalResult.getMetadata().totalElements());
+    }
+
+    @Test
+    void sharedStoreServesLocalMiss() {
+        // Given
+        var request = new ProductFullTextSearchRequest("  Dell   INTEL ", null, null);
+        var result = productSearchService.search(request);
+        searchResultCache.invalidateLocal();
+
+        // When
+        var cached = productSearchService.search(new ProductFullTextSearchRequest("dell intel", null, null));
+
+        // Then
+        assertSame(result, cached);
+    }
+
+    @Test
+    void productChangesEvictCategoryResults() {
+        // Given
+        var laptops = new ProductFilterSearchRequest(2, null, null, Map.of(), null, null);
+        var digitalEquipment = new ProductFilterSearchRequest(1, null, null, Map.of(), null, null);
+        var homeAppliances = new ProductFilterSearchRequest(3, null, null, Map.of(), null, null);
+        var fullText = new ProductFullTextSearchRequest("Dell", null, null);
+        var laptopsResult = productSearchService.search(laptops);
+        var digitalEquipmentResult = productSearchService.search(digitalEquipment);
+        var homeAppliancesResult = productSearchService.search(homeAppliances);
+        var fullTextResult = productSearchService.search(fullText);
+
+        // When
+        eventPublisher.publishEvent(new ProductsChangedEvent(Set.of(2)));
+
+        // Then
+        assertNotSame(laptopsResult, productSearchService.search(laptops));
+        // Laptops are a subcategory of digital equipment
+        assertNotSame(digitalEquipmentResult, productSearchService.search(digitalEquipment));
+        assertSame(homeAppliancesResult, productSearchService.search(homeAppliances));
+        assertNotSame(fullTextResult, productSearchService.search(fullText));
+    }
+
+    private double localHits() {
+        return meterRegistry.get("cache.gets").tags("cache", "search.results", "result", "hit").functionCounter().count();
+    }
+
+    @TestConfiguration
+    static class InMemoryStoreConfiguration {
+
+        @Bean
+        InMemorySearchResultStore inMemorySearchResultStore() {
+            return new InMemorySearchResultStore();
+        }
+    }
+
+    /**
+     * In-process stand-in of a shared store, entries never expire.
+     */
+    static class InMemorySearchResultStore implements SearchResultStore {
+
+        private final Map<SearchResultCache.Key, SearchPagedModel<ProductSearchResponse>> results = new ConcurrentHashMap<>();
+
+        @Override
+        public SearchPagedModel<ProductSearchResponse> get(SearchResultCache.Key key) {
+            return results.get(key);
+        }
+
+        @Override
+        public void put(SearchResultCache.Key key, SearchPagedModel<ProductSearchResponse> result, Duration ttl) {
+            results.put(key, result);
+        }
+
+        @Override
+        public void evictCategories(Set<Integer> categoryIds) {
+            results.keySet().removeIf(key -> key.categoryId() == null || categoryIds.contains(key.categoryId()));
+        }
+    }
+}